@@ -1,5 +1,6 @@
 package com.taosdata.kafka.connect.config;
 
+import com.taosdata.kafka.connect.enums.ConnectionValidationEnum;
 import org.apache.kafka.common.config.AbstractConfig;
 import org.apache.kafka.common.config.ConfigDef;
 import org.slf4j.Logger;
@@ -54,6 +55,27 @@ public class ConnectionConfig extends AbstractConfig {
     public static final String CONNECTION_BACKOFF_DISPLAY =
             "JDBC connection backoff in milliseconds";
 
+    public static final String CONNECTION_VALIDATION = CONNECTION_PREFIX + "validation";
+    public static final String CONNECTION_VALIDATION_DEFAULT = "idle";
+    private static final String CONNECTION_VALIDATION_DOC =
+            "When to check the connection with a test query before using it, one of (always, idle). "
+                    + "always checks before every use, idle only checks after the connection was idle for "
+                    + "connection.validation.idle.ms or an operation on it failed.";
+    private static final String CONNECTION_VALIDATION_DISPLAY = "Connection validation";
+
+    public static final String CONNECTION_VALIDATION_IDLE_MS = CONNECTION_PREFIX + "validation.idle.ms";
+    public static final long CONNECTION_VALIDATION_IDLE_MS_DEFAULT = 30000L;
+    private static final String CONNECTION_VALIDATION_IDLE_MS_DOC =
+            "Idle time in milliseconds after which a connection is checked before it is used again.";
+    private static final String CONNECTION_VALIDATION_IDLE_MS_DISPLAY = "Connection validation idle time (ms)";
+
+    public static final String CONNECTION_HEALTH_CHECK_INTERVAL_MS = CONNECTION_PREFIX + "health.check.interval.ms";
+    public static final long CONNECTION_HEALTH_CHECK_INTERVAL_MS_DEFAULT = 10000L;
+    private static final String CONNECTION_HEALTH_CHECK_INTERVAL_MS_DOC =
+            "Interval in milliseconds of the background health check, which checks idle connections "
+                    + "so that a broken connection is replaced before the next write. 0 disables the health check.";
+    private static final String CONNECTION_HEALTH_CHECK_INTERVAL_MS_DISPLAY = "Connection health check interval (ms)";
+
     public static final String CONNECTION_TIMEZONE_CONFIG = "connection.timezone";
     public static final String CONNECTION_TIMEZONE_DEFAULT = "UTC";
     private static final String CONNECTION_TIMEZONE_CONFIG_DOC =
@@ -120,6 +142,42 @@ public class ConnectionConfig extends AbstractConfig {
                         ConfigDef.Width.SHORT,
                         CONNECTION_BACKOFF_DISPLAY
                 )
+                .define(
+                        CONNECTION_VALIDATION,
+                        ConfigDef.Type.STRING,
+                        CONNECTION_VALIDATION_DEFAULT,
+                        ConnectionValidationValidator.INSTANCE,
+                        ConfigDef.Importance.LOW,
+                        CONNECTION_VALIDATION_DOC,
+                        CONNECTION_GROUP,
+                        ++orderInGroup,
+                        ConfigDef.Width.SHORT,
+                        CONNECTION_VALIDATION_DISPLAY
+                )
+                .define(
+                        CONNECTION_VALIDATION_IDLE_MS,
+                        ConfigDef.Type.LONG,
+                        CONNECTION_VALIDATION_IDLE_MS_DEFAULT,
+                        ConfigDef.Range.atLeast(0),
+                        ConfigDef.Importance.LOW,
+                        CONNECTION_VALIDATION_IDLE_MS_DOC,
+                        CONNECTION_GROUP,
+                        ++orderInGroup,
+                        ConfigDef.Width.SHORT,
+                        CONNECTION_VALIDATION_IDLE_MS_DISPLAY
+                )
+                .define(
+                        CONNECTION_HEALTH_CHECK_INTERVAL_MS,
+                        ConfigDef.Type.LONG,
+                        CONNECTION_HEALTH_CHECK_INTERVAL_MS_DEFAULT,
+                        ConfigDef.Range.atLeast(0),
+                        ConfigDef.Importance.LOW,
+                        CONNECTION_HEALTH_CHECK_INTERVAL_MS_DOC,
+                        CONNECTION_GROUP,
+                        ++orderInGroup,
+                        ConfigDef.Width.SHORT,
+                        CONNECTION_HEALTH_CHECK_INTERVAL_MS_DISPLAY
+                )
                 .define(
                         CONNECTION_DB,
                         ConfigDef.Type.STRING,
@@ -151,6 +209,9 @@ public class ConnectionConfig extends AbstractConfig {
     private final int connectionAttempts;
     private final long connectionBackoffMs;
     private final String connectionDb;
+    private final ConnectionValidationEnum connectionValidation;
+    private final long connectionValidationIdleMs;
+    private final long connectionHealthCheckIntervalMs;
     private final TimeZone timeZone;
 
     public ConnectionConfig(ConfigDef def, Map<?, ?> props) {
@@ -161,6 +222,10 @@ public class ConnectionConfig extends AbstractConfig {
         this.connectionAttempts = getInt(CONNECTION_ATTEMPTS);
         this.connectionBackoffMs = getLong(CONNECTION_BACKOFF);
         this.connectionDb = getString(CONNECTION_DB).trim();
+        this.connectionValidation = ConnectionValidationEnum.valueOf(
+                getString(CONNECTION_VALIDATION).trim().toUpperCase());
+        this.connectionValidationIdleMs = getLong(CONNECTION_VALIDATION_IDLE_MS);
+        this.connectionHealthCheckIntervalMs = getLong(CONNECTION_HEALTH_CHECK_INTERVAL_MS);
 
         String zone = getString(CONNECTION_TIMEZONE_CONFIG);
         this.timeZone = TimeZone.getTimeZone(zone);
@@ -190,6 +255,18 @@ public class ConnectionConfig extends AbstractConfig {
         return connectionDb;
     }
 
+    public ConnectionValidationEnum getConnectionValidation() {
+        return connectionValidation;
+    }
+
+    public long getConnectionValidationIdleMs() {
+        return connectionValidationIdleMs;
+    }
+
+    public long getConnectionHealthCheckIntervalMs() {
+        return connectionHealthCheckIntervalMs;
+    }
+
     public TimeZone getTimeZone() {
         return timeZone;
     }
@@ -0,0 +1,17 @@
+package com.taosdata.kafka.connect.config;
+
+import com.taosdata.kafka.connect.enums.ConnectionValidationEnum;
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigException;
+
+public class ConnectionValidationValidator implements ConfigDef.Validator {
+
+    public static final ConnectionValidationValidator INSTANCE = new ConnectionValidationValidator();
+
+    @Override
+    public void ensureValid(String name, Object value) {
+        if (!ConnectionValidationEnum.isValid(String.valueOf(value).trim())) {
+            throw new ConfigException(name, value, "connection validation must be one of (always, idle)");
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.taosdata.kafka.connect.config;
+
+import com.taosdata.kafka.connect.enums.WriteModeEnum;
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigException;
+
+public class WriteModeValidator implements ConfigDef.Validator {
+
+    public static final WriteModeValidator INSTANCE = new WriteModeValidator();
+
+    @Override
+    public void ensureValid(String name, Object value) {
+        if (!WriteModeEnum.isValid(String.valueOf(value).trim())) {
+            throw new ConfigException(name, value, "write mode must be one of (schemaless, stmt, sql, file)");
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package com.taosdata.kafka.connect.db;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.taosdata.jdbc.AbstractConnection;
 import com.taosdata.jdbc.enums.SchemalessProtocolType;
 import com.taosdata.jdbc.enums.SchemalessTimestampType;
+import com.taosdata.kafka.connect.enums.ConnectionValidationEnum;
+import com.taosdata.kafka.connect.sink.SinkConfig;
 import org.apache.kafka.connect.errors.ConnectException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,6 +15,10 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * cache connection and provide write schemaless function
@@ -26,46 +34,179 @@ public class CacheProcessor<T extends ConnectionProvider> implements Processor {
 
     private String dbName;
 
+    // database the current connection is using
+    private String currentDb;
+
+    // databases which have been created or are known to exist
+    private final Cache<String, Boolean> knownDatabases;
+
+    private final ConnectionValidationEnum validation;
+    private final long validationIdleNanos;
+
+    // guards the connection against the health check thread
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile long lastActiveNanos;
+    // an operation failed, check the connection before using it again
+    private volatile boolean suspect;
+    private ScheduledExecutorService healthCheckExecutor;
+
     public CacheProcessor(T provider) {
+        this(provider, SinkConfig.DB_CACHE_SIZE_DEFAULT);
+    }
+
+    public CacheProcessor(T provider, int databaseCacheSize) {
+        this(provider, databaseCacheSize, ConnectionValidationEnum.ALWAYS, 0L);
+    }
+
+    public CacheProcessor(T provider, int databaseCacheSize, ConnectionValidationEnum validation, long validationIdleMs) {
         this.provider = provider;
+        this.knownDatabases = CacheBuilder.newBuilder().maximumSize(databaseCacheSize).build();
+        this.validation = validation;
+        this.validationIdleNanos = TimeUnit.MILLISECONDS.toNanos(validationIdleMs);
+    }
+
+    /**
+     * check the connection in background when it has been idle for the validation idle time,
+     * so that a broken connection is replaced before the next write
+     *
+     * @param intervalMs check interval, 0 means disabled
+     */
+    public void startHealthCheck(long intervalMs) {
+        if (intervalMs <= 0 || healthCheckExecutor != null) {
+            return;
+        }
+        healthCheckExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "tdengine-connection-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthCheckExecutor.scheduleWithFixedDelay(this::healthCheck, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void healthCheck() {
+        // the connection is in use, no need to check it
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            if (connection == null || !needValidation()) {
+                return;
+            }
+            if (isConnectionValid(connection)) {
+                markActive();
+            } else {
+                log.info("The database connection failed health check, it will be reconnected on next use");
+                close();
+            }
+        } catch (RuntimeException e) {
+            log.warn("connection health check failed", e);
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
     public void setDbName(String dbName) {
-        this.dbName = dbName;
-        this.initDB();
+        lock.lock();
+        try {
+            this.dbName = dbName;
+            this.initDB();
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
     public Connection getConnection() throws SQLException {
+        lock.lock();
         try {
             if (this.connection == null) {
-                this.connection = provider.getConnection();
-            } else if (!isConnectionValid(connection)) {
-                log.info("The database connection is invalid. Reconnecting...");
-                close();
-                this.connection = provider.getConnection();
+                connect();
+            } else if (needValidation()) {
+                if (isConnectionValid(connection)) {
+                    markActive();
+                } else {
+                    log.info("The database connection is invalid. Reconnecting...");
+                    close();
+                    connect();
+                }
             }
         } catch (SQLException sqle) {
             throw new ConnectException(sqle);
+        } finally {
+            lock.unlock();
         }
         return connection;
     }
 
+    private void connect() throws SQLException {
+        this.connection = provider.getConnection();
+        try {
+            useCurrentDB();
+        } catch (SQLException e) {
+            // do not keep a connection without the database selected
+            close();
+            throw e;
+        }
+        markActive();
+    }
+
+    private boolean needValidation() {
+        return validation == ConnectionValidationEnum.ALWAYS
+                || suspect
+                || System.nanoTime() - lastActiveNanos >= validationIdleNanos;
+    }
+
+    private void markActive() {
+        lastActiveNanos = System.nanoTime();
+        suspect = false;
+    }
+
     private void initDB() {
         try {
-            String sql = "create database if not exists " + this.dbName + " precision 'ns'";
-            this.execute(sql);
-            sql = "use " + dbName;
-            this.execute(sql);
+            // a new connection creates and selects the database itself
+            this.getConnection();
+            if (knownDatabases.getIfPresent(dbName) == null) {
+                this.execute(createDatabaseSql());
+                knownDatabases.put(dbName, Boolean.TRUE);
+            }
+            if (!dbName.equals(currentDb)) {
+                String sql = "use " + dbName;
+                this.execute(sql);
+                currentDb = dbName;
+            }
         } catch (SQLException e) {
             log.error("init database error！", e);
             throw new ConnectException(e);
         }
     }
 
+    private String createDatabaseSql() {
+        return "create database if not exists " + this.dbName + " precision 'ns'";
+    }
+
+    /**
+     * a new connection has no database selected, switch it to the database in use.
+     * the database is created first if it is not known, it may have been dropped while disconnected
+     */
+    private void useCurrentDB() throws SQLException {
+        currentDb = null;
+        if (dbName == null) {
+            return;
+        }
+        try (Statement statement = connection.createStatement()) {
+            if (knownDatabases.getIfPresent(dbName) == null) {
+                statement.execute(createDatabaseSql());
+                knownDatabases.put(dbName, Boolean.TRUE);
+            }
+            statement.execute("use " + dbName);
+        }
+        currentDb = dbName;
+    }
+
     @Override
     public boolean execute(String sql) throws SQLException {
+        lock.lock();
         try (Statement statement = this.getConnection().createStatement()) {
             boolean result = statement.execute(sql);
             if (result) {
@@ -73,30 +214,112 @@ public class CacheProcessor<T extends ConnectionProvider> implements Processor {
                     // do nothing with the result set
                 }
             }
+            markActive();
+            return result;
+        } catch (SQLException e) {
+            suspect = true;
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public <R> R withConnection(ConnectionCallback<R> callback) throws SQLException {
+        lock.lock();
+        try {
+            R result = callback.doWithConnection(this.getConnection());
+            markActive();
             return result;
+        } catch (SQLException e) {
+            suspect = true;
+            throw e;
+        } finally {
+            lock.unlock();
         }
     }
 
+    @Override
+    public int getVgroups() throws SQLException {
+        lock.lock();
+        try (Statement statement = this.getConnection().createStatement();
+             ResultSet rs = statement.executeQuery(
+                     "select `vgroups` from information_schema.ins_databases where name = '" + dbName + "'")) {
+            markActive();
+            return rs.next() ? Math.max(1, rs.getInt(1)) : 1;
+        } catch (SQLException e) {
+            suspect = true;
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+    }
 
     @Override
-    public boolean schemalessInsert(String[] records, SchemalessProtocolType protocolType, SchemalessTimestampType timestampType) throws SQLException {
-        AbstractConnection conn = this.getConnection().unwrap(AbstractConnection.class);
-        conn.write(records, protocolType, timestampType);
-        return true;
+    public boolean schemalessInsert(String[] records, SchemalessProtocolType protocolType, SchemalessTimestampType timestampType,
+                                    Long reqId) throws SQLException {
+        lock.lock();
+        try {
+            AbstractConnection conn = this.getConnection().unwrap(AbstractConnection.class);
+            conn.write(records, protocolType, timestampType, null, reqId);
+            markActive();
+            return true;
+        } catch (SQLException e) {
+            suspect = true;
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int schemalessInsertRaw(String lines, SchemalessProtocolType protocolType, SchemalessTimestampType timestampType,
+                                   Long reqId) throws SQLException {
+        lock.lock();
+        try {
+            AbstractConnection conn = this.getConnection().unwrap(AbstractConnection.class);
+            int rows = conn.writeRaw(lines, protocolType, timestampType, null, reqId);
+            markActive();
+            return rows;
+        } catch (SQLException e) {
+            suspect = true;
+            throw e;
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
     public void close() {
-        if (connection != null) {
-            try {
-                log.info("Try closing connection {}", connection.getMetaData().getURL());
-                connection.close();
-            } catch (SQLException sqle) {
-                log.warn("Ignoring error closing connection", sqle);
-            } finally {
-                connection = null;
+        lock.lock();
+        try {
+            if (connection != null) {
+                try {
+                    log.info("Try closing connection {}", connection.getMetaData().getURL());
+                    connection.close();
+                } catch (SQLException sqle) {
+                    log.warn("Ignoring error closing connection", sqle);
+                } finally {
+                    connection = null;
+                    currentDb = null;
+                    // the database may have been dropped, check it again on next use
+                    if (dbName != null) {
+                        knownDatabases.invalidate(dbName);
+                    }
+                }
             }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        if (healthCheckExecutor != null) {
+            healthCheckExecutor.shutdownNow();
+            healthCheckExecutor = null;
         }
+        close();
     }
 
     public boolean isConnectionValid(java.sql.Connection connection) {
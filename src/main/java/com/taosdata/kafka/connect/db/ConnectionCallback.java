@@ -0,0 +1,15 @@
+package com.taosdata.kafka.connect.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * work done with a connection of a processor, the connection must not be closed or kept
+ *
+ * @param <T> result type
+ */
+@FunctionalInterface
+public interface ConnectionCallback<T> {
+
+    T doWithConnection(Connection connection) throws SQLException;
+}
@@ -0,0 +1,51 @@
+package com.taosdata.kafka.connect.db;
+
+import com.taosdata.jdbc.TSDBErrorNumbers;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * tell errors of the connection from errors of the written data
+ */
+public class ConnectionErrors {
+    // rpc and network errors of the native client are 0x000B to 0x00FF
+    private static final int NATIVE_RPC_FIRST = 0x000B;
+    private static final int NATIVE_RPC_LAST = 0x00FF;
+
+    private ConnectionErrors() {
+    }
+
+    /**
+     * @return true if the exception or one of its causes or next exceptions means the connection is broken
+     */
+    public static boolean isConnectionError(SQLException exception) {
+        for (Throwable e : exception) {
+            if (e instanceof IOException) {
+                return true;
+            }
+            if (!(e instanceof SQLException)) {
+                continue;
+            }
+            SQLException sqle = (SQLException) e;
+            // sql state class 08 is connection exception
+            if (sqle.getSQLState() != null && sqle.getSQLState().startsWith("08")) {
+                return true;
+            }
+            switch (sqle.getErrorCode()) {
+                case TSDBErrorNumbers.ERROR_CONNECTION_CLOSED:
+                case TSDBErrorNumbers.ERROR_SQLCLIENT_EXCEPTION_ON_CONNECTION_CLOSED:
+                case TSDBErrorNumbers.ERROR_CONNECTION_TIMEOUT:
+                case TSDBErrorNumbers.ERROR_RESTFul_Client_IOException:
+                case TSDBErrorNumbers.ERROR_JNI_CONNECTION_NULL:
+                    return true;
+                default:
+                    int code = sqle.getErrorCode() & 0xffff;
+                    if (code >= NATIVE_RPC_FIRST && code <= NATIVE_RPC_LAST) {
+                        return true;
+                    }
+            }
+        }
+        return false;
+    }
+}
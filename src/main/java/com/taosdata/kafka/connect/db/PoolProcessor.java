@@ -1,42 +1,332 @@
 package com.taosdata.kafka.connect.db;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.taosdata.jdbc.AbstractConnection;
 import com.taosdata.jdbc.enums.SchemalessProtocolType;
 import com.taosdata.jdbc.enums.SchemalessTimestampType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.*;
 
 /**
- * use connection pool to execute
+ * use connection pool to execute.
+ * connections are pooled by database, each connection keeps using the database it was opened for,
+ * so threads writing to different databases run concurrently without switching databases.
+ * the database of the calling thread is set by {@link #setDbName(String)}.
  */
 public class PoolProcessor implements Processor {
+    private static final Logger log = LoggerFactory.getLogger(PoolProcessor.class);
+
+    private final ConnectionProvider provider;
+    private final int maxPerDatabase;
+    private final long idleTimeoutNanos;
+    private final long borrowTimeoutMs;
+
+    private final Map<String, DatabasePool> pools = new ConcurrentHashMap<>();
+    // permits for open connections of all databases
+    private final Semaphore total;
+    private final Cache<String, Boolean> knownDatabases;
+    private final ThreadLocal<String> dbName = new ThreadLocal<>();
+    private final ScheduledExecutorService evictor;
+
+    public PoolProcessor(ConnectionProvider provider, int maxPerDatabase, int maxTotal, long idleTimeoutMs,
+                         long borrowTimeoutMs, int databaseCacheSize) {
+        this.provider = provider;
+        this.maxPerDatabase = maxPerDatabase;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs);
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.total = new Semaphore(maxTotal);
+        this.knownDatabases = CacheBuilder.newBuilder().maximumSize(databaseCacheSize).build();
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "tdengine-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000L, idleTimeoutMs / 2);
+        this.evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
 
     @Override
     public boolean execute(String sql) throws SQLException {
-        return false;
+        PooledConnection pooled = borrow(currentDb());
+        boolean broken = false;
+        try (Statement statement = pooled.connection.createStatement()) {
+            boolean result = statement.execute(sql);
+            if (result) {
+                try (ResultSet rs = statement.getResultSet()) {
+                    // do nothing with the result set
+                }
+            }
+            return result;
+        } catch (SQLException e) {
+            broken = !isConnectionValid(pooled.connection);
+            throw e;
+        } finally {
+            release(pooled, broken);
+        }
     }
 
     @Override
-    public boolean schemalessInsert(String[] records, SchemalessProtocolType protocolType, SchemalessTimestampType timestampType) throws SQLException {
-        return false;
+    public boolean schemalessInsert(String[] records, SchemalessProtocolType protocolType, SchemalessTimestampType timestampType,
+                                    Long reqId) throws SQLException {
+        PooledConnection pooled = borrow(currentDb());
+        boolean broken = false;
+        try {
+            AbstractConnection conn = pooled.connection.unwrap(AbstractConnection.class);
+            conn.write(records, protocolType, timestampType, null, reqId);
+            return true;
+        } catch (SQLException e) {
+            broken = !isConnectionValid(pooled.connection);
+            throw e;
+        } finally {
+            release(pooled, broken);
+        }
     }
 
+    @Override
+    public <T> T withConnection(ConnectionCallback<T> callback) throws SQLException {
+        PooledConnection pooled = borrow(currentDb());
+        boolean broken = false;
+        try {
+            return callback.doWithConnection(pooled.connection);
+        } catch (SQLException e) {
+            broken = !isConnectionValid(pooled.connection);
+            throw e;
+        } finally {
+            release(pooled, broken);
+        }
+    }
 
-    public void close() {
+    @Override
+    public int schemalessInsertRaw(String lines, SchemalessProtocolType protocolType, SchemalessTimestampType timestampType,
+                                   Long reqId) throws SQLException {
+        PooledConnection pooled = borrow(currentDb());
+        boolean broken = false;
+        try {
+            AbstractConnection conn = pooled.connection.unwrap(AbstractConnection.class);
+            return conn.writeRaw(lines, protocolType, timestampType, null, reqId);
+        } catch (SQLException e) {
+            broken = !isConnectionValid(pooled.connection);
+            throw e;
+        } finally {
+            release(pooled, broken);
+        }
+    }
 
+    @Override
+    public int getVgroups() throws SQLException {
+        String db = currentDb();
+        PooledConnection pooled = borrow(db);
+        boolean broken = false;
+        try (Statement statement = pooled.connection.createStatement();
+             ResultSet rs = statement.executeQuery(
+                     "select `vgroups` from information_schema.ins_databases where name = '" + db + "'")) {
+            return rs.next() ? Math.max(1, rs.getInt(1)) : 1;
+        } catch (SQLException e) {
+            broken = !isConnectionValid(pooled.connection);
+            throw e;
+        } finally {
+            release(pooled, broken);
+        }
     }
 
+    /**
+     * discard the idle connections of the current database, the database is created again on next use
+     */
+    @Override
+    public void close() {
+        String db = dbName.get();
+        if (db == null) {
+            return;
+        }
+        knownDatabases.invalidate(db);
+        DatabasePool pool = pools.get(db);
+        if (pool != null) {
+            PooledConnection pooled;
+            while ((pooled = pool.idle.pollLast()) != null) {
+                destroy(pooled);
+            }
+        }
+    }
+
+    /**
+     * a new connection outside the pool which uses the database of the calling thread,
+     * the caller is responsible for closing it
+     */
     @Override
     public Connection getConnection() throws SQLException {
-        return null;
+        return open(currentDb());
     }
 
     @Override
     public void setDbName(String dbName) {
+        this.dbName.set(dbName);
+    }
+
+    @Override
+    public void shutdown() {
+        evictor.shutdownNow();
+        for (DatabasePool pool : pools.values()) {
+            PooledConnection pooled;
+            while ((pooled = pool.idle.pollLast()) != null) {
+                destroy(pooled);
+            }
+        }
+        pools.clear();
+    }
+
+    private String currentDb() throws SQLException {
+        String db = dbName.get();
+        if (db == null) {
+            throw new SQLException("database is not set for thread " + Thread.currentThread().getName());
+        }
+        return db;
+    }
+
+    private PooledConnection borrow(String db) throws SQLException {
+        DatabasePool pool = pools.computeIfAbsent(db, DatabasePool::new);
+        long deadline = System.currentTimeMillis() + borrowTimeoutMs;
+        try {
+            if (!pool.permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timeout waiting " + borrowTimeoutMs + " ms for a connection to database " + db);
+            }
+            PooledConnection pooled = pool.idle.pollFirst();
+            if (pooled != null) {
+                return pooled;
+            }
+            // open a new connection, close idle connections of other databases when the pool is full
+            while (!total.tryAcquire()) {
+                if (!evictOne()) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0 || !total.tryAcquire(remaining, TimeUnit.MILLISECONDS)) {
+                        pool.permits.release();
+                        throw new SQLException("Timeout waiting " + borrowTimeoutMs + " ms for a connection to database "
+                                + db + ", the pool is exhausted");
+                    }
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection to database " + db, e);
+        }
+        try {
+            return new PooledConnection(pool, open(db));
+        } catch (SQLException | RuntimeException e) {
+            total.release();
+            pool.permits.release();
+            throw e;
+        }
+    }
+
+    private void release(PooledConnection pooled, boolean broken) {
+        if (broken) {
+            log.info("The pooled connection to database {} is invalid, discard it", pooled.pool.db);
+            destroy(pooled);
+        } else {
+            pooled.lastUsedNanos = System.nanoTime();
+            pooled.pool.idle.offerFirst(pooled);
+        }
+        pooled.pool.permits.release();
+    }
+
+    private Connection open(String db) throws SQLException {
+        Connection connection = provider.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            if (knownDatabases.getIfPresent(db) == null) {
+                statement.execute("create database if not exists " + db + " precision 'ns'");
+                knownDatabases.put(db, Boolean.TRUE);
+            }
+            statement.execute("use " + db);
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    private void destroy(PooledConnection pooled) {
+        try {
+            pooled.connection.close();
+        } catch (SQLException e) {
+            log.warn("Ignoring error closing connection", e);
+        } finally {
+            total.release();
+        }
+    }
+
+    /**
+     * close the least recently used idle connection of any database
+     */
+    private boolean evictOne() {
+        PooledConnection oldest = null;
+        for (DatabasePool pool : pools.values()) {
+            PooledConnection candidate = pool.idle.peekLast();
+            if (candidate != null && (oldest == null || candidate.lastUsedNanos < oldest.lastUsedNanos)) {
+                oldest = candidate;
+            }
+        }
+        if (oldest != null && oldest.pool.idle.removeLastOccurrence(oldest)) {
+            destroy(oldest);
+            return true;
+        }
+        return false;
+    }
+
+    private void evictIdle() {
+        long now = System.nanoTime();
+        for (DatabasePool pool : pools.values()) {
+            for (PooledConnection pooled : pool.idle) {
+                if (now - pooled.lastUsedNanos >= idleTimeoutNanos && pool.idle.removeLastOccurrence(pooled)) {
+                    log.debug("close connection to database {} idle for more than {} ms", pool.db,
+                            TimeUnit.NANOSECONDS.toMillis(idleTimeoutNanos));
+                    destroy(pooled);
+                }
+            }
+        }
+    }
+
+    private boolean isConnectionValid(Connection connection) {
+        try (Statement statement = connection.createStatement()) {
+            if (statement.execute("SELECT 1")) {
+                try (ResultSet rs = statement.getResultSet()) {
+                    // do nothing with the result set
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            log.debug("Unable to check if the pooled connection is valid", e);
+            return false;
+        }
+    }
+
+    private class DatabasePool {
+        private final String db;
+        private final Deque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+        private final Semaphore permits = new Semaphore(maxPerDatabase);
 
+        private DatabasePool(String db) {
+            this.db = db;
+        }
     }
 
-    public void shutdown() throws Exception {
+    private static class PooledConnection {
+        private final DatabasePool pool;
+        private final Connection connection;
+        private volatile long lastUsedNanos;
 
+        private PooledConnection(DatabasePool pool, Connection connection) {
+            this.pool = pool;
+            this.connection = connection;
+            this.lastUsedNanos = System.nanoTime();
+        }
     }
 }
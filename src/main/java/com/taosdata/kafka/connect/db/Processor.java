@@ -24,7 +24,40 @@ public interface Processor {
      *
      * @return boolean
      */
-    boolean schemalessInsert(String[] records, SchemalessProtocolType protocolType, SchemalessTimestampType timestampType) throws SQLException;
+    default boolean schemalessInsert(String[] records, SchemalessProtocolType protocolType, SchemalessTimestampType timestampType) throws SQLException {
+        return schemalessInsert(records, protocolType, timestampType, null);
+    }
+
+    /**
+     * insert schemaless data with a request id, which TDengine logs with the request
+     *
+     * @param reqId request id, null to let the driver generate one
+     * @return boolean
+     */
+    boolean schemalessInsert(String[] records, SchemalessProtocolType protocolType, SchemalessTimestampType timestampType,
+                             Long reqId) throws SQLException;
+
+    /**
+     * insert schemaless data of several lines separated by line breaks
+     *
+     * @return number of lines written
+     */
+    default int schemalessInsertRaw(String lines, SchemalessProtocolType protocolType, SchemalessTimestampType timestampType) throws SQLException {
+        return schemalessInsertRaw(lines, protocolType, timestampType, null);
+    }
+
+    /**
+     * insert schemaless data of several lines separated by line breaks with a request id
+     *
+     * @param reqId request id, null to let the driver generate one
+     * @return number of lines written
+     */
+    default int schemalessInsertRaw(String lines, SchemalessProtocolType protocolType, SchemalessTimestampType timestampType,
+                                    Long reqId) throws SQLException {
+        String[] records = lines.split("\n");
+        schemalessInsert(records, protocolType, timestampType, reqId);
+        return records.length;
+    }
 
 
     /**
@@ -32,9 +65,30 @@ public interface Processor {
      */
     void close();
 
+    /**
+     * Closes this resource and stops background work, the processor can not be used anymore
+     */
+    default void shutdown() {
+        close();
+    }
+
 
     Connection getConnection() throws SQLException;
 
+    /**
+     * run the callback with a connection which uses the current database
+     *
+     * @return result of the callback
+     */
+    <T> T withConnection(ConnectionCallback<T> callback) throws SQLException;
+
+    /**
+     * @return number of vgroups of the current database, 1 if it is unknown
+     */
+    default int getVgroups() throws SQLException {
+        return 1;
+    }
+
     /**
      * create database (if not exists) and use this database
      *
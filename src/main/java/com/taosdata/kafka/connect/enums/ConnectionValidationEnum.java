@@ -0,0 +1,25 @@
+package com.taosdata.kafka.connect.enums;
+
+/**
+ * when to check a cached connection with a test query before using it
+ */
+public enum ConnectionValidationEnum {
+    /**
+     * check before every use
+     */
+    ALWAYS,
+    /**
+     * check only after the connection was idle for a while or an operation failed
+     */
+    IDLE,
+    ;
+
+    public static boolean isValid(String param) {
+        for (ConnectionValidationEnum value : ConnectionValidationEnum.values()) {
+            if (value.name().equalsIgnoreCase(param)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
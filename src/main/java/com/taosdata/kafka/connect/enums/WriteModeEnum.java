@@ -0,0 +1,33 @@
+package com.taosdata.kafka.connect.enums;
+
+/**
+ * how the sink writes records to TDengine
+ */
+public enum WriteModeEnum {
+    /**
+     * record values are line, telnet or json text written with schemaless insert
+     */
+    SCHEMALESS,
+    /**
+     * record values are Struct or Map, bound column by column to a prepared statement
+     */
+    STMT,
+    /**
+     * record values are Struct or Map, written with multi table insert statements
+     */
+    SQL,
+    /**
+     * record values are Struct or Map, staged to csv files and imported with insert ... file statements
+     */
+    FILE,
+    ;
+
+    public static boolean isValid(String param) {
+        for (WriteModeEnum value : WriteModeEnum.values()) {
+            if (value.name().equalsIgnoreCase(param)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,55 @@
+package com.taosdata.kafka.connect.sink;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * adjust the batch size by the observed write latency and errors (AIMD).
+ * the batch grows by a fixed step after each write faster than the target latency,
+ * and is halved after a slow or failed write.
+ */
+public class AdaptiveBatchSizer {
+    private static final int INCREASE_STEPS = 20;
+
+    private final int minSize;
+    private final int maxSize;
+    private final int increment;
+    private final long targetLatencyNanos;
+
+    private int size;
+
+    public AdaptiveBatchSizer(int minSize, int maxSize, long targetLatencyMs) {
+        this.minSize = Math.max(1, Math.min(minSize, maxSize));
+        this.maxSize = maxSize;
+        this.increment = Math.max(1, maxSize / INCREASE_STEPS);
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMs);
+        this.size = maxSize;
+    }
+
+    /**
+     * @return current batch size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param records      number of records written
+     * @param latencyNanos time the write took
+     */
+    public void onSuccess(int records, long latencyNanos) {
+        if (latencyNanos > targetLatencyNanos) {
+            decrease();
+        } else if (records >= size) {
+            // only grow when the batch was full, a small batch says nothing about a bigger one
+            size = Math.min(maxSize, size + increment);
+        }
+    }
+
+    public void onFailure() {
+        decrease();
+    }
+
+    private void decrease() {
+        size = Math.max(minSize, size / 2);
+    }
+}
@@ -0,0 +1,163 @@
+package com.taosdata.kafka.connect.sink;
+
+import org.apache.kafka.common.utils.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * trip when too many of the recent write attempts of a task failed or were slow.
+ * only connection errors and timeouts are failures, a write rejected because of its records was answered by TDengine.
+ * while it is open the task pauses its partitions and the writers hold their batches,
+ * after the open time it lets one probe batch at a time through:
+ * the probe that succeeds closes it, a probe that fails opens it again.
+ * the writers of a task share one circuit breaker.
+ */
+public class CircuitBreaker {
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int window;
+    private final double failureRatio;
+    private final long slowMs;
+    private final long openMs;
+    private final SinkTaskMetrics metrics;
+    private final Time time;
+
+    // outcomes of the last attempts, true if failed or slow
+    private final boolean[] outcomes;
+    private int next;
+    private int count;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long openedMs;
+    // the writer thread writing the probe batch while half open
+    private Thread probe;
+
+    public CircuitBreaker(SinkConfig config, SinkTaskMetrics metrics) {
+        this(config, metrics, Time.SYSTEM);
+    }
+
+    CircuitBreaker(SinkConfig config, SinkTaskMetrics metrics, Time time) {
+        this.window = config.getCircuitBreakerWindow();
+        this.failureRatio = config.getCircuitBreakerFailureRatio();
+        this.slowMs = config.getCircuitBreakerSlowMs();
+        this.openMs = config.getCircuitBreakerOpenMs();
+        this.metrics = metrics;
+        this.time = time;
+        this.outcomes = new boolean[window];
+    }
+
+    /**
+     * @param latencyMs time of the successful write
+     */
+    public synchronized void onSuccess(long latencyMs) {
+        boolean slow = slowMs > 0 && latencyMs >= slowMs;
+        if (state == State.HALF_OPEN) {
+            if (!isProbe()) {
+                return;
+            }
+            probe = null;
+            if (slow) {
+                open("a probe write took " + latencyMs + " ms");
+            } else {
+                log.info("TDengine recovered, closing the circuit breaker");
+                state = State.CLOSED;
+            }
+            return;
+        }
+        record(slow);
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            if (!isProbe()) {
+                return;
+            }
+            open("a probe write failed");
+            return;
+        }
+        record(true);
+    }
+
+    /**
+     * @return false if another writer is writing the probe, the outcome of an attempt started before is ignored
+     */
+    private boolean isProbe() {
+        return probe == null || probe == Thread.currentThread();
+    }
+
+    /**
+     * @return true if the calling writer may attempt a write: always while closed, never while open,
+     * and only for the writer of the probe while half open
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state()) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (probe == null) {
+                    probe = Thread.currentThread();
+                }
+                return probe == Thread.currentThread();
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * end the attempt of the calling writer, a probe which neither succeeded nor failed lets another writer probe
+     */
+    public synchronized void release() {
+        if (probe == Thread.currentThread()) {
+            probe = null;
+        }
+    }
+
+    private void record(boolean failed) {
+        if (count == window) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            count++;
+        }
+        outcomes[next] = failed;
+        next = (next + 1) % window;
+        if (failed) {
+            failures++;
+        }
+        if (state == State.CLOSED && count == window && failures >= failureRatio * window) {
+            open(failures + " of the last " + window + " writes failed or were slow");
+        }
+    }
+
+    private void open(String reason) {
+        log.warn("Opening the circuit breaker for {} ms: {}", openMs, reason);
+        state = State.OPEN;
+        openedMs = time.milliseconds();
+        probe = null;
+        next = 0;
+        count = 0;
+        failures = 0;
+        metrics.recordCircuitBreakerOpen();
+    }
+
+    /**
+     * @return the current state, an open circuit breaker becomes half open after the open time
+     */
+    public synchronized State state() {
+        if (state == State.OPEN && time.milliseconds() - openedMs >= openMs) {
+            log.info("Circuit breaker was open for {} ms, probing TDengine", openMs);
+            state = State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    public boolean isOpen() {
+        return state() == State.OPEN;
+    }
+}
@@ -0,0 +1,175 @@
+package com.taosdata.kafka.connect.sink;
+
+import com.taosdata.jdbc.TSDBConstants;
+import com.taosdata.kafka.connect.db.Processor;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.connect.errors.ConnectException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * write rows to the child tables of a super table by importing csv files through the super table:
+ * insert into stb(tbname, tags..., columns...) file '/dir/tdengine-1.csv'.
+ * the rows of all child tables of a batch are staged to the same csv file, one line per row with its table name
+ * and tags, so a batch of many small child tables is imported with few statements.
+ * a file is at most db.file.segment.bytes, larger batches are split into several segments,
+ * each segment is imported with one statement and deleted afterwards.
+ * the TDengine client reads the files, so the directory must be local to the task.
+ * a retry of the same rows skips the segments which have been imported by the failed attempt.
+ */
+public class CsvFileWriter implements RecordWriter {
+    private static final Logger log = LoggerFactory.getLogger(CsvFileWriter.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String TABLE_NAME_COLUMN = "tbname";
+
+    private final Processor processor;
+    private final Path dir;
+    private final int segmentBytes;
+
+    private final StringBuilder sql = new StringBuilder();
+    private final StringBuilder row = new StringBuilder();
+
+    public CsvFileWriter(SinkConfig config, Processor processor) {
+        if (config.getFileDir().isEmpty()) {
+            throw new ConfigException(SinkConfig.DB_FILE_DIR, "", "is required when "
+                    + SinkConfig.DB_WRITE_MODE + " is file");
+        }
+        this.processor = processor;
+        this.dir = Paths.get(config.getFileDir()).toAbsolutePath();
+        this.segmentBytes = config.getFileSegmentBytes();
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new ConnectException("Failed to create the csv directory " + dir, e);
+        }
+    }
+
+    @Override
+    public void write(List<TableRow> rows, StableSchema schema, WriteProgress progress) throws SQLException {
+        // the same rows of an equal schema are split into the same segments, also after the schema was reloaded
+        progress.layout(Arrays.asList(schema, rows.size()));
+        int segment = 0;
+        int first = 0;
+        Segment staged = null;
+        long bytes = 0;
+        try {
+            for (int i = 0; i < rows.size(); i++) {
+                byte[] line = csvLine(rows.get(i), schema);
+                if (bytes > 0 && bytes + line.length > segmentBytes) {
+                    importSegment(staged, schema, segment++, progress, first, i);
+                    staged = null;
+                    bytes = 0;
+                    first = i;
+                }
+                if (!progress.isWritten(segment)) {
+                    if (staged == null) {
+                        staged = new Segment(Files.createTempFile(dir, "tdengine-", ".csv"));
+                    }
+                    staged.out.write(line);
+                }
+                bytes += line.length;
+            }
+            if (bytes > 0) {
+                importSegment(staged, schema, segment, progress, first, rows.size());
+            }
+            staged = null;
+        } catch (IOException e) {
+            throw new ConnectException("Failed to stage csv file in " + dir, e);
+        } finally {
+            if (staged != null) {
+                staged.delete();
+            }
+        }
+    }
+
+    /**
+     * import a staged segment and delete it, a segment imported by an earlier attempt is not staged again
+     *
+     * @param first index of the first row of the segment
+     * @param end   index after the last row of the segment
+     */
+    private void importSegment(Segment staged, StableSchema schema, int segment, WriteProgress progress,
+                               int first, int end) throws SQLException, IOException {
+        if (staged == null) {
+            log.trace("skip segment {}, it has been imported", segment);
+            return;
+        }
+        try {
+            staged.out.close();
+            appendHeader(schema);
+            SqlWriter.appendValue(sql, staged.file.toString(), TSDBConstants.TSDB_DATA_TYPE_NCHAR);
+            log.trace("import {} of {} bytes", staged.file, Files.size(staged.file));
+            processor.execute(sql.toString());
+            progress.written(segment, first, end);
+        } finally {
+            staged.delete();
+        }
+    }
+
+    /**
+     * the fields of each line are the table name, the tags and the columns of the super table
+     */
+    private void appendHeader(StableSchema schema) {
+        sql.setLength(0);
+        sql.append("insert into ").append(schema.getName()).append('(').append(TABLE_NAME_COLUMN);
+        for (StableSchema.Column tag : schema.getTags()) {
+            sql.append(',');
+            SqlWriter.appendName(sql, tag.getName());
+        }
+        for (StableSchema.Column column : schema.getColumns()) {
+            sql.append(',');
+            SqlWriter.appendName(sql, column.getName());
+        }
+        sql.append(") file ");
+    }
+
+    /**
+     * @return the table name, tags and values of the row as a line of csv, the values are written like sql literals
+     */
+    private byte[] csvLine(TableRow tableRow, StableSchema schema) {
+        row.setLength(0);
+        SqlWriter.appendValue(row, tableRow.getTable(), TSDBConstants.TSDB_DATA_TYPE_BINARY);
+        appendValues(tableRow.getTags(), schema.getTags());
+        appendValues(tableRow.getValues(), schema.getColumns());
+        // values with line breaks were rejected by the validator
+        row.append('\n');
+        return row.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void appendValues(Object[] values, List<StableSchema.Column> columns) {
+        for (int i = 0; i < values.length; i++) {
+            row.append(',');
+            SqlWriter.appendValue(row, values[i], columns.get(i).getType());
+        }
+    }
+
+    private static class Segment {
+        private final Path file;
+        private final OutputStream out;
+
+        private Segment(Path file) throws IOException {
+            this.file = file;
+            this.out = new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE);
+        }
+
+        private void delete() {
+            try {
+                out.close();
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Failed to delete staged csv file {}", file, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.taosdata.kafka.connect.sink;
+
+import org.apache.kafka.connect.sink.SinkRecord;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * merge the json values of a batch into json arrays for the json schemaless protocol.
+ * a value is a json object or an array of them, arrays are unwrapped so their elements join the merged array.
+ * values are copied as they are without parsing them, invalid json is left for TDengine to reject.
+ * an array is closed when the next value would make it larger than max bytes, strings are counted by chars.
+ * the buffers are reused by the batches of one writer thread.
+ */
+class JsonArrayBuffer {
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+    // do not keep the buffer of an exceptionally large batch
+    private static final int MAX_RETAINED_CAPACITY = 8 * 1024 * 1024;
+
+    private final int maxBytes;
+    private byte[] bytes = new byte[INITIAL_CAPACITY];
+    private StringBuilder chars = new StringBuilder(INITIAL_CAPACITY);
+    // the index after the last record of each array of the last merge
+    private final List<Integer> ends = new ArrayList<>();
+
+    JsonArrayBuffer(int maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return json arrays holding the values of the records in order
+     */
+    List<String> merge(List<SinkRecord> records) {
+        ends.clear();
+        for (SinkRecord record : records) {
+            if (!(record.value() instanceof byte[])) {
+                return mergeChars(records);
+            }
+        }
+        return mergeBytes(records);
+    }
+
+    private List<String> mergeBytes(List<SinkRecord> records) {
+        List<String> arrays = new ArrayList<>();
+        int position = 0;
+        for (int i = 0; i < records.size(); i++) {
+            byte[] value = (byte[]) records.get(i).value();
+            int start = 0;
+            int end = value.length;
+            while (start < end && isWhitespace(value[start])) {
+                start++;
+            }
+            while (end > start && isWhitespace(value[end - 1])) {
+                end--;
+            }
+            if (end - start >= 2 && value[start] == '[' && value[end - 1] == ']') {
+                start++;
+                end--;
+                while (start < end && isWhitespace(value[start])) {
+                    start++;
+                }
+                while (end > start && isWhitespace(value[end - 1])) {
+                    end--;
+                }
+            }
+            int length = end - start;
+            if (length == 0) {
+                continue;
+            }
+            if (position > 0 && position + length + 2 > maxBytes) {
+                arrays.add(closeBytes(position));
+                ends.add(i);
+                position = 0;
+            }
+            if (bytes.length < position + length + 2) {
+                byte[] larger = new byte[(int) Math.max(position + length + 2L,
+                        Math.min(Integer.MAX_VALUE - 8L, bytes.length * 2L))];
+                System.arraycopy(bytes, 0, larger, 0, position);
+                bytes = larger;
+            }
+            bytes[position] = (byte) (position == 0 ? '[' : ',');
+            position++;
+            System.arraycopy(value, start, bytes, position, length);
+            position += length;
+        }
+        if (position > 0) {
+            arrays.add(closeBytes(position));
+            ends.add(records.size());
+        }
+        if (bytes.length > MAX_RETAINED_CAPACITY) {
+            bytes = new byte[INITIAL_CAPACITY];
+        }
+        return arrays;
+    }
+
+    private String closeBytes(int position) {
+        bytes[position++] = ']';
+        return new String(bytes, 0, position, StandardCharsets.UTF_8);
+    }
+
+    private List<String> mergeChars(List<SinkRecord> records) {
+        List<String> arrays = new ArrayList<>();
+        chars.setLength(0);
+        for (int i = 0; i < records.size(); i++) {
+            Object object = records.get(i).value();
+            String value = object instanceof String ? (String) object : SinkWriter.toLine(object);
+            int start = 0;
+            int end = value.length();
+            while (start < end && Character.isWhitespace(value.charAt(start))) {
+                start++;
+            }
+            while (end > start && Character.isWhitespace(value.charAt(end - 1))) {
+                end--;
+            }
+            if (end - start >= 2 && value.charAt(start) == '[' && value.charAt(end - 1) == ']') {
+                start++;
+                end--;
+                while (start < end && Character.isWhitespace(value.charAt(start))) {
+                    start++;
+                }
+                while (end > start && Character.isWhitespace(value.charAt(end - 1))) {
+                    end--;
+                }
+            }
+            int length = end - start;
+            if (length == 0) {
+                continue;
+            }
+            if (chars.length() > 0 && chars.length() + length + 2 > maxBytes) {
+                arrays.add(chars.append(']').toString());
+                ends.add(i);
+                chars.setLength(0);
+            }
+            chars.append(chars.length() == 0 ? '[' : ',').append(value, start, end);
+        }
+        if (chars.length() > 0) {
+            arrays.add(chars.append(']').toString());
+            ends.add(records.size());
+        }
+        if (chars.capacity() > MAX_RETAINED_CAPACITY) {
+            chars = new StringBuilder(INITIAL_CAPACITY);
+        }
+        return arrays;
+    }
+
+    /**
+     * @param array index of an array of the last merge
+     * @return the index after the last record of the array, the records of an array follow those of the one before
+     */
+    int end(int array) {
+        return ends.get(array);
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+}
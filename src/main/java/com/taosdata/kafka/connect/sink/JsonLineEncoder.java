@@ -0,0 +1,466 @@
+package com.taosdata.kafka.connect.sink;
+
+import com.taosdata.jdbc.enums.SchemalessTimestampType;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.sink.SinkRecord;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * encode flat json objects as lines of the line protocol: measurement,tag=value field=value timestamp.
+ * the json text is scanned once and written to reused string builders, without building a tree of it.
+ * the fields of the json object are mapped by their names: the measurement, tags, fields and timestamp,
+ * nested objects and arrays can not be written, they are skipped unless they are mapped.
+ * the names of the fields are cached with their role and escaped name, as the objects of a topic share them.
+ * an encoder is used by one writer thread.
+ */
+class JsonLineEncoder {
+    private static final char[] MEASUREMENT_ESCAPES = {',', ' '};
+    private static final char[] NAME_ESCAPES = {',', '=', ' '};
+    // power of two
+    private static final int NAME_BUCKETS = 256;
+    // names beyond the limit are not cached, e.g. when the field names are generated
+    private static final int MAX_CACHED_NAMES = 4096;
+
+    private enum Role {
+        MEASUREMENT, TAG, FIELD, TIMESTAMP, SKIP
+    }
+
+    /**
+     * a field name of the json objects, chained in its bucket of the cache
+     */
+    private static final class Name {
+        private final String name;
+        private final int hash;
+        // null when the name is not mapped
+        private final Role role;
+        private final String escaped;
+        private Name next;
+
+        private Name(String name, int hash, Role role) {
+            this.name = name;
+            this.hash = hash;
+            this.role = role;
+            StringBuilder sb = new StringBuilder(name.length());
+            appendEscaped(sb, name, NAME_ESCAPES);
+            this.escaped = sb.toString();
+        }
+    }
+
+    private final String measurement;
+    private final Map<String, Role> roles = new HashMap<>();
+    // fields which are not mapped are written as fields when no fields are listed
+    private final Role unmapped;
+    private final boolean integers;
+    private final Name[] names = new Name[NAME_BUCKETS];
+    private int cachedNames;
+
+    private final StringBuilder line = new StringBuilder();
+    private final StringBuilder tags = new StringBuilder();
+    private final StringBuilder fields = new StringBuilder();
+    private final StringBuilder key = new StringBuilder();
+    private final StringBuilder text = new StringBuilder();
+    private final StringBuilder measurementValue = new StringBuilder();
+
+    private String json;
+    private int pos;
+
+    JsonLineEncoder(SinkConfig config) {
+        this.measurement = config.getJsonLineMeasurement().isEmpty() ? null : config.getJsonLineMeasurement();
+        for (String field : config.getJsonLineFields()) {
+            roles.put(field, Role.FIELD);
+        }
+        for (String tag : config.getJsonLineTags()) {
+            roles.put(tag, Role.TAG);
+        }
+        if (!config.getJsonLineTimestampField().isEmpty()) {
+            roles.put(config.getJsonLineTimestampField(), Role.TIMESTAMP);
+        }
+        if (!config.getJsonLineMeasurementField().isEmpty()) {
+            roles.put(config.getJsonLineMeasurementField(), Role.MEASUREMENT);
+        }
+        this.unmapped = config.getJsonLineFields().isEmpty() ? Role.FIELD : Role.SKIP;
+        this.integers = config.isJsonLineIntegers();
+    }
+
+    /**
+     * @return multiplier of record timestamps in ms to the precision of the lines
+     */
+    private static long scale(SchemalessTimestampType type) {
+        switch (type) {
+            case MILLI_SECONDS:
+                return 1;
+            case MICRO_SECONDS:
+                return 1_000;
+            default:
+                // line protocol timestamps are nanoseconds by default
+                return 1_000_000;
+        }
+    }
+
+    /**
+     * @param precision precision of the lines, used for record timestamps
+     * @return the line of the json object of the record value
+     * @throws DataException if the value is not a json object or does not match the mapping
+     */
+    String encode(SinkRecord record, SchemalessTimestampType precision) {
+        Object value = record.value();
+        if (value instanceof byte[]) {
+            json = new String((byte[]) value, StandardCharsets.UTF_8);
+        } else if (value instanceof String) {
+            json = (String) value;
+        } else {
+            throw new DataException("Value of " + coordinates(record) + " is not json text: "
+                    + (value == null ? null : value.getClass().getName()));
+        }
+        try {
+            return encode(record.timestamp(), precision);
+        } catch (DataException e) {
+            throw new DataException("Can not encode " + coordinates(record) + " as a line: " + e.getMessage());
+        } finally {
+            json = null;
+        }
+    }
+
+    private String encode(Long recordTimestamp, SchemalessTimestampType precision) {
+        pos = 0;
+        tags.setLength(0);
+        fields.setLength(0);
+        measurementValue.setLength(0);
+        if (measurement != null) {
+            measurementValue.append(measurement);
+        }
+        long timestamp = 0;
+        boolean hasTimestamp = false;
+
+        skipWhitespace();
+        expect('{');
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+        } else {
+            while (true) {
+                readString(key);
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                Name name = name(key);
+                Role role = name.role;
+                switch (role == null ? unmapped : role) {
+                    case MEASUREMENT:
+                        if (readScalar() == 's') {
+                            measurementValue.setLength(0);
+                            measurementValue.append(text);
+                        }
+                        break;
+                    case TAG:
+                        if (readScalar() != 'n') {
+                            tags.append(',').append(name.escaped).append('=');
+                            appendEscaped(tags, text, NAME_ESCAPES);
+                        }
+                        break;
+                    case FIELD:
+                        char first = peek();
+                        if (role == null && (first == '{' || first == '[')) {
+                            skipValue();
+                        } else {
+                            appendField(name);
+                        }
+                        break;
+                    case TIMESTAMP:
+                        char type = readScalar();
+                        if (type == 'i') {
+                            timestamp = parseLong(text);
+                            hasTimestamp = true;
+                        } else if (type != 'n') {
+                            throw new DataException("timestamp " + key + " must be an integer");
+                        }
+                        break;
+                    default:
+                        skipValue();
+                }
+                skipWhitespace();
+                char c = next();
+                if (c == '}') {
+                    break;
+                }
+                if (c != ',') {
+                    throw unexpected(c);
+                }
+                skipWhitespace();
+            }
+        }
+        skipWhitespace();
+        if (pos < json.length()) {
+            throw unexpected(json.charAt(pos));
+        }
+
+        if (measurementValue.length() == 0) {
+            throw new DataException("no measurement");
+        }
+        if (fields.length() == 0) {
+            throw new DataException("no fields");
+        }
+        if (!hasTimestamp) {
+            if (recordTimestamp == null) {
+                throw new DataException("no timestamp");
+            }
+            timestamp = recordTimestamp * scale(precision);
+        }
+        line.setLength(0);
+        appendEscaped(line, measurementValue, MEASUREMENT_ESCAPES);
+        line.append(tags).append(' ').append(fields).append(' ').append(timestamp);
+        return line.toString();
+    }
+
+    /**
+     * @return the cached name equal to the key, the key is only copied to a string when it is not cached yet
+     */
+    private Name name(StringBuilder key) {
+        // the same hash as String.hashCode
+        int hash = 0;
+        for (int i = 0; i < key.length(); i++) {
+            hash = 31 * hash + key.charAt(i);
+        }
+        int bucket = (hash ^ hash >>> 16) & (NAME_BUCKETS - 1);
+        for (Name name = names[bucket]; name != null; name = name.next) {
+            if (name.hash == hash && name.name.contentEquals(key)) {
+                return name;
+            }
+        }
+        String text = key.toString();
+        Name name = new Name(text, hash, roles.get(text));
+        if (cachedNames < MAX_CACHED_NAMES) {
+            name.next = names[bucket];
+            names[bucket] = name;
+            cachedNames++;
+        }
+        return name;
+    }
+
+    private void appendField(Name name) {
+        char type = readScalar();
+        if (type == 'n') {
+            return;
+        }
+        if (fields.length() > 0) {
+            fields.append(',');
+        }
+        fields.append(name.escaped).append('=');
+        switch (type) {
+            case 's':
+                fields.append('"');
+                for (int i = 0; i < text.length(); i++) {
+                    char c = text.charAt(i);
+                    if (c == '"' || c == '\\') {
+                        fields.append('\\');
+                    }
+                    fields.append(c);
+                }
+                fields.append('"');
+                break;
+            case 'i':
+                fields.append(text);
+                if (integers) {
+                    fields.append("i64");
+                }
+                break;
+            default:
+                // floats and booleans
+                fields.append(text);
+        }
+    }
+
+    /**
+     * read a string, number, boolean or null into text
+     *
+     * @return s for a string, i for an integer, f for other numbers, b for a boolean, n for null
+     */
+    private char readScalar() {
+        char c = peek();
+        text.setLength(0);
+        if (c == '"') {
+            readString(text);
+            return 's';
+        }
+        if (c == 't' || c == 'f' || c == 'n') {
+            String literal = c == 't' ? "true" : c == 'f' ? "false" : "null";
+            if (!json.startsWith(literal, pos)) {
+                throw unexpected(c);
+            }
+            pos += literal.length();
+            text.append(literal);
+            return c == 'n' ? 'n' : 'b';
+        }
+        if (c == '-' || c >= '0' && c <= '9') {
+            boolean integer = true;
+            int start = pos;
+            while (pos < json.length()) {
+                char d = json.charAt(pos);
+                if (d == '.' || d == 'e' || d == 'E') {
+                    integer = false;
+                } else if (!(d >= '0' && d <= '9' || d == '-' || d == '+')) {
+                    break;
+                }
+                pos++;
+            }
+            text.append(json, start, pos);
+            return integer ? 'i' : 'f';
+        }
+        if (c == '{' || c == '[') {
+            throw new DataException(key + " must not be an object or array");
+        }
+        throw unexpected(c);
+    }
+
+    private void readString(StringBuilder out) {
+        out.setLength(0);
+        expect('"');
+        while (true) {
+            char c = next();
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                c = next();
+                switch (c) {
+                    case 'b':
+                        c = '\b';
+                        break;
+                    case 'f':
+                        c = '\f';
+                        break;
+                    case 'n':
+                        c = '\n';
+                        break;
+                    case 'r':
+                        c = '\r';
+                        break;
+                    case 't':
+                        c = '\t';
+                        break;
+                    case 'u':
+                        if (pos + 4 > json.length()) {
+                            throw new DataException("invalid unicode escape at " + pos);
+                        }
+                        try {
+                            c = (char) Integer.parseInt(json.substring(pos, pos + 4), 16);
+                        } catch (NumberFormatException e) {
+                            throw new DataException("invalid unicode escape at " + pos);
+                        }
+                        pos += 4;
+                        break;
+                    default:
+                        // quote, back slash and slash stand for themselves
+                }
+            }
+            if (c == '\n' || c == '\r') {
+                throw new DataException("line breaks can not be written as line protocol");
+            }
+            out.append(c);
+        }
+    }
+
+    /**
+     * skip a value of a field which is not written, it may be an object or array
+     */
+    private void skipValue() {
+        char c = peek();
+        if (c != '{' && c != '[') {
+            if (c == '"') {
+                skipString();
+            } else {
+                readScalar();
+            }
+            return;
+        }
+        int depth = 0;
+        do {
+            c = peek();
+            if (c == '"') {
+                skipString();
+                continue;
+            }
+            pos++;
+            if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+            }
+        } while (depth > 0);
+    }
+
+    private void skipString() {
+        pos++;
+        while (true) {
+            char c = next();
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                next();
+            }
+        }
+    }
+
+    private static long parseLong(CharSequence digits) {
+        try {
+            return Long.parseLong(digits.toString());
+        } catch (NumberFormatException e) {
+            throw new DataException("invalid integer " + digits);
+        }
+    }
+
+    private static void appendEscaped(StringBuilder sb, CharSequence value, char[] escapes) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            for (char escape : escapes) {
+                if (c == escape) {
+                    sb.append('\\');
+                    break;
+                }
+            }
+            sb.append(c);
+        }
+    }
+
+    private void skipWhitespace() {
+        while (pos < json.length()) {
+            char c = json.charAt(pos);
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private char peek() {
+        if (pos >= json.length()) {
+            throw new DataException("unexpected end of json");
+        }
+        return json.charAt(pos);
+    }
+
+    private char next() {
+        char c = peek();
+        pos++;
+        return c;
+    }
+
+    private void expect(char expected) {
+        char c = next();
+        if (c != expected) {
+            throw unexpected(c);
+        }
+    }
+
+    private DataException unexpected(char c) {
+        return new DataException("unexpected '" + c + "' near " + pos + " of json");
+    }
+
+    private static String coordinates(SinkRecord record) {
+        return "record " + record.topic() + "-" + record.kafkaPartition() + "-" + record.kafkaOffset();
+    }
+}
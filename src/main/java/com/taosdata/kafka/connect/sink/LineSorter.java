@@ -0,0 +1,187 @@
+package com.taosdata.kafka.connect.sink;
+
+import com.taosdata.jdbc.enums.SchemalessProtocolType;
+import org.apache.kafka.connect.sink.SinkRecord;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * reorder a batch of line or telnet records by child table and timestamp,
+ * so that rows of the same child table reach TDengine together and in time order.
+ * the child table is identified by the measurement and tag set as written in the line, without a full parse.
+ * the sort is stable, records with the same table and timestamp keep their order.
+ */
+public class LineSorter {
+
+    private LineSorter() {
+    }
+
+    public static boolean isSupported(SchemalessProtocolType protocol) {
+        return protocol == SchemalessProtocolType.LINE || protocol == SchemalessProtocolType.TELNET;
+    }
+
+    public static List<SinkRecord> sort(List<SinkRecord> records, SchemalessProtocolType protocol) {
+        if (records.size() < 2 || !isSupported(protocol)) {
+            return records;
+        }
+        SortKey[] keys = new SortKey[records.size()];
+        for (int i = 0; i < keys.length; i++) {
+            SinkRecord record = records.get(i);
+            keys[i] = key(record, SinkWriter.toLine(record.value()), protocol);
+        }
+        Arrays.sort(keys);
+        List<SinkRecord> sorted = new ArrayList<>(keys.length);
+        for (SortKey key : keys) {
+            sorted.add(key.record);
+        }
+        return sorted;
+    }
+
+    /**
+     * @return a stable hash of the child table of the line, lines of one child table have the same hash
+     */
+    public static int tableHash(String line, SchemalessProtocolType protocol) {
+        return key(null, line, protocol).tableHash();
+    }
+
+    static SortKey key(SinkRecord record, String line, SchemalessProtocolType protocol) {
+        return protocol == SchemalessProtocolType.LINE ? lineKey(record, line) : telnetKey(record, line);
+    }
+
+    /**
+     * measurement[,tag_set] field_set [timestamp]
+     */
+    static SortKey lineKey(SinkRecord record, String line) {
+        int keyEnd = nextSpace(line, 0, false);
+        int fieldsEnd = nextSpace(line, keyEnd + 1, true);
+        long ts = fieldsEnd < line.length() ? parseLong(line, fieldsEnd + 1, line.length()) : Long.MIN_VALUE;
+        return new SortKey(record, line, 0, keyEnd, ts);
+    }
+
+    /**
+     * metric timestamp value tagk1=tagv1 ...
+     * the table is identified by the metric and the tags
+     */
+    static SortKey telnetKey(SinkRecord record, String line) {
+        int metricEnd = nextSpace(line, 0, false);
+        int tsEnd = nextSpace(line, metricEnd + 1, false);
+        int valueEnd = nextSpace(line, tsEnd + 1, false);
+        long ts = metricEnd < line.length() ? parseLong(line, metricEnd + 1, tsEnd) : Long.MIN_VALUE;
+        SortKey key = new SortKey(record, line, 0, metricEnd, ts);
+        key.tagsFrom = Math.min(valueEnd + 1, line.length());
+        return key;
+    }
+
+    /**
+     * @return index of the next space which is not escaped (and not quoted), or the line length
+     */
+    private static int nextSpace(String line, int from, boolean quoted) {
+        boolean inQuote = false;
+        for (int i = from; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (quoted && c == '"') {
+                inQuote = !inQuote;
+            } else if (c == ' ' && !inQuote) {
+                return i;
+            }
+        }
+        return line.length();
+    }
+
+    /**
+     * @return the number, or Long.MIN_VALUE if the region is not an integer
+     */
+    private static long parseLong(String line, int begin, int end) {
+        end = trimEnd(line, begin, end);
+        if (begin >= end) {
+            return Long.MIN_VALUE;
+        }
+        long result = 0;
+        for (int i = begin; i < end; i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9') {
+                return Long.MIN_VALUE;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    private static int trimEnd(String line, int begin, int end) {
+        while (end > begin && Character.isWhitespace(line.charAt(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+
+    static class SortKey implements Comparable<SortKey> {
+        private final SinkRecord record;
+        private final String line;
+        private final int keyBegin;
+        private final int keyEnd;
+        private final long ts;
+        // telnet tags at the end of the line, part of the table key
+        private int tagsFrom = -1;
+
+        SortKey(SinkRecord record, String line, int keyBegin, int keyEnd, long ts) {
+            this.record = record;
+            this.line = line;
+            this.keyBegin = keyBegin;
+            this.keyEnd = keyEnd;
+            this.ts = ts;
+        }
+
+        long timestamp() {
+            return ts;
+        }
+
+        int tableHash() {
+            int h = hashRegion(0, line, keyBegin, keyEnd);
+            if (tagsFrom >= 0) {
+                h = hashRegion(h, line, tagsFrom, trimEnd(line, tagsFrom, line.length()));
+            }
+            // murmur3 finalizer, spread the bits of the string hash
+            h ^= h >>> 16;
+            h *= 0x85ebca6b;
+            h ^= h >>> 13;
+            h *= 0xc2b2ae35;
+            h ^= h >>> 16;
+            return h;
+        }
+
+        private static int hashRegion(int h, String line, int begin, int end) {
+            for (int i = begin; i < end; i++) {
+                h = 31 * h + line.charAt(i);
+            }
+            return h;
+        }
+
+        @Override
+        public int compareTo(SortKey o) {
+            int c = compareRegion(line, keyBegin, keyEnd, o.line, o.keyBegin, o.keyEnd);
+            if (c == 0 && tagsFrom >= 0) {
+                c = compareRegion(line, tagsFrom, trimEnd(line, tagsFrom, line.length()),
+                        o.line, o.tagsFrom, trimEnd(o.line, o.tagsFrom, o.line.length()));
+            }
+            return c != 0 ? c : Long.compare(ts, o.ts);
+        }
+
+        private static int compareRegion(String a, int aBegin, int aEnd, String b, int bBegin, int bEnd) {
+            int aLen = aEnd - aBegin;
+            int bLen = bEnd - bBegin;
+            int len = Math.min(aLen, bLen);
+            for (int i = 0; i < len; i++) {
+                char ca = a.charAt(aBegin + i);
+                char cb = b.charAt(bBegin + i);
+                if (ca != cb) {
+                    return ca - cb;
+                }
+            }
+            return aLen - bLen;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.taosdata.kafka.connect.sink;
+
+import com.taosdata.jdbc.TSDBConstants;
+import com.taosdata.kafka.connect.db.Processor;
+import com.taosdata.kafka.connect.util.SQLUtils;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.utils.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * keep the next offset of each topic partition in a super table of TDengine, so a restarted task
+ * continues after the last written batch instead of the last offset commit of kafka connect.
+ * each task of a connector has a child table per topic partition it wrote, the largest offset of all tasks
+ * is the offset to continue from. a task which flushes late after its partition was reassigned only writes
+ * its own table, so it can not overwrite the offset stored by the new owner.
+ * the writers only record the offsets of their written batches, the latest offset of each partition
+ * is stored every offsets.storage.interval.ms and when kafka connect commits offsets.
+ * each store overwrites the row of the current day, so a child table has at most one row per day.
+ * the processor is only used by the offset store.
+ */
+public class OffsetStore implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(OffsetStore.class);
+
+    private static final long DAY_MS = TimeUnit.DAYS.toMillis(1);
+
+    private final Processor processor;
+    private final String database;
+    private final String stable;
+    private final String connector;
+    // the task id, the owner of the offsets it stores
+    private final int task;
+    private final Time time;
+
+    // offsets of the written batches which have not been stored yet
+    private final Map<TopicPartition, Long> pending = new ConcurrentHashMap<>();
+    // multiplier from milliseconds to the database precision
+    private long msFactor = 1L;
+    private ScheduledExecutorService executor;
+
+    public OffsetStore(Processor processor, String database, String stable, String connector, int task) {
+        this(processor, database, stable, connector, task, Time.SYSTEM);
+    }
+
+    OffsetStore(Processor processor, String database, String stable, String connector, int task, Time time) {
+        this.processor = processor;
+        this.database = database;
+        this.stable = database + "." + stable;
+        this.connector = connector;
+        this.task = task;
+        this.time = time;
+    }
+
+    /**
+     * create the database and the super table if they do not exist
+     */
+    public void init() throws SQLException {
+        processor.setDbName(database);
+        processor.execute("create stable if not exists " + stable
+                + " (ts timestamp, kafka_offset bigint)"
+                + " tags (kafka_connector nchar(256), kafka_topic nchar(256), kafka_partition int, kafka_task int)");
+        String precision = processor.withConnection(connection -> {
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(SQLUtils.databasePrecisionSql(database))) {
+                return rs.next() ? rs.getString(1) : "ms";
+            }
+        });
+        msFactor = "ns".equalsIgnoreCase(precision) ? 1_000_000L : "us".equalsIgnoreCase(precision) ? 1_000L : 1L;
+    }
+
+    /**
+     * store the recorded offsets in background
+     *
+     * @param intervalMs store interval, 0 means only when kafka connect commits offsets
+     */
+    public void start(long intervalMs) {
+        if (intervalMs <= 0 || executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "tdengine-offset-store");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flushQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * remember the next offsets of a written batch, they are stored by the next flush
+     *
+     * @param offsets next offset to read of each topic partition
+     */
+    public void record(Map<TopicPartition, Long> offsets) {
+        for (Map.Entry<TopicPartition, Long> entry : offsets.entrySet()) {
+            pending.merge(entry.getKey(), entry.getValue(), Math::max);
+        }
+    }
+
+    /**
+     * store the latest recorded offset of each partition, offsets which fail to be stored are kept for the next flush
+     */
+    public synchronized void flush() throws SQLException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        for (TopicPartition partition : pending.keySet()) {
+            Long offset = pending.remove(partition);
+            if (offset != null) {
+                offsets.put(partition, offset);
+            }
+        }
+        try {
+            store(offsets);
+        } catch (SQLException | RuntimeException e) {
+            record(offsets);
+            throw e;
+        }
+    }
+
+    /**
+     * a failure is only logged, the offsets committed by kafka connect are still used then
+     */
+    public void flushQuietly() {
+        try {
+            flush();
+        } catch (SQLException | RuntimeException e) {
+            log.warn("Failed to store offsets in TDengine", e);
+        }
+    }
+
+    /**
+     * @param offsets next offset to read of each topic partition
+     */
+    void store(Map<TopicPartition, Long> offsets) throws SQLException {
+        if (offsets.isEmpty()) {
+            return;
+        }
+        // all stores of a day overwrite the same row
+        long ts = time.milliseconds() / DAY_MS * DAY_MS * msFactor;
+        StringBuilder sql = new StringBuilder("insert into");
+        for (Map.Entry<TopicPartition, Long> entry : offsets.entrySet()) {
+            TopicPartition partition = entry.getKey();
+            sql.append(' ').append(database).append('.').append(tableName(partition))
+                    .append(" using ").append(stable).append(" tags(");
+            SqlWriter.appendValue(sql, connector, TSDBConstants.TSDB_DATA_TYPE_NCHAR);
+            sql.append(',');
+            SqlWriter.appendValue(sql, partition.topic(), TSDBConstants.TSDB_DATA_TYPE_NCHAR);
+            sql.append(',').append(partition.partition()).append(',').append(task)
+                    .append(") values(").append(ts).append(',').append(entry.getValue().longValue()).append(')');
+        }
+        processor.execute(sql.toString());
+    }
+
+    /**
+     * offsets only grow, so the largest offset stored by any task which owned a partition is where
+     * its records are written up to
+     *
+     * @return the stored next offsets of the partitions, partitions without a stored offset are left out
+     */
+    public Map<TopicPartition, Long> load(Collection<TopicPartition> partitions) throws SQLException {
+        StringBuilder sql = new StringBuilder("select max(kafka_offset), kafka_topic, kafka_partition from ")
+                .append(stable).append(" where kafka_connector = ");
+        SqlWriter.appendValue(sql, connector, TSDBConstants.TSDB_DATA_TYPE_NCHAR);
+        sql.append(" partition by kafka_topic, kafka_partition");
+        Set<TopicPartition> wanted = new HashSet<>(partitions);
+        Map<TopicPartition, Long> offsets = processor.withConnection(connection -> {
+            Map<TopicPartition, Long> result = new HashMap<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(sql.toString())) {
+                while (rs.next()) {
+                    long offset = rs.getLong(1);
+                    TopicPartition partition = new TopicPartition(rs.getString(2), rs.getInt(3));
+                    if (wanted.contains(partition)) {
+                        result.put(partition, offset);
+                    }
+                }
+            }
+            return result;
+        });
+        log.debug("Loaded offsets {} of connector {} from {}", offsets, connector, stable);
+        return offsets;
+    }
+
+    /**
+     * table names are derived from a hash, topic names may be longer than a table name can be
+     */
+    String tableName(TopicPartition partition) {
+        String key = connector + '\0' + partition.topic() + '\0' + partition.partition() + '\0' + task;
+        return "kafka_offset_"
+                + UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString().replace("-", "");
+    }
+
+    /**
+     * store the remaining offsets and close the connection
+     */
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        flushQuietly();
+        processor.shutdown();
+    }
+}
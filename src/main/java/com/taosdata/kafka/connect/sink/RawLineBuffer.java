@@ -0,0 +1,76 @@
+package com.taosdata.kafka.connect.sink;
+
+import org.apache.kafka.connect.sink.SinkRecord;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * join the values of a batch into one payload separated by line breaks, for the raw schemaless write.
+ * byte[] values are copied into a reused byte buffer and decoded once for the whole batch,
+ * string values are appended to a reused string builder, so no string is created per record.
+ * the buffers are reused by the batches of one writer thread.
+ */
+class RawLineBuffer {
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+    // do not keep the buffer of an exceptionally large batch
+    private static final int MAX_RETAINED_CAPACITY = 8 * 1024 * 1024;
+
+    private byte[] bytes = new byte[INITIAL_CAPACITY];
+    private StringBuilder chars = new StringBuilder(INITIAL_CAPACITY);
+
+    String join(List<SinkRecord> records) {
+        boolean binary = true;
+        long size = 0;
+        for (SinkRecord record : records) {
+            Object value = record.value();
+            if (value instanceof byte[]) {
+                size += ((byte[]) value).length + 1;
+            } else {
+                binary = false;
+                break;
+            }
+        }
+        return binary && size <= Integer.MAX_VALUE ? joinBytes(records, (int) size) : joinChars(records);
+    }
+
+    private String joinBytes(List<SinkRecord> records, int size) {
+        if (bytes.length < size) {
+            bytes = new byte[(int) Math.max(size, Math.min(Integer.MAX_VALUE - 8L, bytes.length * 2L))];
+        }
+        int position = 0;
+        for (int i = 0; i < records.size(); i++) {
+            byte[] value = (byte[]) records.get(i).value();
+            if (i > 0) {
+                bytes[position++] = '\n';
+            }
+            System.arraycopy(value, 0, bytes, position, value.length);
+            position += value.length;
+        }
+        String result = new String(bytes, 0, position, StandardCharsets.UTF_8);
+        if (bytes.length > MAX_RETAINED_CAPACITY) {
+            bytes = new byte[INITIAL_CAPACITY];
+        }
+        return result;
+    }
+
+    private String joinChars(List<SinkRecord> records) {
+        chars.setLength(0);
+        for (int i = 0; i < records.size(); i++) {
+            if (i > 0) {
+                chars.append('\n');
+            }
+            Object value = records.get(i).value();
+            if (value instanceof String) {
+                chars.append((String) value);
+            } else {
+                chars.append(SinkWriter.toLine(value));
+            }
+        }
+        String result = chars.toString();
+        if (chars.capacity() > MAX_RETAINED_CAPACITY) {
+            chars = new StringBuilder(INITIAL_CAPACITY);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,171 @@
+package com.taosdata.kafka.connect.sink;
+
+import com.taosdata.jdbc.TSDBConstants;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.sink.SinkRecord;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * read the fields of Struct or Map record values and convert them to the type of a TDengine column
+ */
+public class RecordFields {
+
+    private RecordFields() {
+    }
+
+    /**
+     * @return value of the field, null if the field does not exist
+     */
+    public static Object get(Object value, String name) {
+        if (value instanceof Struct) {
+            Struct struct = (Struct) value;
+            Field field = struct.schema().field(name);
+            return field == null ? null : struct.get(field);
+        }
+        if (value instanceof Map) {
+            return ((Map<?, ?>) value).get(name);
+        }
+        throw new DataException("Record value must be a Struct or Map, but is "
+                + (value == null ? "null" : value.getClass().getName()));
+    }
+
+    /**
+     * @return the name of the child table of the record
+     */
+    public static String tableName(SinkRecord record, String field) {
+        Object name = get(record.value(), field);
+        if (name == null || name.toString().isEmpty()) {
+            throw new DataException("Field " + field + " with the table name is missing in record "
+                    + record.topic() + "-" + record.kafkaPartition() + "-" + record.kafkaOffset());
+        }
+        return name.toString();
+    }
+
+    /**
+     * @return the configured timestamp field, or the name of the timestamp column of the super table
+     */
+    public static String timestampField(SinkConfig config, StableSchema schema) {
+        return config.getRecordTimestampField().isEmpty()
+                ? schema.getColumns().get(0).getName()
+                : config.getRecordTimestampField();
+    }
+
+    /**
+     * @param field timestamp field, the record timestamp is used when it is missing
+     * @return timestamp in the precision of the database
+     */
+    public static long timestamp(SinkRecord record, String field, StableSchema schema) {
+        Object value = get(record.value(), field);
+        if (value == null) {
+            if (record.timestamp() == null) {
+                throw new DataException("Timestamp field " + field + " is missing in record "
+                        + record.topic() + "-" + record.kafkaPartition() + "-" + record.kafkaOffset());
+            }
+            return schema.fromMillis(record.timestamp());
+        }
+        return (Long) convert(value, TSDBConstants.TSDB_DATA_TYPE_TIMESTAMP, schema);
+    }
+
+    /**
+     * @param type one of TSDBConstants.TSDB_DATA_TYPE_*
+     * @return the value as Boolean, Byte, Short, Integer, Long, Float, Double, String or byte[], null for null
+     */
+    public static Object convert(Object value, int type, StableSchema schema) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            switch (type) {
+                case TSDBConstants.TSDB_DATA_TYPE_BOOL:
+                    return toBoolean(value);
+                case TSDBConstants.TSDB_DATA_TYPE_TINYINT:
+                    return (byte) toLong(value, type, Byte.MIN_VALUE, Byte.MAX_VALUE);
+                case TSDBConstants.TSDB_DATA_TYPE_SMALLINT:
+                    return (short) toLong(value, type, Short.MIN_VALUE, Short.MAX_VALUE);
+                case TSDBConstants.TSDB_DATA_TYPE_INT:
+                    return (int) toLong(value, type, Integer.MIN_VALUE, Integer.MAX_VALUE);
+                case TSDBConstants.TSDB_DATA_TYPE_BIGINT:
+                    return toNumber(value).longValue();
+                case TSDBConstants.TSDB_DATA_TYPE_FLOAT:
+                    return toNumber(value).floatValue();
+                case TSDBConstants.TSDB_DATA_TYPE_DOUBLE:
+                    return toNumber(value).doubleValue();
+                case TSDBConstants.TSDB_DATA_TYPE_TIMESTAMP:
+                    if (value instanceof Date) {
+                        return schema.fromMillis(((Date) value).getTime());
+                    }
+                    return toNumber(value).longValue();
+                case TSDBConstants.TSDB_DATA_TYPE_VARBINARY:
+                case TSDBConstants.TSDB_DATA_TYPE_GEOMETRY:
+                    if (value instanceof byte[]) {
+                        return value;
+                    }
+                    return value.toString().getBytes(StandardCharsets.UTF_8);
+                default:
+                    if (value instanceof byte[]) {
+                        return new String((byte[]) value, StandardCharsets.UTF_8);
+                    }
+                    return value.toString();
+            }
+        } catch (NumberFormatException e) {
+            throw new DataException("Can not convert " + value + " to TDengine type " + type, e);
+        }
+    }
+
+    /**
+     * only true and false in any case, 1 and 0 are booleans, other values are rejected instead of becoming false
+     */
+    private static Boolean toBoolean(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        if (value instanceof Number) {
+            double number = ((Number) value).doubleValue();
+            if (number == 1) {
+                return true;
+            }
+            if (number == 0) {
+                return false;
+            }
+        } else {
+            String text = value.toString().trim();
+            if ("true".equalsIgnoreCase(text) || "1".equals(text)) {
+                return true;
+            }
+            if ("false".equalsIgnoreCase(text) || "0".equals(text)) {
+                return false;
+            }
+        }
+        throw new DataException("Value " + value + " is not a boolean, only true, false, 1 and 0 are");
+    }
+
+    /**
+     * values out of the range of the column are rejected instead of being truncated
+     */
+    private static long toLong(Object value, int type, long min, long max) {
+        long result = toNumber(value).longValue();
+        if (result < min || result > max) {
+            throw new DataException("Value " + value + " is out of the range of TDengine type " + type);
+        }
+        return result;
+    }
+
+    private static Number toNumber(Object value) {
+        if (value instanceof Number) {
+            return (Number) value;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
+        }
+        String text = value.toString().trim();
+        if (text.indexOf('.') >= 0 || text.indexOf('e') >= 0 || text.indexOf('E') >= 0) {
+            return Double.parseDouble(text);
+        }
+        return Long.parseLong(text);
+    }
+}
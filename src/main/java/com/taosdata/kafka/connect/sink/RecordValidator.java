@@ -0,0 +1,167 @@
+package com.taosdata.kafka.connect.sink;
+
+import com.taosdata.jdbc.TSDBConstants;
+import com.taosdata.kafka.connect.enums.WriteModeEnum;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.sink.SinkRecord;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * convert Struct or Map records to rows of a super table, and reject the records TDengine would refuse:
+ * missing or invalid table name, missing timestamp, values which can not be converted or are out of range,
+ * and values longer than their column.
+ * in file write mode values with line breaks are rejected as well, each row of a csv file is one line.
+ */
+public class RecordValidator {
+    private static final int MAX_TABLE_NAME_LENGTH = 192;
+
+    private final SinkConfig config;
+    private final String tableField;
+    private final boolean csv;
+
+    public RecordValidator(SinkConfig config) {
+        this.config = config;
+        this.tableField = config.getRecordTableField();
+        this.csv = config.getWriteMode() == WriteModeEnum.FILE;
+    }
+
+    /**
+     * @throws DataException if the record does not fit the super table
+     */
+    public TableRow toRow(SinkRecord record, StableSchema schema) {
+        String table = RecordFields.tableName(record, tableField);
+        if (table.length() > MAX_TABLE_NAME_LENGTH) {
+            throw new DataException("Table name " + table + " is longer than " + MAX_TABLE_NAME_LENGTH
+                    + " characters in record " + coordinates(record));
+        }
+        if (table.indexOf('`') >= 0) {
+            throw new DataException("Table name " + table + " in record " + coordinates(record)
+                    + " must not contain back quotes");
+        }
+        List<StableSchema.Column> tags = schema.getTags();
+        Object[] tagValues = new Object[tags.size()];
+        for (int i = 0; i < tagValues.length; i++) {
+            tagValues[i] = field(record, tags.get(i), schema);
+            checkLineBreak(record, tags.get(i), tagValues[i]);
+        }
+        List<StableSchema.Column> columns = schema.getColumns();
+        Object[] values = new Object[columns.size()];
+        values[0] = RecordFields.timestamp(record, RecordFields.timestampField(config, schema), schema);
+        for (int i = 1; i < values.length; i++) {
+            values[i] = field(record, columns.get(i), schema);
+            checkLineBreak(record, columns.get(i), values[i]);
+        }
+        return new TableRow(record, table, tagValues, values);
+    }
+
+    /**
+     * @return true if the value of one of the records has a field which is neither a column, a tag nor the table name
+     */
+    public boolean hasUnknownFields(List<SinkRecord> records, StableSchema schema) {
+        for (SinkRecord record : records) {
+            if (hasUnknownFields(record.value(), schema)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * a record with fields the super table does not know may have been written after a column was added
+     *
+     * @return true if the value has a field which is neither a column, a tag nor the table name
+     */
+    public boolean hasUnknownFields(Object value, StableSchema schema) {
+        if (value instanceof Struct) {
+            for (Field field : ((Struct) value).schema().fields()) {
+                if (isUnknown(field.name(), schema)) {
+                    return true;
+                }
+            }
+        } else if (value instanceof Map) {
+            for (Object key : ((Map<?, ?>) value).keySet()) {
+                if (key instanceof String && isUnknown((String) key, schema)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isUnknown(String name, StableSchema schema) {
+        return !schema.hasField(name) && !name.equals(tableField) && !name.equals(config.getRecordTimestampField());
+    }
+
+    private static Object field(SinkRecord record, StableSchema.Column column, StableSchema schema) {
+        Object value;
+        try {
+            value = RecordFields.convert(RecordFields.get(record.value(), column.getName()), column.getType(), schema);
+        } catch (DataException e) {
+            throw new DataException("Field " + column.getName() + " of record " + coordinates(record)
+                    + " is invalid: " + e.getMessage(), e);
+        }
+        if (value != null && length(value, column.getType()) > column.getLength()) {
+            throw new DataException("Field " + column.getName() + " of record " + coordinates(record)
+                    + " is longer than " + column.getLength());
+        }
+        return value;
+    }
+
+    /**
+     * each row of a csv file is one line with the tags and values of the row
+     */
+    private void checkLineBreak(SinkRecord record, StableSchema.Column column, Object value) {
+        if (!csv || !(value instanceof String)) {
+            return;
+        }
+        String text = (String) value;
+        if (text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            throw new DataException("Field " + column.getName() + " of record " + coordinates(record)
+                    + " has a line break and can not be imported from csv");
+        }
+    }
+
+    /**
+     * @return the length of a value as counted by TDengine, 0 for fixed length types
+     */
+    static int length(Object value, int type) {
+        switch (type) {
+            case TSDBConstants.TSDB_DATA_TYPE_BINARY:
+                return utf8Length((String) value);
+            case TSDBConstants.TSDB_DATA_TYPE_NCHAR:
+                String text = (String) value;
+                return text.codePointCount(0, text.length());
+            case TSDBConstants.TSDB_DATA_TYPE_VARBINARY:
+                return ((byte[]) value).length;
+            default:
+                return 0;
+        }
+    }
+
+    private static int utf8Length(String text) {
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static String coordinates(SinkRecord record) {
+        return record.topic() + "-" + record.kafkaPartition() + "-" + record.kafkaOffset();
+    }
+}
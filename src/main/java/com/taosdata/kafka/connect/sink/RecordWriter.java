@@ -0,0 +1,19 @@
+package com.taosdata.kafka.connect.sink;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * writes rows converted from Struct or Map records to the child tables of a super table
+ */
+public interface RecordWriter {
+
+    /**
+     * write the rows to the super table, the processor must be using the database of the super table
+     *
+     * @param rows     rows validated against the schema
+     * @param schema   schema of the super table
+     * @param progress parts written by earlier attempts of the same rows, they are not written again
+     */
+    void write(List<TableRow> rows, StableSchema schema, WriteProgress progress) throws SQLException;
+}
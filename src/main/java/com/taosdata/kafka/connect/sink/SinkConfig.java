@@ -4,11 +4,13 @@ import com.taosdata.jdbc.enums.SchemalessProtocolType;
 import com.taosdata.jdbc.enums.SchemalessTimestampType;
 import com.taosdata.kafka.connect.config.*;
 import com.taosdata.kafka.connect.enums.DataPrecision;
+import com.taosdata.kafka.connect.enums.WriteModeEnum;
 import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Map;
+import java.util.*;
 
 /**
  * all sink task need config
@@ -17,6 +19,116 @@ public class SinkConfig extends ConnectionConfig {
     private static final Logger log = LoggerFactory.getLogger(SinkConfig.class);
 
     private static final String WRITES_GROUP = "Writes";
+    private static final String POOL_GROUP = "Connection Pool";
+    private static final String MAPPING_GROUP = "Record Mapping";
+    private static final String SPILL_GROUP = "Spill";
+    private static final String CIRCUIT_BREAKER_GROUP = "Circuit Breaker";
+    private static final String OFFSETS_GROUP = "Offset Storage";
+    private static final String PRIORITY_GROUP = "Priority Lane";
+
+    public static final String PRIORITY_TOPICS = "priority.topics";
+    private static final String PRIORITY_TOPICS_DOC =
+            "The topics written by the priority lane, which has its own writer threads, buffers and connections, "
+                    + "so their records never wait behind a batch of the other topics.";
+    private static final String PRIORITY_TOPICS_DISPLAY = "Priority Topics";
+
+    public static final String PRIORITY_WRITER_THREADS = "priority.writer.threads";
+    public static final int PRIORITY_WRITER_THREADS_DEFAULT = 1;
+    private static final String PRIORITY_WRITER_THREADS_DOC =
+            "The number of writer threads of the priority lane, each thread has its own connection.";
+    private static final String PRIORITY_WRITER_THREADS_DISPLAY = "Priority Writer Threads";
+
+    public static final String PRIORITY_BATCH_SIZE = "priority.batch.size";
+    public static final int PRIORITY_BATCH_SIZE_DEFAULT = 100;
+    private static final String PRIORITY_BATCH_SIZE_DOC = "The batch.size of the priority lane.";
+    private static final String PRIORITY_BATCH_SIZE_DISPLAY = "Priority Batch Size";
+
+    public static final String PRIORITY_LINGER_MS = "priority.linger.ms";
+    public static final long PRIORITY_LINGER_MS_DEFAULT = 0L;
+    private static final String PRIORITY_LINGER_MS_DOC = "The linger.ms of the priority lane.";
+    private static final String PRIORITY_LINGER_MS_DISPLAY = "Priority Linger (millis)";
+
+    public static final String OFFSETS_STORAGE_ENABLED = "offsets.storage.enabled";
+    private static final String OFFSETS_STORAGE_ENABLED_DOC =
+            "Whether to store the next offset of each written topic partition in TDengine, "
+                    + "and continue from the stored offsets when partitions are assigned to the task.";
+    private static final String OFFSETS_STORAGE_ENABLED_DISPLAY = "Offset Storage Enabled";
+
+    public static final String OFFSETS_STORAGE_DATABASE = "offsets.storage.database";
+    public static final String OFFSETS_STORAGE_DATABASE_DEFAULT = "";
+    private static final String OFFSETS_STORAGE_DATABASE_DOC =
+            "The database of the offset super table, the default is connection.database.";
+    private static final String OFFSETS_STORAGE_DATABASE_DISPLAY = "Offset Storage Database";
+
+    public static final String OFFSETS_STORAGE_STABLE = "offsets.storage.stable";
+    public static final String OFFSETS_STORAGE_STABLE_DEFAULT = "kafka_offsets";
+    private static final String OFFSETS_STORAGE_STABLE_DOC =
+            "The super table of the stored offsets, it is created if it does not exist.";
+    private static final String OFFSETS_STORAGE_STABLE_DISPLAY = "Offset Storage Super Table";
+
+    public static final String OFFSETS_STORAGE_INTERVAL_MS = "offsets.storage.interval.ms";
+    public static final long OFFSETS_STORAGE_INTERVAL_MS_DEFAULT = 1000L;
+    private static final String OFFSETS_STORAGE_INTERVAL_MS_DOC =
+            "How often the latest written offset of each topic partition is stored in TDengine, "
+                    + "0 means only when Kafka Connect commits offsets.";
+    private static final String OFFSETS_STORAGE_INTERVAL_MS_DISPLAY = "Offset Storage Interval (millis)";
+
+    public static final String CIRCUIT_BREAKER_ENABLED = "circuit.breaker.enabled";
+    private static final String CIRCUIT_BREAKER_ENABLED_DOC =
+            "Whether to pause the assigned partitions while too many writes fail or are slow, "
+                    + "and resume them with probe batches once TDengine recovers.";
+    private static final String CIRCUIT_BREAKER_ENABLED_DISPLAY = "Circuit Breaker Enabled";
+
+    public static final String CIRCUIT_BREAKER_WINDOW = "circuit.breaker.window";
+    public static final int CIRCUIT_BREAKER_WINDOW_DEFAULT = 20;
+    private static final String CIRCUIT_BREAKER_WINDOW_DOC =
+            "The number of recent write attempts of a task the failure ratio is computed from.";
+    private static final String CIRCUIT_BREAKER_WINDOW_DISPLAY = "Circuit Breaker Window";
+
+    public static final String CIRCUIT_BREAKER_FAILURE_RATIO = "circuit.breaker.failure.ratio";
+    public static final double CIRCUIT_BREAKER_FAILURE_RATIO_DEFAULT = 0.5;
+    private static final String CIRCUIT_BREAKER_FAILURE_RATIO_DOC =
+            "The ratio of failed or slow write attempts in the window which opens the circuit breaker.";
+    private static final String CIRCUIT_BREAKER_FAILURE_RATIO_DISPLAY = "Circuit Breaker Failure Ratio";
+
+    public static final String CIRCUIT_BREAKER_SLOW_MS = "circuit.breaker.slow.ms";
+    public static final long CIRCUIT_BREAKER_SLOW_MS_DEFAULT = 30000;
+    private static final String CIRCUIT_BREAKER_SLOW_MS_DOC =
+            "A successful write taking at least this long counts as failed, 0 only counts errors.";
+    private static final String CIRCUIT_BREAKER_SLOW_MS_DISPLAY = "Circuit Breaker Slow Write (ms)";
+
+    public static final String CIRCUIT_BREAKER_OPEN_MS = "circuit.breaker.open.ms";
+    public static final long CIRCUIT_BREAKER_OPEN_MS_DEFAULT = 30000;
+    private static final String CIRCUIT_BREAKER_OPEN_MS_DOC =
+            "How long the partitions stay paused before probe batches are written.";
+    private static final String CIRCUIT_BREAKER_OPEN_MS_DISPLAY = "Circuit Breaker Open Time (ms)";
+
+    public static final String SPILL_ENABLED = "spill.enabled";
+    private static final String SPILL_ENABLED_DOC =
+            "Whether to spill batches to a log on local disk when TDengine can not be reached after all retries, "
+                    + "and replay them in order when it is back. Spilled records are committed. "
+                    + "Only used in schemaless write mode.";
+    private static final String SPILL_ENABLED_DISPLAY = "Spill Enabled";
+
+    public static final String SPILL_DIR = "spill.dir";
+    public static final String SPILL_DIR_DEFAULT = "";
+    private static final String SPILL_DIR_DOC =
+            "The local directory of the spill logs, each writer of a task uses a sub directory named by "
+                    + "connector, task and writer. Required when spill is enabled.";
+    private static final String SPILL_DIR_DISPLAY = "Spill Directory";
+
+    public static final String SPILL_SEGMENT_BYTES = "spill.segment.bytes";
+    public static final int SPILL_SEGMENT_BYTES_DEFAULT = 64 * 1024 * 1024;
+    private static final String SPILL_SEGMENT_BYTES_DOC =
+            "The size of a memory mapped segment file of a spill log.";
+    private static final String SPILL_SEGMENT_BYTES_DISPLAY = "Spill Segment Bytes";
+
+    public static final String SPILL_MAX_BYTES = "spill.max.bytes";
+    public static final long SPILL_MAX_BYTES_DEFAULT = 1024L * 1024 * 1024;
+    private static final String SPILL_MAX_BYTES_DOC =
+            "The maximum size of the spill log of a writer. When it is full, failed batches are handled "
+                    + "as if spill was disabled.";
+    private static final String SPILL_MAX_BYTES_DISPLAY = "Spill Max Bytes";
 
     public static final String MAX_RETRIES = "max.retries";
     public static final int MAX_RETRIES_DEFAULT = 3;
@@ -30,6 +142,25 @@ public class SinkConfig extends ConnectionConfig {
             "The time in milliseconds to wait following an error before a retry attempt is made.";
     private static final String RETRY_BACKOFF_MS_DISPLAY = "Retry Backoff (millis)";
 
+    public static final String RETRY_BACKOFF_MAX_MS = "retry.backoff.max.ms";
+    public static final long RETRY_BACKOFF_MAX_MS_DEFAULT = 60000L;
+    private static final String RETRY_BACKOFF_MAX_MS_DOC =
+            "The maximum time in milliseconds to wait before a retry. The wait starts at retry.backoff.ms "
+                    + "and doubles with each retry of a batch, half of it is random.";
+    private static final String RETRY_BACKOFF_MAX_MS_DISPLAY = "Retry Backoff Max (millis)";
+
+    public static final String SLOW_BATCH_LOG_MS = "slow.batch.log.ms";
+    public static final long SLOW_BATCH_LOG_MS_DEFAULT = 5000L;
+    private static final String SLOW_BATCH_LOG_MS_DOC =
+            "A written batch taking at least this long is logged with its request id, 0 disables the log.";
+    private static final String SLOW_BATCH_LOG_MS_DISPLAY = "Slow Batch Log (millis)";
+
+    public static final String SLOW_BATCH_LOG_INTERVAL_MS = "slow.batch.log.interval.ms";
+    public static final long SLOW_BATCH_LOG_INTERVAL_MS_DEFAULT = 60000L;
+    private static final String SLOW_BATCH_LOG_INTERVAL_MS_DOC =
+            "Each writer logs at most one slow batch in this time, with the number of slow batches not logged.";
+    private static final String SLOW_BATCH_LOG_INTERVAL_MS_DISPLAY = "Slow Batch Log Interval (millis)";
+
     public static final String BATCH_SIZE = "batch.size";
     public static final int BATCH_SIZE_DEFAULT = 3000;
     private static final String BATCH_SIZE_DOC =
@@ -37,13 +168,223 @@ public class SinkConfig extends ConnectionConfig {
                     + " table, when possible.";
     private static final String BATCH_SIZE_DISPLAY = "Batch Size";
 
+    public static final String BATCH_MAX_BYTES = "batch.max.bytes";
+    public static final long BATCH_MAX_BYTES_DEFAULT = 0L;
+    private static final String BATCH_MAX_BYTES_DOC =
+            "The maximum size in bytes of the lines written in one batch, 0 means no limit. "
+                    + "Struct and Map values are not counted, their batches are only limited by the batch size.";
+    private static final String BATCH_MAX_BYTES_DISPLAY = "Batch Max Bytes";
+
+    public static final String BATCH_ADAPTIVE = "batch.adaptive.enabled";
+    private static final String BATCH_ADAPTIVE_DOC =
+            "Whether to adjust the batch size by the observed write latency and errors. "
+                    + "The batch grows up to batch.size while writes are faster than batch.target.latency.ms "
+                    + "and is halved after a slow or failed write, down to batch.min.size. "
+                    + "Ignored when batch.size is 0.";
+    private static final String BATCH_ADAPTIVE_DISPLAY = "Adaptive Batch Size";
+
+    public static final String BATCH_MIN_SIZE = "batch.min.size";
+    public static final int BATCH_MIN_SIZE_DEFAULT = 100;
+    private static final String BATCH_MIN_SIZE_DOC =
+            "The minimum batch size when the batch size is adaptive.";
+    private static final String BATCH_MIN_SIZE_DISPLAY = "Batch Min Size";
+
+    public static final String BATCH_TARGET_LATENCY_MS = "batch.target.latency.ms";
+    public static final long BATCH_TARGET_LATENCY_MS_DEFAULT = 1000L;
+    private static final String BATCH_TARGET_LATENCY_MS_DOC =
+            "The write latency in milliseconds the adaptive batch size aims for.";
+    private static final String BATCH_TARGET_LATENCY_MS_DISPLAY = "Batch Target Latency (millis)";
+
+    public static final String BATCH_SORT = "batch.sort.enabled";
+    private static final String BATCH_SORT_DOC =
+            "Whether to reorder the lines of a batch by child table (measurement and tag set) and timestamp "
+                    + "before writing, so rows of the same child table are written together and in time order. "
+                    + "Only used for line and telnet protocol.";
+    private static final String BATCH_SORT_DISPLAY = "Sort Batch";
+
+    public static final String VGROUP_ROUTING = "vgroup.routing.enabled";
+    private static final String VGROUP_ROUTING_DOC =
+            "Whether to split each line or telnet batch by child table into one sub batch per vgroup "
+                    + "and write the sub batches concurrently. Requires connection.pool.enabled to write in parallel.";
+    private static final String VGROUP_ROUTING_DISPLAY = "Vgroup Routing";
+
+    public static final String VGROUP_ROUTING_THREADS = "vgroup.routing.threads";
+    public static final int VGROUP_ROUTING_THREADS_DEFAULT = 4;
+    private static final String VGROUP_ROUTING_THREADS_DOC =
+            "The maximum number of sub batches of one writer thread written concurrently when vgroup routing is enabled.";
+    private static final String VGROUP_ROUTING_THREADS_DISPLAY = "Vgroup Routing Threads";
+
+    public static final String LINGER_MS = "linger.ms";
+    public static final long LINGER_MS_DEFAULT = 0L;
+    private static final String LINGER_MS_DOC =
+            "The time in milliseconds to wait for more records to fill up a batch before it is written to TDengine. "
+                    + "Records are collected across several put calls until batch.size or linger.ms is reached, "
+                    + "the default value 0 means records are written as soon as the writer is idle.";
+    private static final String LINGER_MS_DISPLAY = "Linger (millis)";
+
+    public static final String WRITER_THREADS = "writer.threads";
+    public static final int WRITER_THREADS_DEFAULT = 1;
+    private static final String WRITER_THREADS_DOC =
+            "The number of threads writing to TDengine in a task, each thread has its own connection. "
+                    + "Records are routed by topic partition, so records of one partition are written in order "
+                    + "while different partitions are written concurrently.";
+    private static final String WRITER_THREADS_DISPLAY = "Writer Threads";
+
+    public static final String MAX_BUFFERED_RECORDS = "max.buffered.records";
+    public static final int MAX_BUFFERED_RECORDS_DEFAULT = 30000;
+    private static final String MAX_BUFFERED_RECORDS_DOC =
+            "The maximum number of records of a task buffered in memory waiting to be written, "
+                    + "shared evenly by the writer threads. put will block when the buffer is full.";
+    private static final String MAX_BUFFERED_RECORDS_DISPLAY = "Max Buffered Records";
+
     public final static String CHARSET_CONF = "db.charset";
     public final static String CHARSET_DOC = "The character set to use for String key and values.";
 
+    public static final String DB_CACHE_SIZE = "db.cache.size";
+    public static final int DB_CACHE_SIZE_DEFAULT = 1000;
+    private static final String DB_CACHE_SIZE_DOC =
+            "The maximum number of destination databases remembered as created, "
+                    + "a database is only created when it is not in the cache.";
+    private static final String DB_CACHE_SIZE_DISPLAY = "Database Cache Size";
+
+    public static final String CONNECTION_POOL_ENABLED = CONNECTION_PREFIX + "pool.enabled";
+    private static final String CONNECTION_POOL_ENABLED_DOC =
+            "Whether to write with a pool of connections kept per destination database instead of a single connection.";
+    private static final String CONNECTION_POOL_ENABLED_DISPLAY = "Enable Connection Pool";
+
+    public static final String CONNECTION_POOL_MAX_PER_DATABASE = CONNECTION_PREFIX + "pool.max.per.database";
+    public static final int CONNECTION_POOL_MAX_PER_DATABASE_DEFAULT = 4;
+    private static final String CONNECTION_POOL_MAX_PER_DATABASE_DOC =
+            "The maximum number of pooled connections to one database.";
+    private static final String CONNECTION_POOL_MAX_PER_DATABASE_DISPLAY = "Max Connections Per Database";
+
+    public static final String CONNECTION_POOL_MAX_TOTAL = CONNECTION_PREFIX + "pool.max.total";
+    public static final int CONNECTION_POOL_MAX_TOTAL_DEFAULT = 16;
+    private static final String CONNECTION_POOL_MAX_TOTAL_DOC =
+            "The maximum number of pooled connections of a task, idle connections of other databases "
+                    + "are closed when the limit is reached.";
+    private static final String CONNECTION_POOL_MAX_TOTAL_DISPLAY = "Max Connections";
+
+    public static final String CONNECTION_POOL_IDLE_TIMEOUT_MS = CONNECTION_PREFIX + "pool.idle.timeout.ms";
+    public static final long CONNECTION_POOL_IDLE_TIMEOUT_MS_DEFAULT = 600000L;
+    private static final String CONNECTION_POOL_IDLE_TIMEOUT_MS_DOC =
+            "The time in milliseconds after which an idle pooled connection is closed.";
+    private static final String CONNECTION_POOL_IDLE_TIMEOUT_MS_DISPLAY = "Idle Timeout (millis)";
+
+    public static final String CONNECTION_POOL_BORROW_TIMEOUT_MS = CONNECTION_PREFIX + "pool.borrow.timeout.ms";
+    public static final long CONNECTION_POOL_BORROW_TIMEOUT_MS_DEFAULT = 30000L;
+    private static final String CONNECTION_POOL_BORROW_TIMEOUT_MS_DOC =
+            "The maximum time in milliseconds to wait for a pooled connection before the write fails.";
+    private static final String CONNECTION_POOL_BORROW_TIMEOUT_MS_DISPLAY = "Borrow Timeout (millis)";
+
     private static final String DB_SCHEMALESS_CONFIG = "db.schemaless";
     private static final String DB_SCHEMALESS_CONFIG_DOC = "schemaless format for writing data to TDengine";
     private static final String DB_SCHEMALESS_CONFIG_DISPLAY = "DB Schemaless Format";
 
+    public static final String DB_WRITE_MODE = "db.write.mode";
+    public static final String DB_WRITE_MODE_DEFAULT = "schemaless";
+    private static final String DB_WRITE_MODE_DOC =
+            "How records are written to TDengine. schemaless: the record values are line, telnet or json text "
+                    + "in the db.schemaless format. stmt: the record values are Struct or Map, their fields are mapped "
+                    + "to the columns and tags of a super table and bound to a prepared statement. "
+                    + "sql: like stmt, but written with multi table insert statements. "
+                    + "file: like stmt, but staged to local csv files which are imported with insert ... file.";
+    private static final String DB_WRITE_MODE_DISPLAY = "DB Write Mode";
+
+    public static final String DB_SQL_MAX_LENGTH = "db.sql.max.length";
+    public static final int DB_SQL_MAX_LENGTH_DEFAULT = 1024 * 1024;
+    private static final String DB_SQL_MAX_LENGTH_DOC =
+            "The maximum length in characters of an insert statement in sql write mode, "
+                    + "it should not exceed the maxSQLLength of the TDengine client.";
+    private static final String DB_SQL_MAX_LENGTH_DISPLAY = "DB SQL Max Length";
+
+    public static final String DB_FILE_DIR = "db.file.dir";
+    public static final String DB_FILE_DIR_DEFAULT = "";
+    private static final String DB_FILE_DIR_DOC =
+            "The local directory of the csv files staged in file write mode, required in file write mode.";
+    private static final String DB_FILE_DIR_DISPLAY = "DB File Directory";
+
+    public static final String DB_FILE_SEGMENT_BYTES = "db.file.segment.bytes";
+    public static final int DB_FILE_SEGMENT_BYTES_DEFAULT = 64 * 1024 * 1024;
+    private static final String DB_FILE_SEGMENT_BYTES_DOC =
+            "The maximum size of a staged csv file in file write mode, the rows of a child table are imported "
+                    + "from several files when needed.";
+    private static final String DB_FILE_SEGMENT_BYTES_DISPLAY = "DB File Segment Bytes";
+
+    public static final String RECORD_TABLE_FIELD = "record.table.field";
+    public static final String RECORD_TABLE_FIELD_DEFAULT = "tbname";
+    private static final String RECORD_TABLE_FIELD_DOC =
+            "The field of the record value holding the name of the child table to write to.";
+    private static final String RECORD_TABLE_FIELD_DISPLAY = "Table Name Field";
+
+    public static final String RECORD_STABLE = "record.stable";
+    public static final String RECORD_STABLE_DEFAULT = "";
+    private static final String RECORD_STABLE_DOC =
+            "The super table of the child tables, which must exist. Defaults to the topic name.";
+    private static final String RECORD_STABLE_DISPLAY = "Super Table";
+
+    public static final String RECORD_TIMESTAMP_FIELD = "record.timestamp.field";
+    public static final String RECORD_TIMESTAMP_FIELD_DEFAULT = "";
+    private static final String RECORD_TIMESTAMP_FIELD_DOC =
+            "The field of the record value holding the timestamp. Defaults to the name of the timestamp column "
+                    + "of the super table. When the field is missing the Kafka record timestamp is used.";
+    private static final String RECORD_TIMESTAMP_FIELD_DISPLAY = "Timestamp Field";
+
+    public static final String JSON_LINE_MEASUREMENT = "json.line.measurement";
+    public static final String JSON_LINE_MEASUREMENT_DEFAULT = "";
+    private static final String JSON_LINE_MEASUREMENT_DOC =
+            "The measurement of the lines encoded from json objects. Setting it or json.line.measurement.field "
+                    + "encodes the json record values as line protocol, db.schemaless must be line.";
+    private static final String JSON_LINE_MEASUREMENT_DISPLAY = "Json Line Measurement";
+
+    public static final String JSON_LINE_MEASUREMENT_FIELD = "json.line.measurement.field";
+    public static final String JSON_LINE_MEASUREMENT_FIELD_DEFAULT = "";
+    private static final String JSON_LINE_MEASUREMENT_FIELD_DOC =
+            "The json field holding the measurement, json.line.measurement is used when it is missing.";
+    private static final String JSON_LINE_MEASUREMENT_FIELD_DISPLAY = "Json Line Measurement Field";
+
+    public static final String JSON_LINE_TAGS = "json.line.tags";
+    private static final String JSON_LINE_TAGS_DOC = "The json fields written as tags.";
+    private static final String JSON_LINE_TAGS_DISPLAY = "Json Line Tags";
+
+    public static final String JSON_LINE_FIELDS = "json.line.fields";
+    private static final String JSON_LINE_FIELDS_DOC =
+            "The json fields written as fields. When it is empty, all fields which are not mapped otherwise "
+                    + "are written.";
+    private static final String JSON_LINE_FIELDS_DISPLAY = "Json Line Fields";
+
+    public static final String JSON_LINE_TIMESTAMP_FIELD = "json.line.timestamp.field";
+    public static final String JSON_LINE_TIMESTAMP_FIELD_DEFAULT = "ts";
+    private static final String JSON_LINE_TIMESTAMP_FIELD_DOC =
+            "The json field holding the timestamp as an integer in data.precision. "
+                    + "When it is missing the Kafka record timestamp is used.";
+    private static final String JSON_LINE_TIMESTAMP_FIELD_DISPLAY = "Json Line Timestamp Field";
+
+    public static final String JSON_LINE_INTEGERS = "json.line.integers";
+    private static final String JSON_LINE_INTEGERS_DOC =
+            "Whether to write json numbers without fraction or exponent as bigint fields instead of double.";
+    private static final String JSON_LINE_INTEGERS_DISPLAY = "Json Line Integers";
+
+    public static final String DB_SCHEMALESS_RAW = "db.schemaless.raw";
+    private static final String DB_SCHEMALESS_RAW_DOC =
+            "Whether to join the lines of a batch into one payload separated by line breaks and write it with "
+                    + "the raw schemaless API. byte[] values are read as UTF-8 without creating a string per record. "
+                    + "Only used for line and telnet protocol.";
+    private static final String DB_SCHEMALESS_RAW_DISPLAY = "DB Schemaless Raw Write";
+
+    public static final String DB_SCHEMALESS_JSON_MERGE = "db.schemaless.json.merge";
+    private static final String DB_SCHEMALESS_JSON_MERGE_DOC =
+            "Whether to merge the json records of a batch, objects or arrays of objects, into json arrays "
+                    + "which are written with one call each. Only used for json protocol.";
+    private static final String DB_SCHEMALESS_JSON_MERGE_DISPLAY = "DB Schemaless Json Merge";
+
+    public static final String DB_SCHEMALESS_JSON_MAX_BYTES = "db.schemaless.json.max.bytes";
+    public static final int DB_SCHEMALESS_JSON_MAX_BYTES_DEFAULT = 1024 * 1024;
+    private static final String DB_SCHEMALESS_JSON_MAX_BYTES_DOC =
+            "The maximum size of a merged json array, a batch is written as several arrays when needed. "
+                    + "A record larger than this is written alone.";
+    private static final String DB_SCHEMALESS_JSON_MAX_BYTES_DISPLAY = "DB Schemaless Json Max Bytes";
+
     public static final String DATA_PRECISION = "data.precision";
     public static final String DATA_PRECISION_DEFAULT = "";
     private static final String DATA_PRECISION_DOC =
@@ -59,19 +400,110 @@ public class SinkConfig extends ConnectionConfig {
             "this means the topic will be mapped to the new database which will have same name as the topic";
     private static final String CONNECTION_PREFIX_DISPLAY = "JDBC sink destination Database prefix";
 
+    /**
+     * prefix of the configs of a single topic: {@code topic.<name>.<config>}
+     */
+    public static final String TOPIC_OVERRIDE_PREFIX = "topic.";
+    public static final List<String> TOPIC_OVERRIDES = Collections.unmodifiableList(Arrays.asList(
+            DB_SCHEMALESS_CONFIG, DATA_PRECISION, BATCH_SIZE, CONNECTION_DB));
+
     private final SchemalessTimestampType timestampType;
     private final int maxRetries;
     private final long retryBackoffMs;
+    private final long retryBackoffMaxMs;
+    private final long slowBatchLogMs;
+    private final long slowBatchLogIntervalMs;
     private final int batchSize;
+    private final long batchMaxBytes;
+    private final boolean batchAdaptive;
+    private final int batchMinSize;
+    private final long batchTargetLatencyMs;
+    private final boolean batchSort;
+    private final boolean vgroupRouting;
+    private final boolean schemalessRaw;
+    private final boolean schemalessJsonMerge;
+    private final int schemalessJsonMaxBytes;
+    private final WriteModeEnum writeMode;
+    private final int sqlMaxLength;
+    private final String fileDir;
+    private final int fileSegmentBytes;
+    private final String recordTableField;
+    private final String recordStable;
+    private final String recordTimestampField;
+    private final String jsonLineMeasurement;
+    private final String jsonLineMeasurementField;
+    private final List<String> jsonLineTags;
+    private final List<String> jsonLineFields;
+    private final String jsonLineTimestampField;
+    private final boolean jsonLineIntegers;
+    private final int vgroupRoutingThreads;
+    private final long lingerMs;
+    private final int writerThreads;
+    private final int maxBufferedRecords;
     private final String charset;
     private final SchemalessProtocolType schemalessTypeFormat;
     private final String connectionDatabasePrefix;
+    private final int dbCacheSize;
+    private final boolean connectionPoolEnabled;
+    private final int connectionPoolMaxPerDatabase;
+    private final int connectionPoolMaxTotal;
+    private final long connectionPoolIdleTimeoutMs;
+    private final long connectionPoolBorrowTimeoutMs;
+    private final boolean spillEnabled;
+    private final String spillDir;
+    private final int spillSegmentBytes;
+    private final long spillMaxBytes;
+    private final boolean circuitBreakerEnabled;
+    private final boolean offsetsStorageEnabled;
+    private final List<String> priorityTopics;
+    private final int priorityWriterThreads;
+    private final int priorityBatchSize;
+    private final long priorityLingerMs;
+    private final String offsetsStorageDatabase;
+    private final String offsetsStorageStable;
+    private final long offsetsStorageIntervalMs;
+    private final int circuitBreakerWindow;
+    private final double circuitBreakerFailureRatio;
+    private final long circuitBreakerSlowMs;
+    private final long circuitBreakerOpenMs;
+    // overrides and resulting configs of the topics with topic.<name>.<config> overrides
+    private final Map<String, Map<String, Object>> topicOverrides;
+    private final Map<String, SinkConfig> topicConfigs = new HashMap<>();
 
     public SinkConfig(Map<?, ?> originals) {
         super(config(), originals);
         this.maxRetries = getInt(MAX_RETRIES);
         this.retryBackoffMs = getInt(RETRY_BACKOFF_MS);
+        this.retryBackoffMaxMs = getLong(RETRY_BACKOFF_MAX_MS);
+        this.slowBatchLogMs = getLong(SLOW_BATCH_LOG_MS);
+        this.slowBatchLogIntervalMs = getLong(SLOW_BATCH_LOG_INTERVAL_MS);
         this.batchSize = getInt(BATCH_SIZE);
+        this.batchMaxBytes = getLong(BATCH_MAX_BYTES);
+        this.batchAdaptive = getBoolean(BATCH_ADAPTIVE);
+        this.batchMinSize = getInt(BATCH_MIN_SIZE);
+        this.batchTargetLatencyMs = getLong(BATCH_TARGET_LATENCY_MS);
+        this.batchSort = getBoolean(BATCH_SORT);
+        this.vgroupRouting = getBoolean(VGROUP_ROUTING);
+        this.schemalessRaw = getBoolean(DB_SCHEMALESS_RAW);
+        this.schemalessJsonMerge = getBoolean(DB_SCHEMALESS_JSON_MERGE);
+        this.schemalessJsonMaxBytes = getInt(DB_SCHEMALESS_JSON_MAX_BYTES);
+        this.writeMode = WriteModeEnum.valueOf(getString(DB_WRITE_MODE).trim().toUpperCase());
+        this.sqlMaxLength = getInt(DB_SQL_MAX_LENGTH);
+        this.fileDir = getString(DB_FILE_DIR).trim();
+        this.fileSegmentBytes = getInt(DB_FILE_SEGMENT_BYTES);
+        this.recordTableField = getString(RECORD_TABLE_FIELD).trim();
+        this.recordStable = getString(RECORD_STABLE).trim();
+        this.recordTimestampField = getString(RECORD_TIMESTAMP_FIELD).trim();
+        this.jsonLineMeasurement = getString(JSON_LINE_MEASUREMENT).trim();
+        this.jsonLineMeasurementField = getString(JSON_LINE_MEASUREMENT_FIELD).trim();
+        this.jsonLineTags = getList(JSON_LINE_TAGS);
+        this.jsonLineFields = getList(JSON_LINE_FIELDS);
+        this.jsonLineTimestampField = getString(JSON_LINE_TIMESTAMP_FIELD).trim();
+        this.jsonLineIntegers = getBoolean(JSON_LINE_INTEGERS);
+        this.vgroupRoutingThreads = getInt(VGROUP_ROUTING_THREADS);
+        this.lingerMs = getLong(LINGER_MS);
+        this.writerThreads = getInt(WRITER_THREADS);
+        this.maxBufferedRecords = getInt(MAX_BUFFERED_RECORDS);
         this.charset = getString(CHARSET_CONF);
         this.schemalessTypeFormat = SchemalessProtocolType.parse(getString(DB_SCHEMALESS_CONFIG).trim());
         if (schemalessTypeFormat == SchemalessProtocolType.LINE) {
@@ -80,10 +512,77 @@ public class SinkConfig extends ConnectionConfig {
             this.timestampType = SchemalessTimestampType.NOT_CONFIGURED;
         }
         this.connectionDatabasePrefix = getString(CONNECTION_PREFIX_CONFIG).trim();
+        this.dbCacheSize = getInt(DB_CACHE_SIZE);
+        this.connectionPoolEnabled = getBoolean(CONNECTION_POOL_ENABLED);
+        this.connectionPoolMaxPerDatabase = getInt(CONNECTION_POOL_MAX_PER_DATABASE);
+        this.connectionPoolMaxTotal = getInt(CONNECTION_POOL_MAX_TOTAL);
+        this.connectionPoolIdleTimeoutMs = getLong(CONNECTION_POOL_IDLE_TIMEOUT_MS);
+        this.connectionPoolBorrowTimeoutMs = getLong(CONNECTION_POOL_BORROW_TIMEOUT_MS);
+        this.spillEnabled = getBoolean(SPILL_ENABLED);
+        this.spillDir = getString(SPILL_DIR).trim();
+        this.spillSegmentBytes = getInt(SPILL_SEGMENT_BYTES);
+        this.spillMaxBytes = getLong(SPILL_MAX_BYTES);
+        this.circuitBreakerEnabled = getBoolean(CIRCUIT_BREAKER_ENABLED);
+        this.offsetsStorageEnabled = getBoolean(OFFSETS_STORAGE_ENABLED);
+        this.priorityTopics = getList(PRIORITY_TOPICS);
+        this.priorityWriterThreads = getInt(PRIORITY_WRITER_THREADS);
+        this.priorityBatchSize = getInt(PRIORITY_BATCH_SIZE);
+        this.priorityLingerMs = getLong(PRIORITY_LINGER_MS);
+        this.offsetsStorageDatabase = getString(OFFSETS_STORAGE_DATABASE).trim();
+        this.offsetsStorageStable = getString(OFFSETS_STORAGE_STABLE).trim();
+        this.offsetsStorageIntervalMs = getLong(OFFSETS_STORAGE_INTERVAL_MS);
+        this.circuitBreakerWindow = getInt(CIRCUIT_BREAKER_WINDOW);
+        this.circuitBreakerFailureRatio = getDouble(CIRCUIT_BREAKER_FAILURE_RATIO);
+        this.circuitBreakerSlowMs = getLong(CIRCUIT_BREAKER_SLOW_MS);
+        this.circuitBreakerOpenMs = getLong(CIRCUIT_BREAKER_OPEN_MS);
+        this.topicOverrides = topicOverrides(originals());
+        if (!topicOverrides.isEmpty()) {
+            Map<String, Object> base = new HashMap<>(originals());
+            base.keySet().removeIf(key -> key.startsWith(TOPIC_OVERRIDE_PREFIX));
+            for (Map.Entry<String, Map<String, Object>> entry : topicOverrides.entrySet()) {
+                Map<String, Object> merged = new HashMap<>(base);
+                merged.putAll(entry.getValue());
+                topicConfigs.put(entry.getKey(), new SinkConfig(merged));
+            }
+        }
+    }
+
+    /**
+     * @return the overrides of each topic, by the name of the overridden config
+     */
+    private static Map<String, Map<String, Object>> topicOverrides(Map<String, Object> originals) {
+        Map<String, Map<String, Object>> overrides = new HashMap<>();
+        for (Map.Entry<String, Object> entry : originals.entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith(TOPIC_OVERRIDE_PREFIX)) {
+                continue;
+            }
+            // topic names may contain dots, the config name is matched at the end of the key
+            String name = null;
+            for (String override : TOPIC_OVERRIDES) {
+                if (key.endsWith("." + override)
+                        && key.length() > TOPIC_OVERRIDE_PREFIX.length() + override.length() + 1) {
+                    name = override;
+                    break;
+                }
+            }
+            if (name == null) {
+                throw new ConfigException(key, entry.getValue(), "only " + TOPIC_OVERRIDES + " can be set for a topic");
+            }
+            String topic = key.substring(TOPIC_OVERRIDE_PREFIX.length(), key.length() - name.length() - 1);
+            overrides.computeIfAbsent(topic, t -> new HashMap<>()).put(name, entry.getValue());
+        }
+        return overrides;
     }
 
     public static ConfigDef config() {
         int orderInGroup = 0;
+        int poolOrderInGroup = 0;
+        int mappingOrderInGroup = 0;
+        int spillOrderInGroup = 0;
+        int circuitBreakerOrderInGroup = 0;
+        int offsetsOrderInGroup = 0;
+        int priorityOrderInGroup = 0;
         return ConnectionConfig.config()
                 .define(
                         DATA_PRECISION,
@@ -109,6 +608,123 @@ public class SinkConfig extends ConnectionConfig {
                         ConfigDef.Width.SHORT,
                         BATCH_SIZE_DISPLAY
                 )
+                .define(
+                        BATCH_MAX_BYTES,
+                        ConfigDef.Type.LONG,
+                        BATCH_MAX_BYTES_DEFAULT,
+                        ConfigDef.Range.atLeast(0),
+                        ConfigDef.Importance.MEDIUM,
+                        BATCH_MAX_BYTES_DOC,
+                        WRITES_GROUP,
+                        ++orderInGroup,
+                        ConfigDef.Width.SHORT,
+                        BATCH_MAX_BYTES_DISPLAY
+                )
+                .define(
+                        BATCH_ADAPTIVE,
+                        ConfigDef.Type.BOOLEAN,
+                        false,
+                        ConfigDef.Importance.MEDIUM,
+                        BATCH_ADAPTIVE_DOC,
+                        WRITES_GROUP,
+                        ++orderInGroup,
+                        ConfigDef.Width.SHORT,
+                        BATCH_ADAPTIVE_DISPLAY
+                )
+                .define(
+                        BATCH_MIN_SIZE,
+                        ConfigDef.Type.INT,
+                        BATCH_MIN_SIZE_DEFAULT,
+                        ConfigDef.Range.atLeast(1),
+                        ConfigDef.Importance.LOW,
+                        BATCH_MIN_SIZE_DOC,
+                        WRITES_GROUP,
+                        ++orderInGroup,
+                        ConfigDef.Width.SHORT,
+                        BATCH_MIN_SIZE_DISPLAY
+                )
+                .define(
+                        BATCH_TARGET_LATENCY_MS,
+                        ConfigDef.Type.LONG,
+                        BATCH_TARGET_LATENCY_MS_DEFAULT,
+                        ConfigDef.Range.atLeast(1),
+                        ConfigDef.Importance.LOW,
+                        BATCH_TARGET_LATENCY_MS_DOC,
+                        WRITES_GROUP,
+                        ++orderInGroup,
+                        ConfigDef.Width.SHORT,
+                        BATCH_TARGET_LATENCY_MS_DISPLAY
+                )
+                .define(
+                        BATCH_SORT,
+                        ConfigDef.Type.BOOLEAN,
+                        false,
+                        ConfigDef.Importance.LOW,
+                        BATCH_SORT_DOC,
+                        WRITES_GROUP,
+                        ++orderInGroup,
+                        ConfigDef.Width.SHORT,
+                        BATCH_SORT_DISPLAY
+                )
+                .define(
+                        VGROUP_ROUTING,
+                        ConfigDef.Type.BOOLEAN,
+                        false,
+                        ConfigDef.Importance.LOW,
+                        VGROUP_ROUTING_DOC,
+                        WRITES_GROUP,
+                        ++orderInGroup,
+                        ConfigDef.Width.SHORT,
+                        VGROUP_ROUTING_DISPLAY
+                )
+                .define(
+                        VGROUP_ROUTING_THREADS,
+                        ConfigDef.Type.INT,
+                        VGROUP_ROUTING_THREADS_DEFAULT,
+                        ConfigDef.Range.atLeast(1),
+                        ConfigDef.Importance.LOW,
+                        VGROUP_ROUTING_THREADS_DOC,
+                        WRITES_GROUP,
+                        ++orderInGroup,
+                        ConfigDef.Width.SHORT,
+                        VGROUP_ROUTING_THREADS_DISPLAY
+                )
+                .define(
+                        LINGER_MS,
+                        ConfigDef.Type.LONG,
+                        LINGER_MS_DEFAULT,
+                        ConfigDef.Range.atLeast(0),
+                        ConfigDef.Importance.MEDIUM,
+                        LINGER_MS_DOC,
+                        WRITES_GROUP,
+                        ++orderInGroup,
+                        ConfigDef.Width.SHORT,
+                        LINGER_MS_DISPLAY
+                )
+                .define(
+                        WRITER_THREADS,
+                        ConfigDef.Type.INT,
+                        WRITER_THREADS_DEFAULT,
+                        ConfigDef.Range.atLeast(1),
+                        ConfigDef.Importance.MEDIUM,
+                        WRITER_THREADS_DOC,
+                        WRITES_GROUP,
+                        ++orderInGroup,
+                        ConfigDef.Width.SHORT,
+                        WRITER_THREADS_DISPLAY
+                )
+                .define(
+                        MAX_BUFFERED_RECORDS,
+                        ConfigDef.Type.INT,
+                        MAX_BUFFERED_RECORDS_DEFAULT,
+                        ConfigDef.Range.atLeast(1),
+                        ConfigDef.Importance.LOW,
+                        MAX_BUFFERED_RECORDS_DOC,
+                        WRITES_GROUP,
+                        ++orderInGroup,
+                        ConfigDef.Width.SHORT,
+                        MAX_BUFFERED_RECORDS_DISPLAY
+                )
                 .define(
                         MAX_RETRIES,
                         ConfigDef.Type.INT,
@@ -133,6 +749,42 @@ public class SinkConfig extends ConnectionConfig {
                         ConfigDef.Width.SHORT,
                         RETRY_BACKOFF_MS_DISPLAY
                 )
+                .define(
+                        RETRY_BACKOFF_MAX_MS,
+                        ConfigDef.Type.LONG,
+                        RETRY_BACKOFF_MAX_MS_DEFAULT,
+                        ConfigDef.Range.atLeast(0),
+                        ConfigDef.Importance.LOW,
+                        RETRY_BACKOFF_MAX_MS_DOC,
+                        WRITES_GROUP,
+                        ++orderInGroup,
+                        ConfigDef.Width.SHORT,
+                        RETRY_BACKOFF_MAX_MS_DISPLAY
+                )
+                .define(
+                        SLOW_BATCH_LOG_MS,
+                        ConfigDef.Type.LONG,
+                        SLOW_BATCH_LOG_MS_DEFAULT,
+                        ConfigDef.Range.atLeast(0),
+                        ConfigDef.Importance.LOW,
+                        SLOW_BATCH_LOG_MS_DOC,
+                        WRITES_GROUP,
+                        ++orderInGroup,
+                        ConfigDef.Width.SHORT,
+                        SLOW_BATCH_LOG_MS_DISPLAY
+                )
+                .define(
+                        SLOW_BATCH_LOG_INTERVAL_MS,
+                        ConfigDef.Type.LONG,
+                        SLOW_BATCH_LOG_INTERVAL_MS_DEFAULT,
+                        ConfigDef.Range.atLeast(0),
+                        ConfigDef.Importance.LOW,
+                        SLOW_BATCH_LOG_INTERVAL_MS_DOC,
+                        WRITES_GROUP,
+                        ++orderInGroup,
+                        ConfigDef.Width.SHORT,
+                        SLOW_BATCH_LOG_INTERVAL_MS_DISPLAY
+                )
                 .define(
                         DB_SCHEMALESS_CONFIG,
                         ConfigDef.Type.STRING,
@@ -145,6 +797,87 @@ public class SinkConfig extends ConnectionConfig {
                         ConfigDef.Width.SHORT,
                         DB_SCHEMALESS_CONFIG_DISPLAY
                 )
+                .define(
+                        DB_WRITE_MODE,
+                        ConfigDef.Type.STRING,
+                        DB_WRITE_MODE_DEFAULT,
+                        WriteModeValidator.INSTANCE,
+                        ConfigDef.Importance.MEDIUM,
+                        DB_WRITE_MODE_DOC,
+                        WRITES_GROUP,
+                        ++orderInGroup,
+                        ConfigDef.Width.SHORT,
+                        DB_WRITE_MODE_DISPLAY
+                )
+                .define(
+                        DB_SQL_MAX_LENGTH,
+                        ConfigDef.Type.INT,
+                        DB_SQL_MAX_LENGTH_DEFAULT,
+                        ConfigDef.Range.between(1024, 64 * 1024 * 1024),
+                        ConfigDef.Importance.LOW,
+                        DB_SQL_MAX_LENGTH_DOC,
+                        WRITES_GROUP,
+                        ++orderInGroup,
+                        ConfigDef.Width.SHORT,
+                        DB_SQL_MAX_LENGTH_DISPLAY
+                )
+                .define(
+                        DB_FILE_DIR,
+                        ConfigDef.Type.STRING,
+                        DB_FILE_DIR_DEFAULT,
+                        ConfigDef.Importance.LOW,
+                        DB_FILE_DIR_DOC,
+                        WRITES_GROUP,
+                        ++orderInGroup,
+                        ConfigDef.Width.LONG,
+                        DB_FILE_DIR_DISPLAY
+                )
+                .define(
+                        DB_FILE_SEGMENT_BYTES,
+                        ConfigDef.Type.INT,
+                        DB_FILE_SEGMENT_BYTES_DEFAULT,
+                        ConfigDef.Range.atLeast(1024),
+                        ConfigDef.Importance.LOW,
+                        DB_FILE_SEGMENT_BYTES_DOC,
+                        WRITES_GROUP,
+                        ++orderInGroup,
+                        ConfigDef.Width.SHORT,
+                        DB_FILE_SEGMENT_BYTES_DISPLAY
+                )
+                .define(
+                        DB_SCHEMALESS_RAW,
+                        ConfigDef.Type.BOOLEAN,
+                        false,
+                        ConfigDef.Importance.LOW,
+                        DB_SCHEMALESS_RAW_DOC,
+                        WRITES_GROUP,
+                        ++orderInGroup,
+                        ConfigDef.Width.SHORT,
+                        DB_SCHEMALESS_RAW_DISPLAY
+                )
+                .define(
+                        DB_SCHEMALESS_JSON_MERGE,
+                        ConfigDef.Type.BOOLEAN,
+                        false,
+                        ConfigDef.Importance.LOW,
+                        DB_SCHEMALESS_JSON_MERGE_DOC,
+                        WRITES_GROUP,
+                        ++orderInGroup,
+                        ConfigDef.Width.SHORT,
+                        DB_SCHEMALESS_JSON_MERGE_DISPLAY
+                )
+                .define(
+                        DB_SCHEMALESS_JSON_MAX_BYTES,
+                        ConfigDef.Type.INT,
+                        DB_SCHEMALESS_JSON_MAX_BYTES_DEFAULT,
+                        ConfigDef.Range.between(1024, 64 * 1024 * 1024),
+                        ConfigDef.Importance.LOW,
+                        DB_SCHEMALESS_JSON_MAX_BYTES_DOC,
+                        WRITES_GROUP,
+                        ++orderInGroup,
+                        ConfigDef.Width.SHORT,
+                        DB_SCHEMALESS_JSON_MAX_BYTES_DISPLAY
+                )
                 .define(
                         CONNECTION_PREFIX_CONFIG,
                         ConfigDef.Type.STRING,
@@ -156,6 +889,373 @@ public class SinkConfig extends ConnectionConfig {
                         ConfigDef.Width.MEDIUM,
                         CONNECTION_PREFIX_DISPLAY
                 )
+                .define(
+                        DB_CACHE_SIZE,
+                        ConfigDef.Type.INT,
+                        DB_CACHE_SIZE_DEFAULT,
+                        ConfigDef.Range.atLeast(1),
+                        ConfigDef.Importance.LOW,
+                        DB_CACHE_SIZE_DOC,
+                        WRITES_GROUP,
+                        ++orderInGroup,
+                        ConfigDef.Width.SHORT,
+                        DB_CACHE_SIZE_DISPLAY
+                )
+                .define(
+                        CONNECTION_POOL_ENABLED,
+                        ConfigDef.Type.BOOLEAN,
+                        false,
+                        ConfigDef.Importance.MEDIUM,
+                        CONNECTION_POOL_ENABLED_DOC,
+                        POOL_GROUP,
+                        ++poolOrderInGroup,
+                        ConfigDef.Width.SHORT,
+                        CONNECTION_POOL_ENABLED_DISPLAY
+                )
+                .define(
+                        CONNECTION_POOL_MAX_PER_DATABASE,
+                        ConfigDef.Type.INT,
+                        CONNECTION_POOL_MAX_PER_DATABASE_DEFAULT,
+                        ConfigDef.Range.atLeast(1),
+                        ConfigDef.Importance.LOW,
+                        CONNECTION_POOL_MAX_PER_DATABASE_DOC,
+                        POOL_GROUP,
+                        ++poolOrderInGroup,
+                        ConfigDef.Width.SHORT,
+                        CONNECTION_POOL_MAX_PER_DATABASE_DISPLAY
+                )
+                .define(
+                        CONNECTION_POOL_MAX_TOTAL,
+                        ConfigDef.Type.INT,
+                        CONNECTION_POOL_MAX_TOTAL_DEFAULT,
+                        ConfigDef.Range.atLeast(1),
+                        ConfigDef.Importance.LOW,
+                        CONNECTION_POOL_MAX_TOTAL_DOC,
+                        POOL_GROUP,
+                        ++poolOrderInGroup,
+                        ConfigDef.Width.SHORT,
+                        CONNECTION_POOL_MAX_TOTAL_DISPLAY
+                )
+                .define(
+                        CONNECTION_POOL_IDLE_TIMEOUT_MS,
+                        ConfigDef.Type.LONG,
+                        CONNECTION_POOL_IDLE_TIMEOUT_MS_DEFAULT,
+                        ConfigDef.Range.atLeast(0),
+                        ConfigDef.Importance.LOW,
+                        CONNECTION_POOL_IDLE_TIMEOUT_MS_DOC,
+                        POOL_GROUP,
+                        ++poolOrderInGroup,
+                        ConfigDef.Width.SHORT,
+                        CONNECTION_POOL_IDLE_TIMEOUT_MS_DISPLAY
+                )
+                .define(
+                        CONNECTION_POOL_BORROW_TIMEOUT_MS,
+                        ConfigDef.Type.LONG,
+                        CONNECTION_POOL_BORROW_TIMEOUT_MS_DEFAULT,
+                        ConfigDef.Range.atLeast(0),
+                        ConfigDef.Importance.LOW,
+                        CONNECTION_POOL_BORROW_TIMEOUT_MS_DOC,
+                        POOL_GROUP,
+                        ++poolOrderInGroup,
+                        ConfigDef.Width.SHORT,
+                        CONNECTION_POOL_BORROW_TIMEOUT_MS_DISPLAY
+                )
+                .define(
+                        RECORD_TABLE_FIELD,
+                        ConfigDef.Type.STRING,
+                        RECORD_TABLE_FIELD_DEFAULT,
+                        ConfigDef.Importance.MEDIUM,
+                        RECORD_TABLE_FIELD_DOC,
+                        MAPPING_GROUP,
+                        ++mappingOrderInGroup,
+                        ConfigDef.Width.MEDIUM,
+                        RECORD_TABLE_FIELD_DISPLAY
+                )
+                .define(
+                        RECORD_STABLE,
+                        ConfigDef.Type.STRING,
+                        RECORD_STABLE_DEFAULT,
+                        ConfigDef.Importance.MEDIUM,
+                        RECORD_STABLE_DOC,
+                        MAPPING_GROUP,
+                        ++mappingOrderInGroup,
+                        ConfigDef.Width.MEDIUM,
+                        RECORD_STABLE_DISPLAY
+                )
+                .define(
+                        RECORD_TIMESTAMP_FIELD,
+                        ConfigDef.Type.STRING,
+                        RECORD_TIMESTAMP_FIELD_DEFAULT,
+                        ConfigDef.Importance.LOW,
+                        RECORD_TIMESTAMP_FIELD_DOC,
+                        MAPPING_GROUP,
+                        ++mappingOrderInGroup,
+                        ConfigDef.Width.MEDIUM,
+                        RECORD_TIMESTAMP_FIELD_DISPLAY
+                )
+                .define(
+                        JSON_LINE_MEASUREMENT,
+                        ConfigDef.Type.STRING,
+                        JSON_LINE_MEASUREMENT_DEFAULT,
+                        ConfigDef.Importance.LOW,
+                        JSON_LINE_MEASUREMENT_DOC,
+                        MAPPING_GROUP,
+                        ++mappingOrderInGroup,
+                        ConfigDef.Width.MEDIUM,
+                        JSON_LINE_MEASUREMENT_DISPLAY
+                )
+                .define(
+                        JSON_LINE_MEASUREMENT_FIELD,
+                        ConfigDef.Type.STRING,
+                        JSON_LINE_MEASUREMENT_FIELD_DEFAULT,
+                        ConfigDef.Importance.LOW,
+                        JSON_LINE_MEASUREMENT_FIELD_DOC,
+                        MAPPING_GROUP,
+                        ++mappingOrderInGroup,
+                        ConfigDef.Width.MEDIUM,
+                        JSON_LINE_MEASUREMENT_FIELD_DISPLAY
+                )
+                .define(
+                        JSON_LINE_TAGS,
+                        ConfigDef.Type.LIST,
+                        Collections.emptyList(),
+                        ConfigDef.Importance.LOW,
+                        JSON_LINE_TAGS_DOC,
+                        MAPPING_GROUP,
+                        ++mappingOrderInGroup,
+                        ConfigDef.Width.LONG,
+                        JSON_LINE_TAGS_DISPLAY
+                )
+                .define(
+                        JSON_LINE_FIELDS,
+                        ConfigDef.Type.LIST,
+                        Collections.emptyList(),
+                        ConfigDef.Importance.LOW,
+                        JSON_LINE_FIELDS_DOC,
+                        MAPPING_GROUP,
+                        ++mappingOrderInGroup,
+                        ConfigDef.Width.LONG,
+                        JSON_LINE_FIELDS_DISPLAY
+                )
+                .define(
+                        JSON_LINE_TIMESTAMP_FIELD,
+                        ConfigDef.Type.STRING,
+                        JSON_LINE_TIMESTAMP_FIELD_DEFAULT,
+                        ConfigDef.Importance.LOW,
+                        JSON_LINE_TIMESTAMP_FIELD_DOC,
+                        MAPPING_GROUP,
+                        ++mappingOrderInGroup,
+                        ConfigDef.Width.MEDIUM,
+                        JSON_LINE_TIMESTAMP_FIELD_DISPLAY
+                )
+                .define(
+                        JSON_LINE_INTEGERS,
+                        ConfigDef.Type.BOOLEAN,
+                        false,
+                        ConfigDef.Importance.LOW,
+                        JSON_LINE_INTEGERS_DOC,
+                        MAPPING_GROUP,
+                        ++mappingOrderInGroup,
+                        ConfigDef.Width.SHORT,
+                        JSON_LINE_INTEGERS_DISPLAY
+                )
+                .define(
+                        SPILL_ENABLED,
+                        ConfigDef.Type.BOOLEAN,
+                        false,
+                        ConfigDef.Importance.LOW,
+                        SPILL_ENABLED_DOC,
+                        SPILL_GROUP,
+                        ++spillOrderInGroup,
+                        ConfigDef.Width.SHORT,
+                        SPILL_ENABLED_DISPLAY
+                )
+                .define(
+                        SPILL_DIR,
+                        ConfigDef.Type.STRING,
+                        SPILL_DIR_DEFAULT,
+                        ConfigDef.Importance.LOW,
+                        SPILL_DIR_DOC,
+                        SPILL_GROUP,
+                        ++spillOrderInGroup,
+                        ConfigDef.Width.LONG,
+                        SPILL_DIR_DISPLAY
+                )
+                .define(
+                        SPILL_SEGMENT_BYTES,
+                        ConfigDef.Type.INT,
+                        SPILL_SEGMENT_BYTES_DEFAULT,
+                        ConfigDef.Range.between(1024 * 1024, 1024 * 1024 * 1024),
+                        ConfigDef.Importance.LOW,
+                        SPILL_SEGMENT_BYTES_DOC,
+                        SPILL_GROUP,
+                        ++spillOrderInGroup,
+                        ConfigDef.Width.SHORT,
+                        SPILL_SEGMENT_BYTES_DISPLAY
+                )
+                .define(
+                        SPILL_MAX_BYTES,
+                        ConfigDef.Type.LONG,
+                        SPILL_MAX_BYTES_DEFAULT,
+                        ConfigDef.Range.atLeast(1024 * 1024),
+                        ConfigDef.Importance.LOW,
+                        SPILL_MAX_BYTES_DOC,
+                        SPILL_GROUP,
+                        ++spillOrderInGroup,
+                        ConfigDef.Width.SHORT,
+                        SPILL_MAX_BYTES_DISPLAY
+                )
+                .define(
+                        CIRCUIT_BREAKER_ENABLED,
+                        ConfigDef.Type.BOOLEAN,
+                        false,
+                        ConfigDef.Importance.LOW,
+                        CIRCUIT_BREAKER_ENABLED_DOC,
+                        CIRCUIT_BREAKER_GROUP,
+                        ++circuitBreakerOrderInGroup,
+                        ConfigDef.Width.SHORT,
+                        CIRCUIT_BREAKER_ENABLED_DISPLAY
+                )
+                .define(
+                        CIRCUIT_BREAKER_WINDOW,
+                        ConfigDef.Type.INT,
+                        CIRCUIT_BREAKER_WINDOW_DEFAULT,
+                        ConfigDef.Range.atLeast(1),
+                        ConfigDef.Importance.LOW,
+                        CIRCUIT_BREAKER_WINDOW_DOC,
+                        CIRCUIT_BREAKER_GROUP,
+                        ++circuitBreakerOrderInGroup,
+                        ConfigDef.Width.SHORT,
+                        CIRCUIT_BREAKER_WINDOW_DISPLAY
+                )
+                .define(
+                        CIRCUIT_BREAKER_FAILURE_RATIO,
+                        ConfigDef.Type.DOUBLE,
+                        CIRCUIT_BREAKER_FAILURE_RATIO_DEFAULT,
+                        ConfigDef.Range.between(0.01, 1.0),
+                        ConfigDef.Importance.LOW,
+                        CIRCUIT_BREAKER_FAILURE_RATIO_DOC,
+                        CIRCUIT_BREAKER_GROUP,
+                        ++circuitBreakerOrderInGroup,
+                        ConfigDef.Width.SHORT,
+                        CIRCUIT_BREAKER_FAILURE_RATIO_DISPLAY
+                )
+                .define(
+                        CIRCUIT_BREAKER_SLOW_MS,
+                        ConfigDef.Type.LONG,
+                        CIRCUIT_BREAKER_SLOW_MS_DEFAULT,
+                        ConfigDef.Range.atLeast(0),
+                        ConfigDef.Importance.LOW,
+                        CIRCUIT_BREAKER_SLOW_MS_DOC,
+                        CIRCUIT_BREAKER_GROUP,
+                        ++circuitBreakerOrderInGroup,
+                        ConfigDef.Width.SHORT,
+                        CIRCUIT_BREAKER_SLOW_MS_DISPLAY
+                )
+                .define(
+                        CIRCUIT_BREAKER_OPEN_MS,
+                        ConfigDef.Type.LONG,
+                        CIRCUIT_BREAKER_OPEN_MS_DEFAULT,
+                        ConfigDef.Range.atLeast(0),
+                        ConfigDef.Importance.LOW,
+                        CIRCUIT_BREAKER_OPEN_MS_DOC,
+                        CIRCUIT_BREAKER_GROUP,
+                        ++circuitBreakerOrderInGroup,
+                        ConfigDef.Width.SHORT,
+                        CIRCUIT_BREAKER_OPEN_MS_DISPLAY
+                )
+                .define(
+                        OFFSETS_STORAGE_ENABLED,
+                        ConfigDef.Type.BOOLEAN,
+                        false,
+                        ConfigDef.Importance.LOW,
+                        OFFSETS_STORAGE_ENABLED_DOC,
+                        OFFSETS_GROUP,
+                        ++offsetsOrderInGroup,
+                        ConfigDef.Width.SHORT,
+                        OFFSETS_STORAGE_ENABLED_DISPLAY
+                )
+                .define(
+                        OFFSETS_STORAGE_DATABASE,
+                        ConfigDef.Type.STRING,
+                        OFFSETS_STORAGE_DATABASE_DEFAULT,
+                        ConfigDef.Importance.LOW,
+                        OFFSETS_STORAGE_DATABASE_DOC,
+                        OFFSETS_GROUP,
+                        ++offsetsOrderInGroup,
+                        ConfigDef.Width.MEDIUM,
+                        OFFSETS_STORAGE_DATABASE_DISPLAY
+                )
+                .define(
+                        OFFSETS_STORAGE_STABLE,
+                        ConfigDef.Type.STRING,
+                        OFFSETS_STORAGE_STABLE_DEFAULT,
+                        ConfigDef.Importance.LOW,
+                        OFFSETS_STORAGE_STABLE_DOC,
+                        OFFSETS_GROUP,
+                        ++offsetsOrderInGroup,
+                        ConfigDef.Width.MEDIUM,
+                        OFFSETS_STORAGE_STABLE_DISPLAY
+                )
+                .define(
+                        OFFSETS_STORAGE_INTERVAL_MS,
+                        ConfigDef.Type.LONG,
+                        OFFSETS_STORAGE_INTERVAL_MS_DEFAULT,
+                        ConfigDef.Range.atLeast(0),
+                        ConfigDef.Importance.LOW,
+                        OFFSETS_STORAGE_INTERVAL_MS_DOC,
+                        OFFSETS_GROUP,
+                        ++offsetsOrderInGroup,
+                        ConfigDef.Width.SHORT,
+                        OFFSETS_STORAGE_INTERVAL_MS_DISPLAY
+                )
+                .define(
+                        PRIORITY_TOPICS,
+                        ConfigDef.Type.LIST,
+                        Collections.emptyList(),
+                        ConfigDef.Importance.LOW,
+                        PRIORITY_TOPICS_DOC,
+                        PRIORITY_GROUP,
+                        ++priorityOrderInGroup,
+                        ConfigDef.Width.LONG,
+                        PRIORITY_TOPICS_DISPLAY
+                )
+                .define(
+                        PRIORITY_WRITER_THREADS,
+                        ConfigDef.Type.INT,
+                        PRIORITY_WRITER_THREADS_DEFAULT,
+                        ConfigDef.Range.atLeast(1),
+                        ConfigDef.Importance.LOW,
+                        PRIORITY_WRITER_THREADS_DOC,
+                        PRIORITY_GROUP,
+                        ++priorityOrderInGroup,
+                        ConfigDef.Width.SHORT,
+                        PRIORITY_WRITER_THREADS_DISPLAY
+                )
+                .define(
+                        PRIORITY_BATCH_SIZE,
+                        ConfigDef.Type.INT,
+                        PRIORITY_BATCH_SIZE_DEFAULT,
+                        ConfigDef.Range.atLeast(0),
+                        ConfigDef.Importance.LOW,
+                        PRIORITY_BATCH_SIZE_DOC,
+                        PRIORITY_GROUP,
+                        ++priorityOrderInGroup,
+                        ConfigDef.Width.SHORT,
+                        PRIORITY_BATCH_SIZE_DISPLAY
+                )
+                .define(
+                        PRIORITY_LINGER_MS,
+                        ConfigDef.Type.LONG,
+                        PRIORITY_LINGER_MS_DEFAULT,
+                        ConfigDef.Range.atLeast(0),
+                        ConfigDef.Importance.LOW,
+                        PRIORITY_LINGER_MS_DOC,
+                        PRIORITY_GROUP,
+                        ++priorityOrderInGroup,
+                        ConfigDef.Width.SHORT,
+                        PRIORITY_LINGER_MS_DISPLAY
+                )
                 .define(
                         CHARSET_CONF,
                         ConfigDef.Type.STRING,
@@ -179,10 +1279,62 @@ public class SinkConfig extends ConnectionConfig {
         return retryBackoffMs;
     }
 
+    public long getRetryBackoffMaxMs() {
+        return retryBackoffMaxMs;
+    }
+
+    public long getSlowBatchLogMs() {
+        return slowBatchLogMs;
+    }
+
+    public long getSlowBatchLogIntervalMs() {
+        return slowBatchLogIntervalMs;
+    }
+
     public int getBatchSize() {
         return batchSize;
     }
 
+    public long getBatchMaxBytes() {
+        return batchMaxBytes;
+    }
+
+    public boolean isBatchAdaptive() {
+        return batchAdaptive;
+    }
+
+    public int getBatchMinSize() {
+        return batchMinSize;
+    }
+
+    public long getBatchTargetLatencyMs() {
+        return batchTargetLatencyMs;
+    }
+
+    public boolean isBatchSort() {
+        return batchSort;
+    }
+
+    public boolean isVgroupRouting() {
+        return vgroupRouting;
+    }
+
+    public int getVgroupRoutingThreads() {
+        return vgroupRoutingThreads;
+    }
+
+    public long getLingerMs() {
+        return lingerMs;
+    }
+
+    public int getWriterThreads() {
+        return writerThreads;
+    }
+
+    public int getMaxBufferedRecords() {
+        return maxBufferedRecords;
+    }
+
     public String getCharset() {
         return charset;
     }
@@ -191,6 +1343,77 @@ public class SinkConfig extends ConnectionConfig {
         return schemalessTypeFormat;
     }
 
+    public boolean isSchemalessRaw() {
+        return schemalessRaw;
+    }
+
+    public boolean isSchemalessJsonMerge() {
+        return schemalessJsonMerge;
+    }
+
+    public int getSchemalessJsonMaxBytes() {
+        return schemalessJsonMaxBytes;
+    }
+
+    public WriteModeEnum getWriteMode() {
+        return writeMode;
+    }
+
+    public int getSqlMaxLength() {
+        return sqlMaxLength;
+    }
+
+    public String getFileDir() {
+        return fileDir;
+    }
+
+    public int getFileSegmentBytes() {
+        return fileSegmentBytes;
+    }
+
+    public String getRecordTableField() {
+        return recordTableField;
+    }
+
+    public String getRecordStable() {
+        return recordStable;
+    }
+
+    public String getRecordTimestampField() {
+        return recordTimestampField;
+    }
+
+    /**
+     * @return true if json record values are encoded as line protocol
+     */
+    public boolean isJsonLine() {
+        return !jsonLineMeasurement.isEmpty() || !jsonLineMeasurementField.isEmpty();
+    }
+
+    public String getJsonLineMeasurement() {
+        return jsonLineMeasurement;
+    }
+
+    public String getJsonLineMeasurementField() {
+        return jsonLineMeasurementField;
+    }
+
+    public List<String> getJsonLineTags() {
+        return jsonLineTags;
+    }
+
+    public List<String> getJsonLineFields() {
+        return jsonLineFields;
+    }
+
+    public String getJsonLineTimestampField() {
+        return jsonLineTimestampField;
+    }
+
+    public boolean isJsonLineIntegers() {
+        return jsonLineIntegers;
+    }
+
     public boolean isSingleDatabase() {
         return !"".equals(getConnectionDb());
     }
@@ -198,4 +1421,126 @@ public class SinkConfig extends ConnectionConfig {
     public String getConnectionDatabasePrefix() {
         return connectionDatabasePrefix;
     }
+
+    public int getDbCacheSize() {
+        return dbCacheSize;
+    }
+
+    public boolean isConnectionPoolEnabled() {
+        return connectionPoolEnabled;
+    }
+
+    public int getConnectionPoolMaxPerDatabase() {
+        return connectionPoolMaxPerDatabase;
+    }
+
+    public int getConnectionPoolMaxTotal() {
+        return connectionPoolMaxTotal;
+    }
+
+    public long getConnectionPoolIdleTimeoutMs() {
+        return connectionPoolIdleTimeoutMs;
+    }
+
+    public long getConnectionPoolBorrowTimeoutMs() {
+        return connectionPoolBorrowTimeoutMs;
+    }
+
+    public boolean isSpillEnabled() {
+        return spillEnabled;
+    }
+
+    public String getSpillDir() {
+        return spillDir;
+    }
+
+    public int getSpillSegmentBytes() {
+        return spillSegmentBytes;
+    }
+
+    public long getSpillMaxBytes() {
+        return spillMaxBytes;
+    }
+
+    public boolean isCircuitBreakerEnabled() {
+        return circuitBreakerEnabled;
+    }
+
+    public int getCircuitBreakerWindow() {
+        return circuitBreakerWindow;
+    }
+
+    public double getCircuitBreakerFailureRatio() {
+        return circuitBreakerFailureRatio;
+    }
+
+    public long getCircuitBreakerSlowMs() {
+        return circuitBreakerSlowMs;
+    }
+
+    public long getCircuitBreakerOpenMs() {
+        return circuitBreakerOpenMs;
+    }
+
+    public boolean isOffsetsStorageEnabled() {
+        return offsetsStorageEnabled;
+    }
+
+    /**
+     * @return the database of the offset super table, connection.database if it is not set
+     */
+    public String getOffsetsStorageDatabase() {
+        return offsetsStorageDatabase.isEmpty() ? getConnectionDb() : offsetsStorageDatabase;
+    }
+
+    public String getOffsetsStorageStable() {
+        return offsetsStorageStable;
+    }
+
+    public long getOffsetsStorageIntervalMs() {
+        return offsetsStorageIntervalMs;
+    }
+
+    public List<String> getPriorityTopics() {
+        return priorityTopics;
+    }
+
+    public int getPriorityWriterThreads() {
+        return priorityWriterThreads;
+    }
+
+    public int getPriorityBatchSize() {
+        return priorityBatchSize;
+    }
+
+    public long getPriorityLingerMs() {
+        return priorityLingerMs;
+    }
+
+    /**
+     * @return the config of the topic with its {@code topic.<name>.<config>} overrides applied,
+     * this config if the topic has no overrides
+     */
+    public SinkConfig getTopicConfig(String topic) {
+        return topicConfigs.getOrDefault(topic, this);
+    }
+
+    /**
+     * @return true if the config is overridden for the topic
+     */
+    public boolean isTopicOverride(String topic, String name) {
+        Map<String, Object> overrides = topicOverrides.get(topic);
+        return overrides != null && overrides.containsKey(name);
+    }
+
+    /**
+     * @return the schemaless protocols of all topics, the one of db.schemaless and the ones of the topic overrides
+     */
+    public Set<SchemalessProtocolType> getSchemalessProtocols() {
+        Set<SchemalessProtocolType> protocols = EnumSet.of(schemalessTypeFormat);
+        for (SinkConfig topicConfig : topicConfigs.values()) {
+            protocols.add(topicConfig.getSchemalessTypeFormat());
+        }
+        return protocols;
+    }
 }
@@ -0,0 +1,262 @@
+package com.taosdata.kafka.connect.sink;
+
+import com.taosdata.kafka.connect.util.LogHistogram;
+import com.taosdata.kafka.connect.util.RateMeter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * metrics of the write path of a sink task, shared by its writer threads.
+ * recording does not allocate, so it can be called for every batch and record.
+ */
+public class SinkTaskMetrics implements SinkTaskMetricsMBean {
+    private static final Logger log = LoggerFactory.getLogger(SinkTaskMetrics.class);
+
+    private static final String DOMAIN = "com.taosdata.kafka.connect";
+    private static final int RATE_WINDOW_SECONDS = 60;
+    private static final double NANOS_PER_MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final LongAdder records = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final RateMeter recordRate = new RateMeter(RATE_WINDOW_SECONDS);
+    private final RateMeter byteRate = new RateMeter(RATE_WINDOW_SECONDS);
+    private final LogHistogram batchSizes = new LogHistogram();
+    private final LogHistogram writeLatencyNanos = new LogHistogram();
+    private final LogHistogram freshnessMs = new LogHistogram();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder errantRecords = new LongAdder();
+    private final LongAdder spilledRecords = new LongAdder();
+    private final LongAdder replayedRecords = new LongAdder();
+    private final LongAdder circuitBreakerOpens = new LongAdder();
+    private final LongAdder databaseSwitches = new LongAdder();
+    private final LongAdder databaseSelectNanos = new LongAdder();
+    private final LongAdder conversionNanos = new LongAdder();
+    private final LongAdder insertNanos = new LongAdder();
+
+    private ObjectName name;
+
+    /**
+     * register the metrics as mbean com.taosdata.kafka.connect:type=sink-task-metrics,connector=*,task=*
+     */
+    public void register(String connector, String task) {
+        try {
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=sink-task-metrics,connector="
+                    + ObjectName.quote(String.valueOf(connector)) + ",task=" + ObjectName.quote(String.valueOf(task)));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                // left behind by a task which did not stop cleanly
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(this, objectName);
+            name = objectName;
+        } catch (JMException e) {
+            log.warn("Unable to register sink task metrics", e);
+        }
+    }
+
+    public void unregister() {
+        if (name == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            log.warn("Unable to unregister sink task metrics", e);
+        } finally {
+            name = null;
+        }
+    }
+
+    public void recordDatabaseSelect(boolean switched, long nanos) {
+        if (switched) {
+            databaseSwitches.increment();
+        }
+        databaseSelectNanos.add(nanos);
+    }
+
+    public void recordConversion(long nanos) {
+        conversionNanos.add(nanos);
+    }
+
+    public void recordInsert(long nanos) {
+        insertNanos.add(nanos);
+        writeLatencyNanos.record(nanos);
+    }
+
+    /**
+     * a batch has been acknowledged by TDengine
+     */
+    public void recordBatch(int recordCount, long byteCount) {
+        records.add(recordCount);
+        bytes.add(byteCount);
+        recordRate.record(recordCount);
+        byteRate.record(byteCount);
+        batchSizes.record(recordCount);
+    }
+
+    public void recordFreshness(long ms) {
+        freshnessMs.record(ms);
+    }
+
+    public void recordRetry() {
+        retries.increment();
+    }
+
+    public void recordErrant() {
+        errantRecords.increment();
+    }
+
+    public void recordSpill(int records) {
+        spilledRecords.add(records);
+    }
+
+    public void recordReplay(int records) {
+        replayedRecords.add(records);
+    }
+
+    public void recordCircuitBreakerOpen() {
+        circuitBreakerOpens.increment();
+    }
+
+    @Override
+    public long getRecordsWritten() {
+        return records.sum();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytes.sum();
+    }
+
+    @Override
+    public double getRecordsPerSecond() {
+        return recordRate.rate();
+    }
+
+    @Override
+    public double getBytesPerSecond() {
+        return byteRate.rate();
+    }
+
+    @Override
+    public long getBatchesWritten() {
+        return batchSizes.count();
+    }
+
+    @Override
+    public double getBatchSizeAvg() {
+        return batchSizes.mean();
+    }
+
+    @Override
+    public long getBatchSizeP50() {
+        return batchSizes.percentile(50);
+    }
+
+    @Override
+    public long getBatchSizeP99() {
+        return batchSizes.percentile(99);
+    }
+
+    @Override
+    public long getBatchSizeMax() {
+        return batchSizes.max();
+    }
+
+    @Override
+    public double getWriteLatencyAvgMs() {
+        return writeLatencyNanos.mean() / NANOS_PER_MS;
+    }
+
+    @Override
+    public double getWriteLatencyP50Ms() {
+        return writeLatencyNanos.percentile(50) / NANOS_PER_MS;
+    }
+
+    @Override
+    public double getWriteLatencyP95Ms() {
+        return writeLatencyNanos.percentile(95) / NANOS_PER_MS;
+    }
+
+    @Override
+    public double getWriteLatencyP99Ms() {
+        return writeLatencyNanos.percentile(99) / NANOS_PER_MS;
+    }
+
+    @Override
+    public double getWriteLatencyP999Ms() {
+        return writeLatencyNanos.percentile(99.9) / NANOS_PER_MS;
+    }
+
+    @Override
+    public double getWriteLatencyMaxMs() {
+        return writeLatencyNanos.max() / NANOS_PER_MS;
+    }
+
+    @Override
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    @Override
+    public long getErrantRecords() {
+        return errantRecords.sum();
+    }
+
+    @Override
+    public long getSpilledRecords() {
+        return spilledRecords.sum();
+    }
+
+    @Override
+    public long getReplayedRecords() {
+        return replayedRecords.sum();
+    }
+
+    @Override
+    public long getCircuitBreakerOpens() {
+        return circuitBreakerOpens.sum();
+    }
+
+    @Override
+    public long getDatabaseSwitches() {
+        return databaseSwitches.sum();
+    }
+
+    @Override
+    public long getDatabaseSelectTimeMs() {
+        return TimeUnit.NANOSECONDS.toMillis(databaseSelectNanos.sum());
+    }
+
+    @Override
+    public long getConversionTimeMs() {
+        return TimeUnit.NANOSECONDS.toMillis(conversionNanos.sum());
+    }
+
+    @Override
+    public long getInsertTimeMs() {
+        return TimeUnit.NANOSECONDS.toMillis(insertNanos.sum());
+    }
+
+    @Override
+    public long getFreshnessP50Ms() {
+        return freshnessMs.percentile(50);
+    }
+
+    @Override
+    public long getFreshnessP99Ms() {
+        return freshnessMs.percentile(99);
+    }
+
+    @Override
+    public long getFreshnessMaxMs() {
+        return freshnessMs.max();
+    }
+}
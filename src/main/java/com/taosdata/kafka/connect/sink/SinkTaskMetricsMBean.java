@@ -0,0 +1,91 @@
+package com.taosdata.kafka.connect.sink;
+
+/**
+ * jmx view of the write path of a sink task, times are in milliseconds
+ */
+public interface SinkTaskMetricsMBean {
+
+    long getRecordsWritten();
+
+    long getBytesWritten();
+
+    /**
+     * records per second over the last minute
+     */
+    double getRecordsPerSecond();
+
+    /**
+     * bytes per second over the last minute
+     */
+    double getBytesPerSecond();
+
+    long getBatchesWritten();
+
+    double getBatchSizeAvg();
+
+    long getBatchSizeP50();
+
+    long getBatchSizeP99();
+
+    long getBatchSizeMax();
+
+    double getWriteLatencyAvgMs();
+
+    double getWriteLatencyP50Ms();
+
+    double getWriteLatencyP95Ms();
+
+    double getWriteLatencyP99Ms();
+
+    double getWriteLatencyP999Ms();
+
+    double getWriteLatencyMaxMs();
+
+    long getRetries();
+
+    long getErrantRecords();
+
+    /**
+     * records written to the spill log while TDengine could not be reached
+     */
+    long getSpilledRecords();
+
+    /**
+     * spilled records written to TDengine from the spill log
+     */
+    long getReplayedRecords();
+
+    /**
+     * number of times the circuit breaker paused the partitions of the task
+     */
+    long getCircuitBreakerOpens();
+
+    /**
+     * number of times a writer changed the database of its connection
+     */
+    long getDatabaseSwitches();
+
+    /**
+     * total time spent selecting the database, including connection validation and reconnects
+     */
+    long getDatabaseSelectTimeMs();
+
+    /**
+     * total time spent converting records to lines
+     */
+    long getConversionTimeMs();
+
+    /**
+     * total time spent in schemaless insert calls
+     */
+    long getInsertTimeMs();
+
+    /**
+     * time from the kafka record timestamp to the write acknowledgement
+     */
+    long getFreshnessP50Ms();
+
+    long getFreshnessP99Ms();
+
+    long getFreshnessMaxMs();
+}
@@ -0,0 +1,1339 @@
+package com.taosdata.kafka.connect.sink;
+
+import com.taosdata.jdbc.enums.SchemalessProtocolType;
+import com.taosdata.jdbc.utils.ReqId;
+import com.taosdata.kafka.connect.db.ConnectionErrors;
+import com.taosdata.kafka.connect.db.Processor;
+import com.taosdata.kafka.connect.enums.WriteModeEnum;
+import com.taosdata.kafka.connect.util.ExponentialBackoff;
+import com.taosdata.kafka.connect.util.SQLUtils;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.utils.Time;
+import org.apache.kafka.connect.connector.ConnectRecord;
+import org.apache.kafka.connect.errors.ConnectException;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.sink.ErrantRecordReporter;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * buffer sink records across put calls and write them to TDengine in a background thread.
+ * records are grouped by destination database and protocol, the records of a destination are written
+ * when batch.size records are buffered or the oldest of them waited linger.ms.
+ * the destination and batch size of each topic are resolved once from its topic overrides.
+ * only offsets of records confirmed by TDengine are reported for commit.
+ */
+public class SinkWriter implements Runnable, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(SinkWriter.class);
+
+    private static final AtomicInteger WRITER_ID = new AtomicInteger();
+    private static final long IDLE_WAIT_MS = 100L;
+
+    private final SinkConfig config;
+    private final Processor processor;
+    private final ErrantRecordReporter reporter;
+    private final int capacity;
+    private final AdaptiveBatchSizer sizer;
+    private final VgroupRouter router;
+    private final SinkTaskMetrics metrics;
+    // only set when the batches are written with the raw schemaless api
+    private final RawLineBuffer rawBuffer;
+    // only set when the json records of a batch are merged into arrays
+    private final JsonArrayBuffer jsonBuffer;
+    // only set when json values are encoded as line protocol
+    private final JsonLineEncoder lineEncoder;
+    // only set when the records are Struct or Map values
+    private final RecordWriter recordWriter;
+    private final RecordValidator validator;
+    private final StableSchemaCache schemas;
+    // only set when batches are spilled to disk while TDengine can not be reached
+    private final SpillLog spillLog;
+    private final CircuitBreaker circuitBreaker;
+    private final OffsetStore offsetStore;
+    private final Time time;
+    private final ExponentialBackoff backoff;
+    private final SlowBatchLog slowBatches;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition drained = lock.newCondition();
+
+    // records waiting to be written, grouped by destination
+    private final Map<WritePlan, TargetBuffer> buffers = new LinkedHashMap<>();
+    private final Map<String, WritePlan> topicPlans = new HashMap<>();
+    private int bufferedRecords;
+    private boolean inFlight;
+    private boolean flushRequested;
+    private volatile boolean running;
+    private volatile ConnectException failure;
+
+    private final Map<TopicPartition, Long> writtenOffsets = new ConcurrentHashMap<>();
+    // records of the batch being written
+    private List<SinkRecord> inFlightRecords = Collections.emptyList();
+    // partitions revoked while the circuit breaker was open, their records of the batch being written are dropped
+    private final Set<TopicPartition> dropped = ConcurrentHashMap.newKeySet();
+    // partitions with a batch which was not written when the writer stopped, none of their offsets are committed
+    private final Set<TopicPartition> abandoned = ConcurrentHashMap.newKeySet();
+    private final Thread thread;
+    // database the processor was last switched to by this writer
+    private String currentDatabase;
+    private long lastReplayMs;
+
+    /**
+     * @param capacity  the maximum number of buffered records of this writer
+     * @param spillLog  log of the batches which could not be written, may be null
+     * @param resources collaborators shared by the writers of a task
+     */
+    public SinkWriter(SinkConfig config, Processor processor, int capacity, SpillLog spillLog,
+                      WriterResources resources) {
+        this.config = config;
+        this.processor = processor;
+        this.reporter = resources.getReporter();
+        this.capacity = capacity;
+        this.sizer = config.isBatchAdaptive() && config.getBatchSize() > 0
+                ? new AdaptiveBatchSizer(config.getBatchMinSize(), config.getBatchSize(), config.getBatchTargetLatencyMs())
+                : null;
+        boolean schemaless = config.getWriteMode() == WriteModeEnum.SCHEMALESS;
+        // topics may override the protocol, the writers are created for the protocols of all topics
+        Set<SchemalessProtocolType> protocols = config.getSchemalessProtocols();
+        boolean sortable = protocols.stream().anyMatch(LineSorter::isSupported);
+        this.router = schemaless && config.isVgroupRouting() && sortable
+                ? new VgroupRouter(processor, config.getVgroupRoutingThreads())
+                : null;
+        this.metrics = resources.getMetrics();
+        this.lineEncoder = schemaless && config.isJsonLine() && protocols.contains(SchemalessProtocolType.LINE)
+                ? new JsonLineEncoder(config)
+                : null;
+        this.rawBuffer = schemaless && config.isSchemalessRaw() && sortable
+                ? new RawLineBuffer()
+                : null;
+        this.jsonBuffer = schemaless && config.isSchemalessJsonMerge() && protocols.contains(SchemalessProtocolType.JSON)
+                ? new JsonArrayBuffer(config.getSchemalessJsonMaxBytes())
+                : null;
+        this.recordWriter = recordWriter(config, processor);
+        this.validator = recordWriter == null ? null : new RecordValidator(config);
+        this.schemas = resources.getSchemas();
+        this.spillLog = spillLog;
+        this.circuitBreaker = resources.getCircuitBreaker();
+        this.offsetStore = resources.getOffsetStore();
+        this.time = Time.SYSTEM;
+        this.backoff = new ExponentialBackoff(config.getRetryBackoffMs(), config.getRetryBackoffMaxMs());
+        this.slowBatches = new SlowBatchLog(config);
+        this.thread = new Thread(this, "tdengine-sink-writer-" + WRITER_ID.incrementAndGet());
+        this.thread.setDaemon(true);
+    }
+
+    private static RecordWriter recordWriter(SinkConfig config, Processor processor) {
+        switch (config.getWriteMode()) {
+            case STMT:
+                return new StmtWriter(processor);
+            case SQL:
+                return new SqlWriter(config, processor);
+            case FILE:
+                return new CsvFileWriter(config, processor);
+            default:
+                return null;
+        }
+    }
+
+    public void start() {
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * append records to the buffer, block while the buffer is full.
+     * while the circuit breaker is open the task pauses its partitions, so the records of the last poll
+     * are appended without blocking to keep the consumer polling.
+     *
+     * @param records records from the consumer
+     */
+    public void put(Collection<SinkRecord> records) {
+        append(records, true);
+    }
+
+    /**
+     * append records to the buffer without waiting for space, the caller pauses the partitions of the writer
+     * while {@link #isFull()}, so the buffer grows at most by the records of one poll beyond its capacity
+     *
+     * @param records records from the consumer
+     */
+    public void offer(Collection<SinkRecord> records) {
+        append(records, false);
+    }
+
+    /**
+     * @return true if the buffer holds at least its capacity of records
+     */
+    public boolean isFull() {
+        lock.lock();
+        try {
+            return bufferedRecords >= capacity;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void append(Collection<SinkRecord> records, boolean block) {
+        checkFailure();
+        if (records.isEmpty()) {
+            return;
+        }
+        // measured before taking the lock, the other writers do not wait for it
+        long[] sizes = new long[records.size()];
+        int index = 0;
+        for (SinkRecord record : records) {
+            sizes[index++] = recordBytes(record.value());
+        }
+        index = 0;
+        lock.lock();
+        try {
+            for (SinkRecord record : records) {
+                while (block && bufferedRecords >= capacity && (circuitBreaker == null || !circuitBreaker.isOpen())) {
+                    checkFailure();
+                    notFull.await(IDLE_WAIT_MS, TimeUnit.MILLISECONDS);
+                }
+                WritePlan plan = topicPlans.computeIfAbsent(record.topic(), this::resolvePlan);
+                TargetBuffer buffer = buffers.get(plan);
+                if (buffer == null) {
+                    buffer = new TargetBuffer(plan);
+                    buffers.put(plan, buffer);
+                }
+                if (buffer.records.isEmpty()) {
+                    buffer.firstAppendMs = time.milliseconds();
+                }
+                buffer.add(record, sizes[index++]);
+                bufferedRecords++;
+            }
+            notEmpty.signal();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectException("Interrupted while waiting for sink buffer space", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * write all buffered records and wait until TDengine confirmed them
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            flushRequested = true;
+            notEmpty.signal();
+            while ((bufferedRecords > 0 || inFlight) && failure == null && thread.isAlive()) {
+                drained.await(IDLE_WAIT_MS, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectException("Interrupted while flushing sink records", e);
+        } finally {
+            flushRequested = false;
+            lock.unlock();
+        }
+        checkFailure();
+    }
+
+    /**
+     * write the buffered records of revoked partitions and wait until TDengine confirmed them.
+     * while the circuit breaker is open the task must not block the rebalance for the whole outage,
+     * their records are dropped instead and consumed again from the committed offsets by the next owner.
+     *
+     * @param partitions the revoked partitions
+     */
+    public void revoke(Collection<TopicPartition> partitions) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        lock.lock();
+        try {
+            for (TargetBuffer buffer : buffers.values()) {
+                if (buffer.contains(partitions)) {
+                    buffer.flushRequested = true;
+                }
+            }
+            notEmpty.signal();
+            while (failure == null && thread.isAlive() && isPending(partitions)) {
+                if (circuitBreaker != null && circuitBreaker.isOpen()) {
+                    drop(partitions);
+                    break;
+                }
+                drained.await(IDLE_WAIT_MS, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectException("Interrupted while flushing sink records", e);
+        } finally {
+            lock.unlock();
+        }
+        removeOffsets(partitions);
+        checkFailure();
+    }
+
+    private boolean isPending(Collection<TopicPartition> partitions) {
+        if (contains(inFlightRecords, partitions)) {
+            return true;
+        }
+        for (TargetBuffer buffer : buffers.values()) {
+            if (buffer.contains(partitions)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * remove the buffered records of the partitions, the batch being written leaves them out of its next attempt
+     */
+    private void drop(Collection<TopicPartition> partitions) {
+        dropped.addAll(partitions);
+        int count = 0;
+        Iterator<TargetBuffer> iterator = buffers.values().iterator();
+        while (iterator.hasNext()) {
+            TargetBuffer buffer = iterator.next();
+            count += buffer.remove(partitions);
+            if (buffer.records.isEmpty()) {
+                iterator.remove();
+            }
+        }
+        bufferedRecords -= count;
+        notFull.signalAll();
+        log.warn("Circuit breaker is open, dropped {} buffered records of the revoked partitions {}, "
+                + "they are consumed again from the committed offsets", count, partitions);
+    }
+
+    private static boolean contains(List<SinkRecord> records, Collection<TopicPartition> partitions) {
+        for (SinkRecord record : records) {
+            if (partitions.contains(new TopicPartition(record.topic(), record.kafkaPartition()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the records of the batch which are not of a dropped partition
+     */
+    private List<SinkRecord> withoutDropped(List<SinkRecord> records) {
+        if (dropped.isEmpty() || !contains(records, dropped)) {
+            return records;
+        }
+        List<SinkRecord> kept = new ArrayList<>(records.size());
+        for (SinkRecord record : records) {
+            if (!dropped.contains(new TopicPartition(record.topic(), record.kafkaPartition()))) {
+                kept.add(record);
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * @param currentOffsets offsets of the records passed to put
+     * @return offsets of the records which have been written to TDengine
+     */
+    public Map<TopicPartition, OffsetAndMetadata> committableOffsets(Map<TopicPartition, OffsetAndMetadata> currentOffsets) {
+        checkFailure();
+        Map<TopicPartition, OffsetAndMetadata> result = new HashMap<>();
+        for (TopicPartition partition : currentOffsets.keySet()) {
+            Long offset = writtenOffsets.get(partition);
+            if (offset != null) {
+                result.put(partition, new OffsetAndMetadata(offset + 1));
+            }
+        }
+        return result;
+    }
+
+    private void removeOffsets(Collection<TopicPartition> partitions) {
+        for (TopicPartition partition : partitions) {
+            writtenOffsets.remove(partition);
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public void run() {
+        log.debug("TDengine sink writer {} started", thread.getName());
+        try {
+            Batch batch;
+            while ((batch = nextBatch()) != null) {
+                try {
+                    if (batch == Batch.REPLAY) {
+                        replaySpilled();
+                    } else {
+                        writeWithRetry(sort(batch.records, batch.plan.target), batch.plan, batch.bytes);
+                    }
+                } catch (ConnectException e) {
+                    log.error("TDengine sink writer failed, the task will stop receiving records", e);
+                    failure = e;
+                    running = false;
+                } finally {
+                    completeBatch();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("TDengine sink writer {} interrupted", thread.getName());
+        } finally {
+            lock.lock();
+            try {
+                inFlight = false;
+                drained.signalAll();
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+        log.debug("TDengine sink writer {} stopped", thread.getName());
+    }
+
+    /**
+     * wait until the records of a destination are ready to write
+     *
+     * @return next batch, {@link Batch#REPLAY} when the spilled batches should be written,
+     * null when the writer is stopped and the buffer is empty
+     */
+    private Batch nextBatch() throws InterruptedException {
+        lock.lock();
+        try {
+            TargetBuffer ready;
+            while (true) {
+                if (failure != null) {
+                    return null;
+                }
+                if (bufferedRecords == 0 && !running) {
+                    return null;
+                }
+                if (isReplayDue()) {
+                    return Batch.REPLAY;
+                }
+                if (bufferedRecords == 0) {
+                    notEmpty.await(IDLE_WAIT_MS, TimeUnit.MILLISECONDS);
+                    continue;
+                }
+                long waitMs = Long.MAX_VALUE;
+                ready = null;
+                long now = time.milliseconds();
+                for (TargetBuffer buffer : buffers.values()) {
+                    if (buffer.records.isEmpty()) {
+                        continue;
+                    }
+                    long remaining = config.getLingerMs() - (now - buffer.firstAppendMs);
+                    if (isBatchFull(buffer) || flushRequested || buffer.flushRequested || !running || remaining <= 0) {
+                        ready = buffer;
+                        break;
+                    }
+                    waitMs = Math.min(waitMs, remaining);
+                }
+                if (ready != null) {
+                    break;
+                }
+                if (spillLog != null && !spillLog.isEmpty()) {
+                    waitMs = Math.min(waitMs, IDLE_WAIT_MS);
+                }
+                notEmpty.await(waitMs, TimeUnit.MILLISECONDS);
+            }
+
+            Batch batch = ready.take(batchLength(ready));
+            // keep the order of destinations fair
+            buffers.remove(ready.plan);
+            if (!ready.records.isEmpty()) {
+                buffers.put(ready.plan, ready);
+            }
+            bufferedRecords -= batch.records.size();
+            inFlight = true;
+            inFlightRecords = batch.records;
+            // the batches which were being written when the partitions were dropped are done
+            dropped.clear();
+            notFull.signalAll();
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isBatchFull(TargetBuffer buffer) {
+        int batchSize = batchSize(buffer.plan);
+        long maxBytes = config.getBatchMaxBytes();
+        return batchSize > 0 && buffer.records.size() >= batchSize
+                || maxBytes > 0 && buffer.bytes >= maxBytes;
+    }
+
+    private int batchSize(WritePlan plan) {
+        if (plan.batchSize != null) {
+            return plan.batchSize;
+        }
+        return sizer == null ? config.getBatchSize() : sizer.size();
+    }
+
+    /**
+     * @return number of records of the next batch limited by batch size and batch.max.bytes
+     */
+    private int batchLength(TargetBuffer buffer) {
+        int batchSize = batchSize(buffer.plan);
+        int count = batchSize <= 0 ? buffer.records.size() : Math.min(batchSize, buffer.records.size());
+        long maxBytes = config.getBatchMaxBytes();
+        if (maxBytes <= 0 || buffer.bytes <= maxBytes) {
+            return count;
+        }
+        long bytes = 0;
+        for (int i = 0; i < count; i++) {
+            bytes += buffer.sizes[i];
+            if (bytes > maxBytes) {
+                // a single record larger than the limit is written alone
+                return Math.max(1, i);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * size of the line of a record value in UTF-8.
+     * Struct and Map values are not rendered to measure them, they count as 0 and their batches
+     * are only limited by the batch size.
+     */
+    static long recordBytes(Object value) {
+        if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        }
+        if (!(value instanceof String)) {
+            return 0;
+        }
+        String line = (String) value;
+        long bytes = line.length();
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (Character.isSurrogate(c)) {
+                // a pair of surrogates is 4 bytes
+                bytes++;
+            } else if (c >= 0x800) {
+                bytes += 2;
+            } else if (c >= 0x80) {
+                bytes++;
+            }
+        }
+        return bytes;
+    }
+
+    private void completeBatch() {
+        lock.lock();
+        try {
+            inFlight = false;
+            inFlightRecords = Collections.emptyList();
+            // revoke waits for the batches of its partitions, not for an empty buffer
+            drained.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private WritePlan resolvePlan(String topic) {
+        SinkConfig topicConfig = config.getTopicConfig(topic);
+        String database = topicConfig.isSingleDatabase()
+                ? topicConfig.getConnectionDb()
+                : topicConfig.getConnectionDatabasePrefix() + topic;
+        WriteTarget target;
+        if (recordWriter != null) {
+            String stable = config.getRecordStable().isEmpty() ? topic : config.getRecordStable();
+            target = new WriteTarget(database, topicConfig.getSchemalessTypeFormat(), topicConfig.getTimestampType(),
+                    stable);
+        } else {
+            target = new WriteTarget(database, topicConfig.getSchemalessTypeFormat(), topicConfig.getTimestampType());
+        }
+        // the adaptive batch size is only used for the topics without a batch size of their own
+        Integer batchSize = config.isTopicOverride(topic, SinkConfig.BATCH_SIZE) ? topicConfig.getBatchSize() : null;
+        WritePlan plan = new WritePlan(target, batchSize);
+        if (topicConfig != config) {
+            log.info("Topic {} is written with {}", topic, plan);
+        }
+        return plan;
+    }
+
+    private boolean isRouted(WriteTarget target) {
+        return router != null && LineSorter.isSupported(target.getProtocol());
+    }
+
+    private boolean isEncoded(WriteTarget target) {
+        return lineEncoder != null && target.getProtocol() == SchemalessProtocolType.LINE;
+    }
+
+    private boolean isRaw(WriteTarget target) {
+        return rawBuffer != null && !isRouted(target) && !isEncoded(target)
+                && LineSorter.isSupported(target.getProtocol());
+    }
+
+    private List<SinkRecord> sort(List<SinkRecord> records, WriteTarget target) {
+        return config.isBatchSort() && recordWriter == null && !isEncoded(target)
+                ? LineSorter.sort(records, target.getProtocol())
+                : records;
+    }
+
+    /**
+     * @param bytes size of the records measured when they were buffered
+     */
+    private void writeWithRetry(List<SinkRecord> batch, WritePlan plan, long bytes) {
+        WriteTarget target = plan.target;
+        // topics with a batch size of their own do not change the adaptive batch size
+        boolean adaptive = sizer != null && plan.batchSize == null;
+        if (spillLog != null && !spillLog.isEmpty() && spillBehind(batch, target)) {
+            // TDengine is still down, the batch is committed once it is replayed behind the spilled ones
+            return;
+        }
+        // invalid records are removed from this copy, so they are reported only once
+        List<SinkRecord> records = recordWriter == null && !isEncoded(target) ? batch : new ArrayList<>(batch);
+        // parts of the batch written by a failed attempt are not written again by the retries
+        WriteProgress progress = new WriteProgress();
+        // There will be a retry at the end
+        int remainingRetries = config.getMaxRetries() - 1;
+        int attempt = 0;
+        while (true) {
+            if (!awaitCircuitBreaker(batch)) {
+                abandon(batch);
+                return;
+            }
+            if (!dropped.isEmpty()) {
+                // the partitions were revoked while the batch was held
+                batch = withoutDropped(batch);
+                List<SinkRecord> kept = withoutDropped(records);
+                if (kept.size() < records.size()) {
+                    // the written items of the progress are indexes into the records
+                    progress = new WriteProgress();
+                }
+                records = kept;
+                if (batch.isEmpty()) {
+                    circuitBreaker.release();
+                    return;
+                }
+            }
+            // each attempt is a new request for TDengine
+            long reqId = ReqId.getReqID();
+            long start = System.nanoTime();
+            try {
+                bulkWriteBatch(records, target, progress, reqId);
+                long elapsed = System.nanoTime() - start;
+                long elapsedMs = TimeUnit.NANOSECONDS.toMillis(elapsed);
+                if (adaptive) {
+                    sizer.onSuccess(batch.size(), elapsed);
+                }
+                if (circuitBreaker != null) {
+                    circuitBreaker.onSuccess(elapsedMs);
+                }
+                metrics.recordBatch(batch.size(), bytes);
+                log.debug("Wrote {} records with request {} in {} ms", batch.size(), reqId(reqId), elapsedMs);
+                slowBatches.onBatch(reqId, batch, target, elapsedMs);
+                break;
+            } catch (SQLException sqle) {
+                if (adaptive) {
+                    sizer.onFailure();
+                }
+                boolean unavailable = isUnavailable(sqle);
+                if (circuitBreaker != null) {
+                    if (unavailable) {
+                        circuitBreaker.onFailure();
+                    } else {
+                        // TDengine answered and rejected the records, they are retried and isolated as usual
+                        circuitBreaker.onSuccess(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    }
+                }
+                log.warn(
+                        "Write of {} records from {} with request {} failed, remainingRetries={}",
+                        batch.size(),
+                        coordinates(batch),
+                        reqId(reqId),
+                        remainingRetries,
+                        sqle
+                );
+                SQLException sqlAllMessagesException = getAllMessagesException(sqle);
+                if (unavailable && circuitBreaker != null && circuitBreaker.state() != CircuitBreaker.State.CLOSED) {
+                    // TDengine is failing, hold the batch for the next probe without using a retry
+                    if (ConnectionErrors.isConnectionError(sqle)) {
+                        processor.close();
+                    }
+                    if (router != null) {
+                        router.invalidate(target.getDatabase());
+                    }
+                } else if (remainingRetries > 0) {
+                    metrics.recordRetry();
+                    if (ConnectionErrors.isConnectionError(sqle)) {
+                        processor.close();
+                    } else if (recordWriter != null) {
+                        // the super table may have been altered
+                        schemas.invalidate(target);
+                    }
+                    if (router != null) {
+                        router.invalidate(target.getDatabase());
+                    }
+                    remainingRetries--;
+                    backoff(backoff.delayMs(attempt++));
+                } else if (spillLog != null && !isReachable()) {
+                    if (spillBehind(records, target)) {
+                        return;
+                    }
+                    // TDengine is back and the spilled batches were replayed, the batch is written in order now
+                } else if (reporter != null) {
+                    isolateErrors(records, target, sqlAllMessagesException, progress);
+                    break;
+                } else {
+                    log.error(
+                            "Failing task after exhausting retries; "
+                                    + "encountered exceptions on last write attempt. "
+                                    + "For complete details on each exception, please enable DEBUG logging.");
+                    throw new ConnectException(sqlAllMessagesException);
+                }
+            } finally {
+                if (circuitBreaker != null) {
+                    circuitBreaker.release();
+                }
+            }
+        }
+        storeOffsets(batch);
+        markWritten(batch);
+    }
+
+    /**
+     * wait while the circuit breaker is open or another writer writes the probe,
+     * the batch is held without using its retries
+     *
+     * @return false if the writer was stopped while waiting
+     */
+    private boolean awaitCircuitBreaker(List<SinkRecord> batch) {
+        if (circuitBreaker == null) {
+            return true;
+        }
+        boolean waiting = false;
+        while (!circuitBreaker.tryAcquire()) {
+            if (!running) {
+                return false;
+            }
+            if (!waiting) {
+                log.info("Circuit breaker is open, holding {} records from {}", batch.size(), coordinates(batch));
+                waiting = true;
+            }
+            backoff(IDLE_WAIT_MS);
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the write failed because TDengine could not be reached or did not answer in time,
+     * only these failures count for the circuit breaker
+     */
+    static boolean isUnavailable(SQLException sqle) {
+        for (Throwable e : sqle) {
+            if (e instanceof SQLTimeoutException) {
+                return true;
+            }
+        }
+        return ConnectionErrors.isConnectionError(sqle);
+    }
+
+    /**
+     * give up a batch held by the circuit breaker or a full spill log when the writer stops.
+     * the later batches of its partitions may still be written, but their offsets must not be committed
+     * or stored, otherwise the abandoned records would be skipped by the next owner.
+     */
+    private void abandon(List<SinkRecord> batch) {
+        Set<TopicPartition> partitions = new HashSet<>();
+        for (SinkRecord record : batch) {
+            partitions.add(new TopicPartition(record.topic(), record.kafkaPartition()));
+        }
+        boolean first = abandoned.isEmpty();
+        abandoned.addAll(partitions);
+        for (TopicPartition partition : partitions) {
+            writtenOffsets.remove(partition);
+        }
+        if (first) {
+            log.error("Writer stopped while TDengine is not available, {} records from {} are not written, "
+                    + "the offsets of their partitions are not committed", batch.size(), coordinates(batch));
+        } else {
+            log.debug("Writer stopped while TDengine is not available, {} records from {} are not written",
+                    batch.size(), coordinates(batch));
+        }
+    }
+
+    /**
+     * @return true if the offsets of the partition are committed by its next owner or not at all
+     */
+    private boolean isDiscarded(TopicPartition partition) {
+        return dropped.contains(partition) || abandoned.contains(partition);
+    }
+
+    /**
+     * record the next offsets of the partitions of a written batch, the offset store writes them in background
+     */
+    private void storeOffsets(List<SinkRecord> batch) {
+        if (offsetStore == null) {
+            return;
+        }
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        for (SinkRecord record : batch) {
+            TopicPartition partition = new TopicPartition(record.topic(), record.kafkaPartition());
+            if (!isDiscarded(partition)) {
+                offsets.merge(partition, record.kafkaOffset() + 1, Math::max);
+            }
+        }
+        offsetStore.record(offsets);
+    }
+
+    /**
+     * @param reqId request id of the schemaless inserts of the batch
+     */
+    private void bulkWriteBatch(final List<SinkRecord> batch, WriteTarget target, WriteProgress progress, long reqId)
+            throws SQLException {
+        selectDatabase(target.getDatabase());
+        if (log.isDebugEnabled()) {
+            log.debug("Writing {} records from {} to database {} with request {}",
+                    batch.size(), coordinates(batch), target.getDatabase(), reqId(reqId));
+        }
+        if (recordWriter != null) {
+            writeRows(batch, target, progress);
+            return;
+        }
+        long start = System.nanoTime();
+        if (isRaw(target)) {
+            String lines = rawBuffer.join(batch);
+            long converted = System.nanoTime();
+            metrics.recordConversion(converted - start);
+            processor.schemalessInsertRaw(lines, target.getProtocol(), target.getTimestampType(), reqId);
+            metrics.recordInsert(System.nanoTime() - converted);
+            return;
+        }
+        if (jsonBuffer != null && target.getProtocol() == SchemalessProtocolType.JSON) {
+            List<String> arrays = jsonBuffer.merge(batch);
+            long converted = System.nanoTime();
+            metrics.recordConversion(converted - start);
+            progress.layout(arrays.size());
+            for (int i = 0; i < arrays.size(); i++) {
+                if (!progress.isWritten(i)) {
+                    processor.schemalessInsert(new String[]{arrays.get(i)}, target.getProtocol(),
+                            target.getTimestampType(), reqId);
+                    progress.written(i, i == 0 ? 0 : jsonBuffer.end(i - 1), jsonBuffer.end(i));
+                }
+            }
+            metrics.recordInsert(System.nanoTime() - converted);
+            return;
+        }
+        String[] lines = isEncoded(target) ? encodeLines(batch, target) : toLines(batch);
+        long converted = System.nanoTime();
+        metrics.recordConversion(converted - start);
+        if (lines.length == 0) {
+            return;
+        }
+        if (isRouted(target)) {
+            router.write(lines, target, progress, reqId);
+        } else {
+            processor.schemalessInsert(lines, target.getProtocol(), target.getTimestampType(), reqId);
+        }
+        metrics.recordInsert(System.nanoTime() - converted);
+    }
+
+    /**
+     * convert the records to rows of the super table of the target and write them.
+     * records which do not fit the super table are sent to the errant record reporter and removed from the list.
+     */
+    private void writeRows(List<SinkRecord> records, WriteTarget target, WriteProgress progress) throws SQLException {
+        if (records.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        StableSchema schema = schemas.get(target, processor);
+        List<Map.Entry<SinkRecord, DataException>> invalid = new ArrayList<>();
+        List<TableRow> rows = toRows(records, schema, invalid);
+        if (!invalid.isEmpty() || validator.hasUnknownFields(records, schema)) {
+            // the super table may have been altered since its schema was loaded
+            StableSchema latest = schemas.refresh(target, processor);
+            if (latest != schema) {
+                schema = latest;
+                invalid.clear();
+                rows = toRows(records, schema, invalid);
+            }
+        }
+        if (!invalid.isEmpty()) {
+            reportInvalid(invalid);
+            records.clear();
+            for (TableRow row : rows) {
+                records.add(row.getRecord());
+            }
+        }
+        long converted = System.nanoTime();
+        metrics.recordConversion(converted - start);
+        if (!rows.isEmpty()) {
+            recordWriter.write(rows, schema, progress);
+            metrics.recordInsert(System.nanoTime() - converted);
+        }
+    }
+
+    private List<TableRow> toRows(List<SinkRecord> records, StableSchema schema,
+                                  List<Map.Entry<SinkRecord, DataException>> invalid) {
+        List<TableRow> rows = new ArrayList<>(records.size());
+        for (SinkRecord record : records) {
+            try {
+                rows.add(validator.toRow(record, schema));
+            } catch (DataException e) {
+                invalid.add(new AbstractMap.SimpleImmutableEntry<>(record, e));
+            }
+        }
+        return rows;
+    }
+
+    private void reportInvalid(List<Map.Entry<SinkRecord, DataException>> invalid) {
+        if (reporter == null) {
+            throw invalid.get(0).getValue();
+        }
+        log.warn("{} records can not be converted and are sent to the errant record reporter, first: {}",
+                invalid.size(), invalid.get(0).getValue().getMessage());
+        for (Map.Entry<SinkRecord, DataException> entry : invalid) {
+            reporter.report(entry.getKey(), entry.getValue());
+            metrics.recordErrant();
+        }
+    }
+
+    private void selectDatabase(String database) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            processor.setDbName(database);
+        } catch (ConnectException e) {
+            // a connection failure is retried like a failed write
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw e;
+        }
+        metrics.recordDatabaseSelect(!database.equals(currentDatabase), System.nanoTime() - start);
+        currentDatabase = database;
+    }
+
+    private boolean isReplayDue() {
+        return spillLog != null && !spillLog.isEmpty()
+                && time.milliseconds() - lastReplayMs >= config.getRetryBackoffMs();
+    }
+
+    /**
+     * @return true if TDengine answers a query, so a failed write was caused by its records
+     */
+    private boolean isReachable() {
+        try {
+            processor.execute(SQLUtils.serverStatusSql());
+            return true;
+        } catch (SQLException | RuntimeException e) {
+            log.debug("TDengine is not reachable", e);
+            return false;
+        }
+    }
+
+    /**
+     * keep the order of a batch which TDengine could not take: the spilled batches are replayed first,
+     * and while TDengine is still down the batch is appended behind them.
+     * while the spill log is full the batch is held, instead of being written before the spilled batches.
+     *
+     * @return true if the batch was spilled, or abandoned because the writer stopped while holding it,
+     * false if TDengine is back and the batch can be written
+     */
+    private boolean spillBehind(List<SinkRecord> records, WriteTarget target) {
+        boolean waiting = false;
+        while (true) {
+            if (spillLog.isEmpty() ? isReachable() : replaySpilled()) {
+                return false;
+            }
+            if (spill(records, target)) {
+                return true;
+            }
+            if (!running) {
+                abandon(records);
+                return true;
+            }
+            if (!waiting) {
+                log.warn("Spill log is full, holding {} records from {} until TDengine is back",
+                        records.size(), coordinates(records));
+                waiting = true;
+            }
+            backoff(config.getRetryBackoffMs());
+        }
+    }
+
+    /**
+     * @return false if the spill log is full
+     */
+    private boolean spill(List<SinkRecord> records, WriteTarget target) {
+        try {
+            if (!spillLog.append(target, records)) {
+                log.debug("Spill log is full, {} records can not be spilled", records.size());
+                return false;
+            }
+        } catch (IOException e) {
+            throw new ConnectException("Failed to spill " + records.size() + " records", e);
+        }
+        metrics.recordSpill(records.size());
+        log.warn("TDengine is not reachable, spilled {} records, {} spilled records are waiting",
+                records.size(), spillLog.spilledRecords());
+        return true;
+    }
+
+    /**
+     * write the spilled batches in order
+     *
+     * @return true if all spilled batches were written, false if TDengine is still not reachable
+     */
+    private boolean replaySpilled() {
+        lastReplayMs = time.milliseconds();
+        try {
+            SpillLog.SpilledBatch spilled;
+            while ((spilled = spillLog.peek()) != null) {
+                List<SinkRecord> records = spilled.getRecords();
+                WriteProgress progress = new WriteProgress();
+                try {
+                    bulkWriteBatch(records, spilled.getTarget(), progress, ReqId.getReqID());
+                } catch (SQLException sqle) {
+                    if (ConnectionErrors.isConnectionError(sqle)) {
+                        processor.close();
+                    }
+                    if (!isReachable()) {
+                        log.debug("Replay of {} spilled records failed", records.size(), sqle);
+                        return false;
+                    }
+                    // the records themselves are rejected
+                    if (reporter == null) {
+                        throw new ConnectException("Failed to write spilled records", getAllMessagesException(sqle));
+                    }
+                    isolateErrors(records, spilled.getTarget(), getAllMessagesException(sqle), progress);
+                }
+                spillLog.remove(spilled);
+                // spilled batches are only committed once they are written
+                storeOffsets(records);
+                markWritten(records);
+                metrics.recordReplay(records.size());
+                if (spillLog.isEmpty()) {
+                    log.info("Replayed all spilled records");
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            throw new ConnectException("Failed to read the spill log", e);
+        }
+    }
+
+    /**
+     * @return the request id in hex, like the QID in the logs of TDengine
+     */
+    static String reqId(long reqId) {
+        return "0x" + Long.toHexString(reqId);
+    }
+
+    /**
+     * @return the offsets of each topic partition of the batch, e.g. meters-0@10..19
+     */
+    static String coordinates(List<SinkRecord> batch) {
+        Map<TopicPartition, long[]> offsets = new LinkedHashMap<>();
+        for (SinkRecord record : batch) {
+            long[] range = offsets.computeIfAbsent(new TopicPartition(record.topic(), record.kafkaPartition()),
+                    partition -> new long[]{record.kafkaOffset(), record.kafkaOffset()});
+            range[0] = Math.min(range[0], record.kafkaOffset());
+            range[1] = Math.max(range[1], record.kafkaOffset());
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<TopicPartition, long[]> entry : offsets.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(entry.getKey()).append('@').append(entry.getValue()[0]).append("..").append(entry.getValue()[1]);
+        }
+        return sb.toString();
+    }
+
+    private static String[] toLines(List<SinkRecord> records) {
+        return records.stream().map(ConnectRecord::value).map(SinkWriter::toLine).toArray(String[]::new);
+    }
+
+    /**
+     * encode the json values of the records as lines.
+     * records which can not be encoded are sent to the errant record reporter and removed from the list.
+     */
+    private String[] encodeLines(List<SinkRecord> records, WriteTarget target) {
+        List<String> lines = new ArrayList<>(records.size());
+        List<Map.Entry<SinkRecord, DataException>> invalid = new ArrayList<>();
+        List<SinkRecord> valid = new ArrayList<>(records.size());
+        for (SinkRecord record : records) {
+            try {
+                lines.add(lineEncoder.encode(record, target.getTimestampType()));
+                valid.add(record);
+            } catch (DataException e) {
+                invalid.add(new AbstractMap.SimpleImmutableEntry<>(record, e));
+            }
+        }
+        if (!invalid.isEmpty()) {
+            reportInvalid(invalid);
+            records.clear();
+            records.addAll(valid);
+        }
+        return lines.toArray(new String[0]);
+    }
+
+    /**
+     * @return the line of a record value, byte[] values are UTF-8 text
+     */
+    static String toLine(Object value) {
+        if (value instanceof byte[]) {
+            return new String((byte[]) value, StandardCharsets.UTF_8);
+        }
+        return String.valueOf(value);
+    }
+
+    /**
+     * isolate the records of a failed batch which have not been written by one of its written parts
+     *
+     * @param records  records of the batch, invalid records have been removed
+     * @param progress parts of the batch written by the failed attempts
+     */
+    private void isolateErrors(List<SinkRecord> records, WriteTarget target, SQLException cause,
+                               WriteProgress progress) {
+        if (progress.writtenParts() > 0) {
+            List<SinkRecord> unwritten = new ArrayList<>(records.size());
+            for (int i = 0; i < records.size(); i++) {
+                if (!progress.isItemWritten(i)) {
+                    unwritten.add(records.get(i));
+                }
+            }
+            log.debug("Isolating errors of {} records, {} were written by earlier attempts",
+                    unwritten.size(), records.size() - unwritten.size());
+            records = unwritten;
+        }
+        if (!records.isEmpty()) {
+            isolateErrors(records, target, cause);
+        }
+    }
+
+    /**
+     * split the failed batch in halves and only retry the halves that fail,
+     * until the records which can not be written are found and sent to the errant record reporter
+     *
+     * @param records records which failed to write together
+     * @param cause   the error of writing them
+     */
+    private void isolateErrors(List<SinkRecord> records, WriteTarget target, SQLException cause) {
+        if (records.size() == 1) {
+            reporter.report(records.get(0), cause);
+            metrics.recordErrant();
+            return;
+        }
+        int middle = records.size() / 2;
+        for (List<SinkRecord> half : Arrays.asList(records.subList(0, middle), records.subList(middle, records.size()))) {
+            if (recordWriter != null || isEncoded(target)) {
+                // invalid records are removed, which must not change the other half
+                half = new ArrayList<>(half);
+            }
+            try {
+                selectDatabase(target.getDatabase());
+                if (recordWriter != null) {
+                    writeRows(half, target, new WriteProgress());
+                } else {
+                    String[] lines = isEncoded(target) ? encodeLines(half, target) : toLines(half);
+                    if (lines.length > 0) {
+                        processor.schemalessInsert(lines, target.getProtocol(), target.getTimestampType(),
+                                ReqId.getReqID());
+                    }
+                }
+            } catch (SQLException sqle) {
+                isolateErrors(half, target, getAllMessagesException(sqle));
+            }
+        }
+    }
+
+    private void markWritten(List<SinkRecord> batch) {
+        long now = time.milliseconds();
+        for (SinkRecord record : batch) {
+            TopicPartition partition = new TopicPartition(record.topic(), record.kafkaPartition());
+            if (!isDiscarded(partition)) {
+                writtenOffsets.merge(partition, record.kafkaOffset(), Math::max);
+            }
+            Long timestamp = record.timestamp();
+            if (timestamp != null) {
+                metrics.recordFreshness(now - timestamp);
+            }
+        }
+    }
+
+    private void backoff(long backoffMs) {
+        try {
+            Thread.sleep(backoffMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectException("Interrupted while waiting to retry write", e);
+        }
+    }
+
+    static SQLException getAllMessagesException(SQLException sqle) {
+        StringBuilder sqleAllMessages = new StringBuilder("Exception chain:" + System.lineSeparator());
+        for (Throwable e : sqle) {
+            sqleAllMessages.append(e).append(System.lineSeparator());
+        }
+        SQLException sqlAllMessagesException = new SQLException(sqleAllMessages.toString());
+        sqlAllMessagesException.setNextException(sqle);
+        return sqlAllMessagesException;
+    }
+
+    /**
+     * write the remaining records and stop the background thread
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            running = false;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for sink writer {} to stop", thread.getName());
+        }
+        if (router != null) {
+            router.close();
+        }
+        if (spillLog != null) {
+            spillLog.close();
+        }
+    }
+
+    /**
+     * how the records of a topic are written, topics with the same plan are batched together
+     */
+    private static class WritePlan {
+        private final WriteTarget target;
+        // null when the batch size of the writer is used
+        private final Integer batchSize;
+
+        private WritePlan(WriteTarget target, Integer batchSize) {
+            this.target = target;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            WritePlan that = (WritePlan) o;
+            return target.equals(that.target) && Objects.equals(batchSize, that.batchSize);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(target, batchSize);
+        }
+
+        @Override
+        public String toString() {
+            return "WritePlan{" + "target=" + target + ", batchSize=" + batchSize + '}';
+        }
+    }
+
+    private static class TargetBuffer {
+        private final WritePlan plan;
+        private List<SinkRecord> records = new ArrayList<>();
+        // size of each buffered record, measured once when it is appended
+        private long[] sizes = new long[16];
+        private long bytes;
+        private long firstAppendMs;
+        // set when a revoked partition has records in this buffer, they are written without waiting for linger.ms
+        private boolean flushRequested;
+
+        private TargetBuffer(WritePlan plan) {
+            this.plan = plan;
+        }
+
+        private void add(SinkRecord record, long size) {
+            if (records.size() == sizes.length) {
+                sizes = Arrays.copyOf(sizes, sizes.length * 2);
+            }
+            sizes[records.size()] = size;
+            records.add(record);
+            bytes += size;
+        }
+
+        private boolean contains(Collection<TopicPartition> partitions) {
+            return SinkWriter.contains(records, partitions);
+        }
+
+        /**
+         * @return the number of removed records of the partitions
+         */
+        private int remove(Collection<TopicPartition> partitions) {
+            List<SinkRecord> kept = new ArrayList<>(records.size());
+            int size = 0;
+            bytes = 0;
+            for (int i = 0; i < records.size(); i++) {
+                SinkRecord record = records.get(i);
+                if (!partitions.contains(new TopicPartition(record.topic(), record.kafkaPartition()))) {
+                    kept.add(record);
+                    sizes[size++] = sizes[i];
+                    bytes += sizes[i];
+                }
+            }
+            int removed = records.size() - kept.size();
+            records = kept;
+            return removed;
+        }
+
+        /**
+         * remove the first count records as a batch
+         */
+        private Batch take(int count) {
+            if (count == records.size()) {
+                Batch batch = new Batch(plan, records, bytes);
+                records = new ArrayList<>();
+                bytes = 0;
+                flushRequested = false;
+                return batch;
+            }
+            long taken = 0;
+            for (int i = 0; i < count; i++) {
+                taken += sizes[i];
+            }
+            List<SinkRecord> head = records.subList(0, count);
+            List<SinkRecord> batch = new ArrayList<>(head);
+            head.clear();
+            System.arraycopy(sizes, count, sizes, 0, records.size());
+            bytes -= taken;
+            return new Batch(plan, batch, taken);
+        }
+    }
+
+    private static class Batch {
+        private static final Batch REPLAY = new Batch(null, Collections.emptyList(), 0);
+
+        private final WritePlan plan;
+        private final List<SinkRecord> records;
+        private final long bytes;
+
+        private Batch(WritePlan plan, List<SinkRecord> records, long bytes) {
+            this.plan = plan;
+            this.records = records;
+            this.bytes = bytes;
+        }
+    }
+}
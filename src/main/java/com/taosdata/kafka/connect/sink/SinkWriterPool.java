@@ -0,0 +1,259 @@
+package com.taosdata.kafka.connect.sink;
+
+import com.taosdata.jdbc.enums.SchemalessProtocolType;
+import com.taosdata.kafka.connect.db.Processor;
+import com.taosdata.kafka.connect.enums.WriteModeEnum;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.connect.errors.ConnectException;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * a group of sink writers, each with its own thread and processor.
+ * records are routed by topic partition, so records of a partition are written in order by one writer
+ * while different partitions are written concurrently.
+ * the topics of the priority lane are written by writers of their own with their own batch settings.
+ */
+public class SinkWriterPool implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(SinkWriterPool.class);
+
+    private final List<SinkWriter> writers = new ArrayList<>();
+    private final List<SinkWriter> bulkWriters = new ArrayList<>();
+    private final List<SinkWriter> priorityWriters = new ArrayList<>();
+    private final Set<String> priorityTopics;
+    private final List<Processor> processors = new ArrayList<>();
+    private final CircuitBreaker circuitBreaker;
+    private final OffsetStore offsetStore;
+
+    /**
+     * @param config             sink config
+     * @param processors         one processor per writer, the same processor may be shared by several writers
+     * @param priorityProcessors one processor per writer of the priority lane, empty if there are no priority topics
+     * @param resources          collaborators shared by all writers
+     */
+    public SinkWriterPool(SinkConfig config, List<Processor> processors, List<Processor> priorityProcessors,
+                          WriterResources resources) {
+        this.processors.addAll(processors);
+        this.processors.addAll(priorityProcessors);
+        this.offsetStore = resources.getOffsetStore();
+        this.priorityTopics = priorityProcessors.isEmpty()
+                ? Collections.emptySet()
+                : new HashSet<>(config.getPriorityTopics());
+        // max.buffered.records caps the memory of the whole task
+        int capacity = Math.max(1, config.getMaxBufferedRecords() / this.processors.size());
+        if (config.isJsonLine() && config.getWriteMode() == WriteModeEnum.SCHEMALESS
+                && config.getSchemalessTypeFormat() != SchemalessProtocolType.LINE) {
+            throw new ConfigException(SinkConfig.JSON_LINE_MEASUREMENT, config.getJsonLineMeasurement(),
+                    "json values can only be encoded as line protocol, db.schemaless must be line");
+        }
+        this.circuitBreaker = resources.getCircuitBreaker();
+        for (int i = 0; i < processors.size(); i++) {
+            bulkWriters.add(new SinkWriter(config, processors.get(i), capacity,
+                    spillLog(config, String.valueOf(i)), resources));
+        }
+        if (!priorityProcessors.isEmpty()) {
+            SinkConfig priorityConfig = priorityConfig(config);
+            for (int i = 0; i < priorityProcessors.size(); i++) {
+                priorityWriters.add(new SinkWriter(priorityConfig, priorityProcessors.get(i), capacity,
+                        spillLog(config, "priority-" + i), resources));
+            }
+        }
+        writers.addAll(bulkWriters);
+        writers.addAll(priorityWriters);
+    }
+
+    /**
+     * @return the config of the priority lane, with its batch settings instead of the ones of the other topics
+     */
+    private static SinkConfig priorityConfig(SinkConfig config) {
+        Map<String, String> originals = new HashMap<>(config.originalsStrings());
+        originals.put(SinkConfig.BATCH_SIZE, String.valueOf(config.getPriorityBatchSize()));
+        originals.put(SinkConfig.LINGER_MS, String.valueOf(config.getPriorityLingerMs()));
+        // small batches are written as they come
+        originals.put(SinkConfig.BATCH_ADAPTIVE, "false");
+        return new SinkConfig(originals);
+    }
+
+    /**
+     * @return the circuit breaker shared by the writers, null if it is disabled
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * @return the store of the written offsets, null if it is disabled
+     */
+    public OffsetStore getOffsetStore() {
+        return offsetStore;
+    }
+
+    /**
+     * @return the spill log of a writer, null if spill is disabled
+     */
+    private static SpillLog spillLog(SinkConfig config, String writer) {
+        if (!config.isSpillEnabled()) {
+            return null;
+        }
+        if (config.getWriteMode() != WriteModeEnum.SCHEMALESS) {
+            if ("0".equals(writer)) {
+                log.warn("{} is only supported in schemaless write mode and is ignored", SinkConfig.SPILL_ENABLED);
+            }
+            return null;
+        }
+        if (config.getSpillDir().isEmpty()) {
+            throw new ConfigException(SinkConfig.SPILL_DIR, "", "is required when " + SinkConfig.SPILL_ENABLED + " is true");
+        }
+        // the directory must be the same after a restart of the task, so the spilled batches are replayed
+        Map<String, String> originals = config.originalsStrings();
+        Path dir = Paths.get(config.getSpillDir(), originals.getOrDefault("name", "tdengine-sink")
+                + "-" + originals.getOrDefault(TDengineSinkConnector.TASK_ID_CONFIG, "0") + "-" + writer);
+        try {
+            return SpillLog.open(dir, config.getSpillSegmentBytes(), config.getSpillMaxBytes());
+        } catch (IOException e) {
+            throw new ConnectException("Failed to open spill log in " + dir, e);
+        }
+    }
+
+    public void start() {
+        for (SinkWriter writer : writers) {
+            writer.start();
+        }
+        log.info("Started {} TDengine sink writers, {} of them for the priority topics",
+                writers.size(), priorityWriters.size());
+    }
+
+    public void put(Collection<SinkRecord> records) {
+        if (priorityTopics.isEmpty()) {
+            put(bulkWriters, records);
+            return;
+        }
+        List<SinkRecord> priority = new ArrayList<>();
+        List<SinkRecord> bulk = new ArrayList<>(records.size());
+        for (SinkRecord record : records) {
+            (priorityTopics.contains(record.topic()) ? priority : bulk).add(record);
+        }
+        // put blocks while a buffer is full, the priority records must not wait for the bulk buffers.
+        // the bulk records are appended without blocking and the task pauses the partitions of full bulk writers
+        put(priorityWriters, priority, true);
+        put(bulkWriters, bulk, false);
+    }
+
+    private static void put(List<SinkWriter> lane, Collection<SinkRecord> records) {
+        put(lane, records, true);
+    }
+
+    private static void put(List<SinkWriter> lane, Collection<SinkRecord> records, boolean block) {
+        if (lane.size() == 1) {
+            put(lane.get(0), records, block);
+            return;
+        }
+        List<List<SinkRecord>> routed = new ArrayList<>(lane.size());
+        for (int i = 0; i < lane.size(); i++) {
+            routed.add(new ArrayList<>());
+        }
+        for (SinkRecord record : records) {
+            routed.get(writerIndex(record.topic(), record.kafkaPartition(), lane.size())).add(record);
+        }
+        for (int i = 0; i < lane.size(); i++) {
+            put(lane.get(i), routed.get(i), block);
+        }
+    }
+
+    private static void put(SinkWriter writer, Collection<SinkRecord> records, boolean block) {
+        if (block) {
+            writer.put(records);
+        } else {
+            writer.offer(records);
+        }
+    }
+
+    /**
+     * the bulk writers only fill up without blocking when there is a priority lane
+     *
+     * @param assignment the partitions of the task
+     * @return the partitions of the bulk topics whose writer is full, they are paused until it has space again
+     */
+    public Set<TopicPartition> fullPartitions(Collection<TopicPartition> assignment) {
+        if (priorityTopics.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<TopicPartition> full = new HashSet<>();
+        for (TopicPartition partition : assignment) {
+            if (!priorityTopics.contains(partition.topic())
+                    && bulkWriters.get(writerIndex(partition.topic(), partition.partition(), bulkWriters.size())).isFull()) {
+                full.add(partition);
+            }
+        }
+        return full;
+    }
+
+    private static int writerIndex(String topic, Integer partition, int writers) {
+        int hash = 31 * topic.hashCode() + (partition == null ? 0 : partition);
+        return (hash & 0x7fffffff) % writers;
+    }
+
+    public void flush() {
+        for (SinkWriter writer : writers) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * write or drop the buffered records of revoked partitions, only the writers of the partitions are waited for
+     */
+    public void revoke(Collection<TopicPartition> partitions) {
+        Map<SinkWriter, List<TopicPartition>> routed = new LinkedHashMap<>();
+        for (TopicPartition partition : partitions) {
+            List<SinkWriter> lane = priorityTopics.contains(partition.topic()) ? priorityWriters : bulkWriters;
+            SinkWriter writer = lane.get(writerIndex(partition.topic(), partition.partition(), lane.size()));
+            routed.computeIfAbsent(writer, w -> new ArrayList<>()).add(partition);
+        }
+        for (Map.Entry<SinkWriter, List<TopicPartition>> entry : routed.entrySet()) {
+            entry.getKey().revoke(entry.getValue());
+        }
+    }
+
+    public Map<TopicPartition, OffsetAndMetadata> committableOffsets(Map<TopicPartition, OffsetAndMetadata> currentOffsets) {
+        Map<TopicPartition, OffsetAndMetadata> result = new HashMap<>();
+        for (SinkWriter writer : writers) {
+            result.putAll(writer.committableOffsets(currentOffsets));
+        }
+        return result;
+    }
+
+    /**
+     * write the remaining records, stop all writers and shutdown their processors
+     */
+    @Override
+    public void close() {
+        for (SinkWriter writer : writers) {
+            writer.close();
+        }
+        Set<Processor> closed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Processor processor : processors) {
+            if (closed.add(processor)) {
+                try {
+                    processor.shutdown();
+                } catch (Exception e) {
+                    log.warn("Ignoring error closing connection", e);
+                }
+            }
+        }
+        if (offsetStore != null) {
+            try {
+                offsetStore.close();
+            } catch (Exception e) {
+                log.warn("Ignoring error closing connection", e);
+            }
+        }
+    }
+}
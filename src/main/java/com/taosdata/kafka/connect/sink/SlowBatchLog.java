@@ -0,0 +1,57 @@
+package com.taosdata.kafka.connect.sink;
+
+import org.apache.kafka.common.utils.Time;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * log the written batches which took at least slow.batch.log.ms with their request id and kafka coordinates,
+ * so they can be found in the logs of TDengine.
+ * at most one batch is logged per slow.batch.log.interval.ms, with the number of slow batches not logged.
+ * a log is used by one writer thread.
+ */
+class SlowBatchLog {
+    private static final Logger log = LoggerFactory.getLogger(SlowBatchLog.class);
+
+    private final long thresholdMs;
+    private final long intervalMs;
+    private final Time time;
+
+    private boolean logged;
+    private long lastLogMs;
+    private int skipped;
+
+    SlowBatchLog(SinkConfig config) {
+        this(config, Time.SYSTEM);
+    }
+
+    SlowBatchLog(SinkConfig config, Time time) {
+        this.thresholdMs = config.getSlowBatchLogMs();
+        this.intervalMs = config.getSlowBatchLogIntervalMs();
+        this.time = time;
+    }
+
+    /**
+     * @return true if the batch is logged
+     */
+    boolean onBatch(long reqId, List<SinkRecord> batch, WriteTarget target, long latencyMs) {
+        if (thresholdMs <= 0 || latencyMs < thresholdMs) {
+            return false;
+        }
+        long now = time.milliseconds();
+        if (logged && now - lastLogMs < intervalMs) {
+            skipped++;
+            return false;
+        }
+        log.warn("Slow batch {} took {} ms: {} records to database {} from {}, {} more slow batches since the last one",
+                SinkWriter.reqId(reqId), latencyMs, batch.size(), target.getDatabase(),
+                SinkWriter.coordinates(batch), skipped);
+        logged = true;
+        lastLogMs = now;
+        skipped = 0;
+        return true;
+    }
+}
@@ -0,0 +1,402 @@
+package com.taosdata.kafka.connect.sink;
+
+import com.taosdata.jdbc.enums.SchemalessProtocolType;
+import com.taosdata.jdbc.enums.SchemalessTimestampType;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * append only log of batches on local disk, used to keep batches which can not be written while TDengine is down.
+ * the log is a directory of memory mapped segment files, each starting with a header holding the position
+ * of its first unread batch. a batch is stored as length, crc and the target and records of the batch.
+ * batches are read back in the order they were appended, a segment is deleted when all its batches were read.
+ * the log is only used by one writer thread.
+ */
+public class SpillLog implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(SpillLog.class);
+
+    private static final int MAGIC = 0x54445350;
+    // magic and read position
+    private static final int HEADER_SIZE = 8;
+    // length and crc of a batch
+    private static final int ENTRY_HEADER_SIZE = 8;
+    private static final String SUFFIX = ".seg";
+
+    private static final byte NULL_VALUE = 0;
+    private static final byte STRING_VALUE = 1;
+    private static final byte BYTES_VALUE = 2;
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final long maxBytes;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private long nextSequence;
+    private long spilledRecords;
+
+    private SpillLog(Path dir, int segmentBytes, long maxBytes) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * open the log in the directory, the batches left by a previous run are read first
+     *
+     * @param segmentBytes size of a segment file, larger batches get a segment of their own
+     * @param maxBytes     maximum size of all segment files
+     */
+    public static SpillLog open(Path dir, int segmentBytes, long maxBytes) throws IOException {
+        Files.createDirectories(dir);
+        SpillLog spillLog = new SpillLog(dir, segmentBytes, maxBytes);
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        files.sort(null);
+        for (Path file : files) {
+            Segment segment = Segment.open(file);
+            if (segment == null) {
+                log.warn("Ignoring spill segment {} with an unknown format", file);
+                continue;
+            }
+            spillLog.nextSequence = Math.max(spillLog.nextSequence, sequenceOf(file) + 1);
+            if (segment.isFullyRead()) {
+                segment.delete();
+            } else {
+                spillLog.segments.addLast(segment);
+                spillLog.spilledRecords += segment.unreadRecords;
+            }
+        }
+        if (!spillLog.isEmpty()) {
+            log.info("Found {} spilled records in {} segments of {}",
+                    spillLog.spilledRecords, spillLog.segments.size(), dir);
+        }
+        return spillLog;
+    }
+
+    private static long sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public boolean isEmpty() {
+        return segments.isEmpty();
+    }
+
+    /**
+     * @return number of records which have not been read back
+     */
+    public long spilledRecords() {
+        return spilledRecords;
+    }
+
+    /**
+     * append the batch and force it to disk
+     *
+     * @return false if the log has no room for the batch
+     */
+    public boolean append(WriteTarget target, List<SinkRecord> records) throws IOException {
+        byte[] payload = encode(target, records);
+        int entrySize = ENTRY_HEADER_SIZE + payload.length;
+        Segment segment = segments.peekLast();
+        if (segment == null || !segment.hasRoom(entrySize)) {
+            // the end marker of a segment is an entry length of 0
+            long size = Math.max(segmentBytes, (long) HEADER_SIZE + entrySize + 4);
+            if (size > Integer.MAX_VALUE || sizeOnDisk() + size > maxBytes) {
+                return false;
+            }
+            segment = Segment.create(dir.resolve(String.format("%020d%s", nextSequence++, SUFFIX)), (int) size);
+            segments.addLast(segment);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        segment.append(payload, (int) crc.getValue(), records.size());
+        spilledRecords += records.size();
+        return true;
+    }
+
+    /**
+     * @return the oldest unread batch, null if all batches were read
+     */
+    public SpilledBatch peek() throws IOException {
+        while (!segments.isEmpty()) {
+            Segment segment = segments.peekFirst();
+            byte[] payload = segment.peek();
+            if (payload != null) {
+                return decode(payload);
+            }
+            // the rest of the segment is corrupted
+            segments.removeFirst();
+            segment.delete();
+        }
+        return null;
+    }
+
+    /**
+     * mark the batch returned by {@link #peek()} as read
+     */
+    public void remove(SpilledBatch batch) throws IOException {
+        Segment segment = segments.peekFirst();
+        if (segment == null) {
+            return;
+        }
+        segment.advance(batch.entrySize, batch.getRecords().size());
+        spilledRecords -= batch.getRecords().size();
+        if (segment.isFullyRead()) {
+            segments.removeFirst();
+            segment.delete();
+        }
+    }
+
+    private long sizeOnDisk() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.buffer.capacity();
+        }
+        return size;
+    }
+
+    @Override
+    public void close() {
+        for (Segment segment : segments) {
+            segment.buffer.force();
+        }
+        segments.clear();
+    }
+
+    static byte[] encode(WriteTarget target, List<SinkRecord> records) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + records.size() * 64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(target.getDatabase());
+            out.writeUTF(target.getProtocol() == null ? "" : target.getProtocol().name());
+            out.writeUTF(target.getTimestampType() == null ? "" : target.getTimestampType().name());
+            out.writeInt(records.size());
+            for (SinkRecord record : records) {
+                out.writeUTF(record.topic());
+                out.writeInt(record.kafkaPartition() == null ? -1 : record.kafkaPartition());
+                out.writeLong(record.kafkaOffset());
+                out.writeBoolean(record.timestamp() != null);
+                out.writeLong(record.timestamp() == null ? 0 : record.timestamp());
+                Object value = record.value();
+                byte[] data;
+                if (value == null) {
+                    out.writeByte(NULL_VALUE);
+                    continue;
+                } else if (value instanceof byte[]) {
+                    out.writeByte(BYTES_VALUE);
+                    data = (byte[]) value;
+                } else {
+                    out.writeByte(STRING_VALUE);
+                    data = SinkWriter.toLine(value).getBytes(StandardCharsets.UTF_8);
+                }
+                out.writeInt(data.length);
+                out.write(data);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    static SpilledBatch decode(byte[] payload) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            String database = in.readUTF();
+            String protocol = in.readUTF();
+            String timestampType = in.readUTF();
+            WriteTarget target = new WriteTarget(database,
+                    protocol.isEmpty() ? null : SchemalessProtocolType.valueOf(protocol),
+                    timestampType.isEmpty() ? null : SchemalessTimestampType.valueOf(timestampType));
+            int count = in.readInt();
+            List<SinkRecord> records = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String topic = in.readUTF();
+                int partition = in.readInt();
+                long offset = in.readLong();
+                boolean hasTimestamp = in.readBoolean();
+                long timestamp = in.readLong();
+                byte type = in.readByte();
+                Object value = null;
+                if (type != NULL_VALUE) {
+                    byte[] data = new byte[in.readInt()];
+                    in.readFully(data);
+                    value = type == BYTES_VALUE ? data : new String(data, StandardCharsets.UTF_8);
+                }
+                records.add(new SinkRecord(topic, partition < 0 ? null : partition, null, null, null, value,
+                        offset, hasTimestamp ? timestamp : null, null));
+            }
+            return new SpilledBatch(target, records, ENTRY_HEADER_SIZE + payload.length);
+        }
+    }
+
+    /**
+     * a batch read back from the log
+     */
+    public static class SpilledBatch {
+        private final WriteTarget target;
+        private final List<SinkRecord> records;
+        private final int entrySize;
+
+        private SpilledBatch(WriteTarget target, List<SinkRecord> records, int entrySize) {
+            this.target = target;
+            this.records = records;
+            this.entrySize = entrySize;
+        }
+
+        public WriteTarget getTarget() {
+            return target;
+        }
+
+        public List<SinkRecord> getRecords() {
+            return records;
+        }
+    }
+
+    /**
+     * a memory mapped segment file, writes start at the end of the written batches
+     */
+    private static class Segment {
+        private final Path file;
+        private final MappedByteBuffer buffer;
+        private int readPosition;
+        private int writePosition;
+        private long unreadRecords;
+
+        private Segment(Path file, MappedByteBuffer buffer) {
+            this.file = file;
+            this.buffer = buffer;
+        }
+
+        private static Segment create(Path file, int size) throws IOException {
+            Segment segment = new Segment(file, map(file, size));
+            segment.buffer.putInt(0, MAGIC);
+            segment.buffer.putInt(4, HEADER_SIZE);
+            segment.readPosition = HEADER_SIZE;
+            segment.writePosition = HEADER_SIZE;
+            return segment;
+        }
+
+        /**
+         * @return the segment, null if the file is not a segment
+         */
+        private static Segment open(Path file) throws IOException {
+            long size = Files.size(file);
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                return null;
+            }
+            Segment segment = new Segment(file, map(file, (int) size));
+            if (segment.buffer.getInt(0) != MAGIC) {
+                return null;
+            }
+            segment.readPosition = segment.buffer.getInt(4);
+            // find the end of the batches which were completely written
+            int position = HEADER_SIZE;
+            while (true) {
+                byte[] payload = segment.read(position);
+                if (payload == null) {
+                    break;
+                }
+                if (position >= segment.readPosition) {
+                    segment.unreadRecords += recordCount(payload);
+                }
+                position += ENTRY_HEADER_SIZE + payload.length;
+            }
+            segment.writePosition = position;
+            if (segment.readPosition > position) {
+                segment.readPosition = position;
+            }
+            return segment;
+        }
+
+        private static int recordCount(byte[] payload) {
+            try {
+                return decode(payload).getRecords().size();
+            } catch (IOException e) {
+                return 0;
+            }
+        }
+
+        private static MappedByteBuffer map(Path file, int size) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+        }
+
+        private boolean hasRoom(int entrySize) {
+            return (long) writePosition + entrySize + 4 <= buffer.capacity();
+        }
+
+        private void append(byte[] payload, int crc, int records) {
+            buffer.putInt(writePosition + 4, crc);
+            ByteBuffer view = buffer.duplicate();
+            view.position(writePosition + ENTRY_HEADER_SIZE);
+            view.put(payload);
+            // the length is written last, so a torn write ends the segment
+            buffer.force();
+            buffer.putInt(writePosition, payload.length);
+            buffer.force();
+            writePosition += ENTRY_HEADER_SIZE + payload.length;
+            unreadRecords += records;
+        }
+
+        /**
+         * @return payload of the batch at the position, null at the end of the written batches
+         */
+        private byte[] read(int position) {
+            if (position + ENTRY_HEADER_SIZE > buffer.capacity()) {
+                return null;
+            }
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + ENTRY_HEADER_SIZE + (long) length > buffer.capacity()) {
+                return null;
+            }
+            byte[] payload = new byte[length];
+            ByteBuffer view = buffer.duplicate();
+            view.position(position + ENTRY_HEADER_SIZE);
+            view.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                log.warn("Spill segment {} is corrupted at position {}, ignoring the rest of it", file, position);
+                return null;
+            }
+            return payload;
+        }
+
+        private byte[] peek() {
+            return readPosition < writePosition ? read(readPosition) : null;
+        }
+
+        private void advance(int entrySize, int records) {
+            unreadRecords -= records;
+            readPosition += entrySize;
+            buffer.putInt(4, readPosition);
+            buffer.force();
+        }
+
+        private boolean isFullyRead() {
+            return readPosition >= writePosition;
+        }
+
+        private void delete() throws IOException {
+            Files.deleteIfExists(file);
+        }
+    }
+}
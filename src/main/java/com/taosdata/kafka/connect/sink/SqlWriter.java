@@ -0,0 +1,211 @@
+package com.taosdata.kafka.connect.sink;
+
+import com.taosdata.jdbc.TSDBConstants;
+import com.taosdata.kafka.connect.db.Processor;
+import org.apache.kafka.connect.errors.DataException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * write rows to the child tables of a super table with multi table insert statements:
+ * insert into t1 using stb tags(...) values(...)(...) t2 using stb tags(...) values(...) ...
+ * a statement is executed when the next row would make it longer than db.sql.max.length.
+ * a retry of the same rows skips the statements which have been executed by the failed attempt.
+ * the string builders are reused by the batches of one writer thread.
+ */
+public class SqlWriter implements RecordWriter {
+    private static final Logger log = LoggerFactory.getLogger(SqlWriter.class);
+
+    private static final String INSERT = "insert into";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    private final Processor processor;
+    private final int maxLength;
+
+    private final StringBuilder sql = new StringBuilder(INITIAL_CAPACITY);
+    private final StringBuilder header = new StringBuilder();
+    private final StringBuilder row = new StringBuilder();
+    private final BitSet statementRows = new BitSet();
+
+    public SqlWriter(SinkConfig config, Processor processor) {
+        this.processor = processor;
+        this.maxLength = config.getSqlMaxLength();
+    }
+
+    @Override
+    public void write(List<TableRow> rows, StableSchema schema, WriteProgress progress) throws SQLException {
+        // the same rows of an equal schema are split into the same statements, also after the schema was reloaded
+        progress.layout(Arrays.asList(schema, rows.size()));
+        // the indexes of the rows of each table, the rows of a statement are kept as written items
+        Map<String, List<Integer>> tables = new LinkedHashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            tables.computeIfAbsent(rows.get(i).getTable(), name -> new ArrayList<>()).add(i);
+        }
+        int statement = 0;
+        try {
+            sql.setLength(0);
+            sql.append(INSERT);
+            statementRows.clear();
+            for (List<Integer> table : tables.values()) {
+                appendHeader(rows.get(table.get(0)), schema);
+                boolean headerWritten = false;
+                for (int index : table) {
+                    appendRow(rows.get(index), schema);
+                    int needed = row.length() + (headerWritten ? 0 : header.length());
+                    if (sql.length() > INSERT.length() && sql.length() + needed > maxLength) {
+                        execute(statement++, progress);
+                        headerWritten = false;
+                    }
+                    if (!headerWritten) {
+                        sql.append(header);
+                        headerWritten = true;
+                    }
+                    sql.append(row);
+                    statementRows.set(index);
+                }
+            }
+            if (sql.length() > INSERT.length()) {
+                execute(statement, progress);
+            }
+        } finally {
+            // do not keep the memory of an exceptionally large statement
+            if (sql.capacity() > maxLength * 2) {
+                sql.setLength(0);
+                sql.trimToSize();
+            }
+        }
+    }
+
+    private void execute(int statement, WriteProgress progress) throws SQLException {
+        if (progress.isWritten(statement)) {
+            log.trace("skip statement {}, it has been executed", statement);
+        } else {
+            log.trace("execute sql of {} chars", sql.length());
+            processor.execute(sql.toString());
+            progress.written(statement, statementRows);
+        }
+        sql.setLength(0);
+        sql.append(INSERT);
+        statementRows.clear();
+    }
+
+    private void appendHeader(TableRow first, StableSchema schema) {
+        header.setLength(0);
+        header.append(' ');
+        appendName(header, first.getTable());
+        header.append(" using ").append(schema.getName()).append(" tags(");
+        List<StableSchema.Column> tags = schema.getTags();
+        Object[] values = first.getTags();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                header.append(',');
+            }
+            appendValue(header, values[i], tags.get(i).getType());
+        }
+        header.append(") values");
+    }
+
+    private void appendRow(TableRow tableRow, StableSchema schema) {
+        row.setLength(0);
+        row.append('(');
+        List<StableSchema.Column> columns = schema.getColumns();
+        Object[] values = tableRow.getValues();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                row.append(',');
+            }
+            appendValue(row, values[i], columns.get(i).getType());
+        }
+        row.append(')');
+    }
+
+    /**
+     * plain identifiers are written as they are, other names are quoted with back quotes
+     */
+    static void appendName(StringBuilder sb, String name) {
+        boolean plain = true;
+        for (int i = 0; i < name.length() && plain; i++) {
+            char c = name.charAt(i);
+            plain = c == '_' || c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' && i > 0;
+        }
+        if (plain) {
+            sb.append(name);
+            return;
+        }
+        if (name.indexOf('`') >= 0) {
+            throw new DataException("Table name " + name + " must not contain back quotes");
+        }
+        sb.append('`').append(name).append('`');
+    }
+
+    /**
+     * append the value converted by {@link RecordFields#convert} as a sql literal, without creating strings
+     */
+    static void appendValue(StringBuilder sb, Object value, int type) {
+        if (value == null) {
+            sb.append("null");
+            return;
+        }
+        switch (type) {
+            case TSDBConstants.TSDB_DATA_TYPE_BOOL:
+                sb.append(((Boolean) value).booleanValue());
+                break;
+            case TSDBConstants.TSDB_DATA_TYPE_TINYINT:
+            case TSDBConstants.TSDB_DATA_TYPE_SMALLINT:
+            case TSDBConstants.TSDB_DATA_TYPE_INT:
+                sb.append(((Number) value).intValue());
+                break;
+            case TSDBConstants.TSDB_DATA_TYPE_BIGINT:
+            case TSDBConstants.TSDB_DATA_TYPE_TIMESTAMP:
+                sb.append(((Long) value).longValue());
+                break;
+            case TSDBConstants.TSDB_DATA_TYPE_FLOAT:
+                float f = (Float) value;
+                if (Float.isNaN(f) || Float.isInfinite(f)) {
+                    sb.append("null");
+                } else {
+                    sb.append(f);
+                }
+                break;
+            case TSDBConstants.TSDB_DATA_TYPE_DOUBLE:
+                double d = (Double) value;
+                if (Double.isNaN(d) || Double.isInfinite(d)) {
+                    sb.append("null");
+                } else {
+                    sb.append(d);
+                }
+                break;
+            case TSDBConstants.TSDB_DATA_TYPE_GEOMETRY:
+                // well known text
+                appendQuoted(sb, new String((byte[]) value, StandardCharsets.UTF_8));
+                break;
+            case TSDBConstants.TSDB_DATA_TYPE_VARBINARY:
+                byte[] bytes = (byte[]) value;
+                sb.append("'\\x");
+                for (byte b : bytes) {
+                    sb.append(HEX[(b >> 4) & 0xf]).append(HEX[b & 0xf]);
+                }
+                sb.append('\'');
+                break;
+            default:
+                appendQuoted(sb, (String) value);
+        }
+    }
+
+    private static void appendQuoted(StringBuilder sb, String value) {
+        sb.append('\'');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\'' || c == '\\') {
+                sb.append('\\');
+            }
+            sb.append(c);
+        }
+        sb.append('\'');
+    }
+}
@@ -0,0 +1,193 @@
+package com.taosdata.kafka.connect.sink;
+
+import com.taosdata.jdbc.TSDBConstants;
+import com.taosdata.kafka.connect.source.SourceConstants;
+import com.taosdata.kafka.connect.util.SQLUtils;
+import org.apache.kafka.connect.errors.ConnectException;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+
+/**
+ * columns and tags of a super table, and the timestamp precision of its database.
+ * schemas are equal when they describe the same super table, so a reloaded schema can be compared with the cached one.
+ */
+public class StableSchema {
+    private final String name;
+    private final List<Column> columns;
+    private final List<Column> tags;
+    private final Set<String> fields = new HashSet<>();
+    // multiplier from milliseconds to the database precision
+    private final long msFactor;
+
+    public StableSchema(String name, List<Column> columns, List<Column> tags, String precision) {
+        this.name = name;
+        this.columns = Collections.unmodifiableList(columns);
+        this.tags = Collections.unmodifiableList(tags);
+        for (Column column : columns) {
+            fields.add(column.getName());
+        }
+        for (Column tag : tags) {
+            fields.add(tag.getName());
+        }
+        this.msFactor = "ns".equalsIgnoreCase(precision) ? 1_000_000L : "us".equalsIgnoreCase(precision) ? 1_000L : 1L;
+    }
+
+    /**
+     * read the schema with describe
+     */
+    public static StableSchema load(Connection connection, String database, String stable) throws SQLException {
+        List<Column> columns = new ArrayList<>();
+        List<Column> tags = new ArrayList<>();
+        String precision = "ms";
+        try (Statement statement = connection.createStatement()) {
+            try (ResultSet rs = statement.executeQuery(SQLUtils.describeTableSql(database + "." + stable))) {
+                while (rs.next()) {
+                    Column column = new Column(rs.getString(1), typeOf(rs.getString(2), stable), rs.getInt(3));
+                    if (SourceConstants.TABLE_TAG.equals(rs.getString(4))) {
+                        tags.add(column);
+                    } else {
+                        columns.add(column);
+                    }
+                }
+            }
+            try (ResultSet rs = statement.executeQuery(SQLUtils.databasePrecisionSql(database))) {
+                if (rs.next()) {
+                    precision = rs.getString(1);
+                }
+            }
+        }
+        if (columns.isEmpty() || tags.isEmpty()) {
+            throw new ConnectException("Super table " + database + "." + stable + " does not exist");
+        }
+        return new StableSchema(stable, columns, tags, precision);
+    }
+
+    private static int typeOf(String type, String stable) {
+        switch (type.trim().toUpperCase(Locale.ROOT)) {
+            case "TIMESTAMP":
+                return TSDBConstants.TSDB_DATA_TYPE_TIMESTAMP;
+            case "BOOL":
+                return TSDBConstants.TSDB_DATA_TYPE_BOOL;
+            case "TINYINT":
+                return TSDBConstants.TSDB_DATA_TYPE_TINYINT;
+            case "SMALLINT":
+                return TSDBConstants.TSDB_DATA_TYPE_SMALLINT;
+            case "INT":
+                return TSDBConstants.TSDB_DATA_TYPE_INT;
+            case "BIGINT":
+                return TSDBConstants.TSDB_DATA_TYPE_BIGINT;
+            case "FLOAT":
+                return TSDBConstants.TSDB_DATA_TYPE_FLOAT;
+            case "DOUBLE":
+                return TSDBConstants.TSDB_DATA_TYPE_DOUBLE;
+            case "BINARY":
+            case "VARCHAR":
+                return TSDBConstants.TSDB_DATA_TYPE_BINARY;
+            case "NCHAR":
+                return TSDBConstants.TSDB_DATA_TYPE_NCHAR;
+            case "JSON":
+                return TSDBConstants.TSDB_DATA_TYPE_JSON;
+            case "VARBINARY":
+                return TSDBConstants.TSDB_DATA_TYPE_VARBINARY;
+            case "GEOMETRY":
+                return TSDBConstants.TSDB_DATA_TYPE_GEOMETRY;
+            default:
+                throw new ConnectException("Column type " + type + " of super table " + stable + " is not supported");
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return data columns, the first one is the timestamp
+     */
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    public List<Column> getTags() {
+        return tags;
+    }
+
+    /**
+     * @return true if the name is a column or a tag of the super table
+     */
+    public boolean hasField(String name) {
+        return fields.contains(name);
+    }
+
+    /**
+     * @return the millisecond timestamp in the precision of the database
+     */
+    public long fromMillis(long ms) {
+        return ms * msFactor;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        StableSchema that = (StableSchema) o;
+        return msFactor == that.msFactor && name.equals(that.name)
+                && columns.equals(that.columns) && tags.equals(that.tags);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, columns, tags, msFactor);
+    }
+
+    public static class Column {
+        private final String name;
+        private final int type;
+        private final int length;
+
+        public Column(String name, int type, int length) {
+            this.name = name;
+            this.type = type;
+            this.length = length;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return one of TSDBConstants.TSDB_DATA_TYPE_*
+         */
+        public int getType() {
+            return type;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Column column = (Column) o;
+            return type == column.type && length == column.length && name.equals(column.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, type, length);
+        }
+    }
+}
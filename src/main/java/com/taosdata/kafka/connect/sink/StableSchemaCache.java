@@ -0,0 +1,98 @@
+package com.taosdata.kafka.connect.sink;
+
+import com.taosdata.kafka.connect.db.Processor;
+import org.apache.kafka.common.utils.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * schemas of the target super tables by database and name, shared by the writers of a task.
+ * a schema is loaded with describe on first use and reloaded when the super table may have been altered.
+ * a reloaded schema equal to the cached one keeps the cached instance.
+ */
+public class StableSchemaCache {
+    private static final Logger log = LoggerFactory.getLogger(StableSchemaCache.class);
+
+    // a suspected schema change reloads a schema at most once in this interval
+    static final long MIN_REFRESH_INTERVAL_MS = 60_000L;
+
+    private final ConcurrentMap<String, Entry> schemas = new ConcurrentHashMap<>();
+    private final Time time;
+
+    public StableSchemaCache() {
+        this(Time.SYSTEM);
+    }
+
+    StableSchemaCache(Time time) {
+        this.time = time;
+    }
+
+    /**
+     * @return the cached schema of the super table of the target, loaded with the processor if missing
+     */
+    public StableSchema get(WriteTarget target, Processor processor) throws SQLException {
+        Entry entry = schemas.get(key(target));
+        return entry == null || entry.stale ? load(target, processor, entry).schema : entry.schema;
+    }
+
+    /**
+     * reload the schema if it has not been loaded recently, e.g. when records do not match it
+     *
+     * @return the current schema, the same instance if it was not reloaded
+     */
+    public StableSchema refresh(WriteTarget target, Processor processor) throws SQLException {
+        Entry entry = schemas.get(key(target));
+        if (entry != null && !entry.stale && time.milliseconds() - entry.loadedMs < MIN_REFRESH_INTERVAL_MS) {
+            return entry.schema;
+        }
+        return load(target, processor, entry).schema;
+    }
+
+    /**
+     * reload the schema on next use, e.g. after a failed write
+     */
+    public void invalidate(WriteTarget target) {
+        Entry entry = schemas.get(key(target));
+        if (entry != null) {
+            entry.stale = true;
+        }
+    }
+
+    /**
+     * @param previous the cached entry, may be null
+     */
+    private Entry load(WriteTarget target, Processor processor, Entry previous) throws SQLException {
+        String key = key(target);
+        StableSchema schema = processor.withConnection(connection ->
+                StableSchema.load(connection, target.getDatabase(), target.getStable()));
+        if (previous != null && previous.schema.equals(schema)) {
+            log.debug("Schema of super table {} is unchanged", key);
+            schema = previous.schema;
+        } else {
+            log.info("Loaded schema of super table {} with {} columns and {} tags",
+                    key, schema.getColumns().size(), schema.getTags().size());
+        }
+        Entry entry = new Entry(schema, time.milliseconds());
+        schemas.put(key, entry);
+        return entry;
+    }
+
+    private static String key(WriteTarget target) {
+        return target.getDatabase() + "." + target.getStable();
+    }
+
+    private static class Entry {
+        private final StableSchema schema;
+        private final long loadedMs;
+        private volatile boolean stale;
+
+        private Entry(StableSchema schema, long loadedMs) {
+            this.schema = schema;
+            this.loadedMs = loadedMs;
+        }
+    }
+}
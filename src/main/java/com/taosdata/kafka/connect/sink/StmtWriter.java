@@ -0,0 +1,191 @@
+package com.taosdata.kafka.connect.sink;
+
+import com.taosdata.jdbc.TSDBConstants;
+import com.taosdata.jdbc.TSDBPreparedStatement;
+import com.taosdata.kafka.connect.db.Processor;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * write rows to the child tables of a super table with a prepared statement.
+ * the values of a child table are collected into one list per column and bound with one call per column,
+ * the tags of a child table are taken from its first row.
+ * all child tables are executed as one batch, so a retry always writes all rows again.
+ */
+public class StmtWriter implements RecordWriter {
+    private final Processor processor;
+
+    public StmtWriter(Processor processor) {
+        this.processor = processor;
+    }
+
+    @Override
+    public void write(List<TableRow> rows, StableSchema schema, WriteProgress progress) throws SQLException {
+        Map<String, TableData> tables = group(rows, schema);
+        String sql = insertSql(schema);
+        processor.withConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                TSDBPreparedStatement stmt = statement.unwrap(TSDBPreparedStatement.class);
+                for (TableData table : tables.values()) {
+                    bind(stmt, schema, table);
+                }
+                stmt.columnDataExecuteBatch();
+                stmt.columnDataCloseBatch();
+            }
+            return null;
+        });
+    }
+
+    private static Map<String, TableData> group(List<TableRow> rows, StableSchema schema) {
+        int columns = schema.getColumns().size();
+        Map<String, TableData> tables = new LinkedHashMap<>();
+        for (TableRow row : rows) {
+            TableData table = tables.get(row.getTable());
+            if (table == null) {
+                table = new TableData(row, columns);
+                tables.put(row.getTable(), table);
+            }
+            Object[] values = row.getValues();
+            for (int i = 0; i < columns; i++) {
+                table.values.get(i).add(values[i]);
+            }
+        }
+        return tables;
+    }
+
+    static String insertSql(StableSchema schema) {
+        StringBuilder sql = new StringBuilder("insert into ? using ").append(schema.getName()).append(" tags(");
+        appendMarks(sql, schema.getTags().size());
+        sql.append(") values(");
+        appendMarks(sql, schema.getColumns().size());
+        return sql.append(')').toString();
+    }
+
+    private static void appendMarks(StringBuilder sql, int count) {
+        for (int i = 0; i < count; i++) {
+            sql.append(i == 0 ? "?" : ",?");
+        }
+    }
+
+    private static void bind(TSDBPreparedStatement stmt, StableSchema schema, TableData table) throws SQLException {
+        stmt.setTableName(table.name);
+        List<StableSchema.Column> tags = schema.getTags();
+        for (int i = 0; i < tags.size(); i++) {
+            bindTag(stmt, i, tags.get(i).getType(), table.tags[i]);
+        }
+        List<StableSchema.Column> columns = schema.getColumns();
+        for (int i = 0; i < columns.size(); i++) {
+            bindColumn(stmt, i, columns.get(i), table.values.get(i));
+        }
+        stmt.columnDataAddBatch();
+    }
+
+    private static void bindTag(TSDBPreparedStatement stmt, int index, int type, Object value) {
+        if (value == null) {
+            stmt.setTagNull(index, type);
+            return;
+        }
+        switch (type) {
+            case TSDBConstants.TSDB_DATA_TYPE_BOOL:
+                stmt.setTagBoolean(index, (Boolean) value);
+                break;
+            case TSDBConstants.TSDB_DATA_TYPE_TINYINT:
+                stmt.setTagByte(index, (Byte) value);
+                break;
+            case TSDBConstants.TSDB_DATA_TYPE_SMALLINT:
+                stmt.setTagShort(index, (Short) value);
+                break;
+            case TSDBConstants.TSDB_DATA_TYPE_INT:
+                stmt.setTagInt(index, (Integer) value);
+                break;
+            case TSDBConstants.TSDB_DATA_TYPE_BIGINT:
+                stmt.setTagLong(index, (Long) value);
+                break;
+            case TSDBConstants.TSDB_DATA_TYPE_FLOAT:
+                stmt.setTagFloat(index, (Float) value);
+                break;
+            case TSDBConstants.TSDB_DATA_TYPE_DOUBLE:
+                stmt.setTagDouble(index, (Double) value);
+                break;
+            case TSDBConstants.TSDB_DATA_TYPE_TIMESTAMP:
+                stmt.setTagTimestamp(index, (Long) value);
+                break;
+            case TSDBConstants.TSDB_DATA_TYPE_NCHAR:
+                stmt.setTagNString(index, (String) value);
+                break;
+            case TSDBConstants.TSDB_DATA_TYPE_JSON:
+                stmt.setTagJson(index, (String) value);
+                break;
+            case TSDBConstants.TSDB_DATA_TYPE_VARBINARY:
+                stmt.setTagVarbinary(index, (byte[]) value);
+                break;
+            case TSDBConstants.TSDB_DATA_TYPE_GEOMETRY:
+                stmt.setTagGeometry(index, (byte[]) value);
+                break;
+            default:
+                stmt.setTagString(index, (String) value);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void bindColumn(TSDBPreparedStatement stmt, int index, StableSchema.Column column,
+                                   ArrayList<?> values) throws SQLException {
+        switch (column.getType()) {
+            case TSDBConstants.TSDB_DATA_TYPE_BOOL:
+                stmt.setBoolean(index, (ArrayList<Boolean>) values);
+                break;
+            case TSDBConstants.TSDB_DATA_TYPE_TINYINT:
+                stmt.setByte(index, (ArrayList<Byte>) values);
+                break;
+            case TSDBConstants.TSDB_DATA_TYPE_SMALLINT:
+                stmt.setShort(index, (ArrayList<Short>) values);
+                break;
+            case TSDBConstants.TSDB_DATA_TYPE_INT:
+                stmt.setInt(index, (ArrayList<Integer>) values);
+                break;
+            case TSDBConstants.TSDB_DATA_TYPE_BIGINT:
+                stmt.setLong(index, (ArrayList<Long>) values);
+                break;
+            case TSDBConstants.TSDB_DATA_TYPE_FLOAT:
+                stmt.setFloat(index, (ArrayList<Float>) values);
+                break;
+            case TSDBConstants.TSDB_DATA_TYPE_DOUBLE:
+                stmt.setDouble(index, (ArrayList<Double>) values);
+                break;
+            case TSDBConstants.TSDB_DATA_TYPE_TIMESTAMP:
+                stmt.setTimestamp(index, (ArrayList<Long>) values);
+                break;
+            case TSDBConstants.TSDB_DATA_TYPE_NCHAR:
+                stmt.setNString(index, (ArrayList<String>) values, column.getLength());
+                break;
+            case TSDBConstants.TSDB_DATA_TYPE_VARBINARY:
+                stmt.setVarbinary(index, (ArrayList<byte[]>) values, column.getLength());
+                break;
+            case TSDBConstants.TSDB_DATA_TYPE_GEOMETRY:
+                stmt.setGeometry(index, (ArrayList<byte[]>) values, column.getLength());
+                break;
+            default:
+                stmt.setString(index, (ArrayList<String>) values, column.getLength());
+        }
+    }
+
+    /**
+     * tags and column values of a child table
+     */
+    private static class TableData {
+        private final String name;
+        private final Object[] tags;
+        private final List<ArrayList<Object>> values;
+
+        private TableData(TableRow first, int columns) {
+            this.name = first.getTable();
+            this.tags = first.getTags();
+            this.values = new ArrayList<>(columns);
+            for (int i = 0; i < columns; i++) {
+                values.add(new ArrayList<>());
+            }
+        }
+    }
+}
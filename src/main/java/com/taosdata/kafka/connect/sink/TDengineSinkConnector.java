@@ -10,6 +10,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -19,6 +20,11 @@ import java.util.Map;
 public class TDengineSinkConnector extends SinkConnector {
     private static final Logger log = LoggerFactory.getLogger(TDengineSinkConnector.class);
 
+    /**
+     * index of the task, set in the task configs to name the metrics of the task
+     */
+    public static final String TASK_ID_CONFIG = "task.id";
+
     private Map<String, String> configProps;
 
     @Override
@@ -65,7 +71,9 @@ public class TDengineSinkConnector extends SinkConnector {
         Preconditions.checkState(taskCount > 0, "taskCount must be greater than 0.");
         final List<Map<String, String>> result = new ArrayList<>(taskCount);
         for (int i = 0; i < taskCount; i++) {
-            result.add(settings);
+            Map<String, String> taskSettings = new HashMap<>(settings);
+            taskSettings.put(TASK_ID_CONFIG, String.valueOf(i));
+            result.add(taskSettings);
         }
         return ImmutableList.copyOf(result);
     }
@@ -1,15 +1,16 @@
 package com.taosdata.kafka.connect.sink;
 
 import com.taosdata.jdbc.TSDBDriver;
-import com.taosdata.jdbc.enums.SchemalessTimestampType;
 import com.taosdata.kafka.connect.db.CacheProcessor;
 import com.taosdata.kafka.connect.db.ConnectionProvider;
+import com.taosdata.kafka.connect.db.PoolProcessor;
 import com.taosdata.kafka.connect.db.TSDBConnectionProvider;
 import com.taosdata.kafka.connect.db.Processor;
 import com.taosdata.kafka.connect.util.VersionUtils;
-import org.apache.kafka.connect.connector.ConnectRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.config.ConfigException;
 import org.apache.kafka.connect.errors.ConnectException;
-import org.apache.kafka.connect.errors.RetriableException;
 import org.apache.kafka.connect.sink.ErrantRecordReporter;
 import org.apache.kafka.connect.sink.SinkRecord;
 import org.apache.kafka.connect.sink.SinkTask;
@@ -26,22 +27,27 @@ public class TDengineSinkTask extends SinkTask {
     private static final Logger log = LoggerFactory.getLogger(TDengineSinkTask.class);
 
     private SinkConfig config;
-    private Processor writer;
+    private SinkWriterPool writer;
+    private SinkTaskMetrics metrics;
     ErrantRecordReporter reporter;
-    private int remainingRetries;
+    // partitions are paused by the circuit breaker
+    private boolean paused;
+    // partitions of bulk topics paused while their writer is full, so the priority topics keep flowing
+    private final Set<TopicPartition> throttled = new HashSet<>();
 
     @Override
     public void start(Map<String, String> map) {
         log.info("Starting TDengine Sink task...");
         config = new SinkConfig(map);
-        initTask();
         try {
             reporter = context.errantRecordReporter();
         } catch (NoSuchMethodError | NoClassDefFoundError e) {
             reporter = null;
         }
-        // There will be a retry at the end
-        remainingRetries = config.getMaxRetries() - 1;
+        metrics = new SinkTaskMetrics();
+        metrics.register(map.get("name"), map.get(TDengineSinkConnector.TASK_ID_CONFIG));
+        initTask();
+        writer.start();
         log.debug("Started TDengine sink task");
     }
 
@@ -58,112 +64,204 @@ public class TDengineSinkTask extends SinkTask {
                 config.getConnectionAttempts(),
                 config.getConnectionBackoffMs()
         );
-        writer = new CacheProcessor<>(provider);
+        // the writers of the priority lane are added after the others
+        int writerThreads = config.getWriterThreads();
+        int priorityThreads = config.getPriorityTopics().isEmpty() ? 0 : config.getPriorityWriterThreads();
+        List<Processor> processors = new ArrayList<>();
+        if (config.isConnectionPoolEnabled()) {
+            // writer threads borrow connections of their database from the shared pool
+            Processor pool = new PoolProcessor(provider,
+                    config.getConnectionPoolMaxPerDatabase(),
+                    config.getConnectionPoolMaxTotal(),
+                    config.getConnectionPoolIdleTimeoutMs(),
+                    config.getConnectionPoolBorrowTimeoutMs(),
+                    config.getDbCacheSize());
+            for (int i = 0; i < writerThreads + priorityThreads; i++) {
+                processors.add(pool);
+            }
+        } else {
+            if (config.isVgroupRouting()) {
+                log.warn("{} is enabled without {}, the vgroup sub batches share one connection and are written one by one",
+                        SinkConfig.VGROUP_ROUTING, SinkConfig.CONNECTION_POOL_ENABLED);
+            }
+            for (int i = 0; i < writerThreads + priorityThreads; i++) {
+                CacheProcessor<ConnectionProvider> cacheProcessor = new CacheProcessor<>(provider, config.getDbCacheSize(),
+                        config.getConnectionValidation(), config.getConnectionValidationIdleMs());
+                cacheProcessor.startHealthCheck(config.getConnectionHealthCheckIntervalMs());
+                processors.add(cacheProcessor);
+            }
+        }
+        WriterResources resources = new WriterResources()
+                .reporter(reporter)
+                .metrics(metrics)
+                .circuitBreaker(config.isCircuitBreakerEnabled() ? new CircuitBreaker(config, metrics) : null)
+                .offsetStore(offsetStore(provider));
+        writer = new SinkWriterPool(config, processors.subList(0, writerThreads),
+                processors.subList(writerThreads, processors.size()), resources);
+    }
+
+    /**
+     * @return the offset store with a connection of its own, null if it is disabled
+     */
+    private OffsetStore offsetStore(ConnectionProvider provider) {
+        if (!config.isOffsetsStorageEnabled()) {
+            return null;
+        }
+        String database = config.getOffsetsStorageDatabase();
+        if (database.isEmpty()) {
+            throw new ConfigException(SinkConfig.OFFSETS_STORAGE_DATABASE, "",
+                    "is required when " + SinkConfig.OFFSETS_STORAGE_ENABLED + " is true and "
+                            + SinkConfig.CONNECTION_DB + " is not set");
+        }
+        Processor processor = new CacheProcessor<>(provider, 1, config.getConnectionValidation(),
+                config.getConnectionValidationIdleMs());
+        OffsetStore store = new OffsetStore(processor, database, config.getOffsetsStorageStable(),
+                config.originalsStrings().getOrDefault("name", "tdengine-sink"),
+                Integer.parseInt(config.originalsStrings().getOrDefault(TDengineSinkConnector.TASK_ID_CONFIG, "0")));
+        try {
+            store.init();
+        } catch (SQLException | ConnectException e) {
+            store.close();
+            throw new ConnectException("Failed to create the offset super table in database " + database, e);
+        }
+        store.start(config.getOffsetsStorageIntervalMs());
+        return store;
     }
 
     @Override
     public void put(Collection<SinkRecord> records) {
-        if (records.isEmpty()) {
+        writer.put(records);
+        applyCircuitBreaker();
+        applyBackpressure();
+    }
+
+    /**
+     * pause the partitions of full bulk writers and resume them once their writer has space again.
+     * while the circuit breaker has paused all partitions they stay paused.
+     */
+    private void applyBackpressure() {
+        Set<TopicPartition> assignment = context.assignment();
+        if (assignment == null) {
             return;
         }
-
-        List<SinkRecord> currentGroup = new ArrayList<>();
-        int maxBatchSize = config.getBatchSize();
-
-        String previousTopic = "";
-        for (SinkRecord record : records) {
-            if (maxBatchSize > 0 && currentGroup.size() == maxBatchSize
-                    || !previousTopic.equals(record.topic())) {
-
-                bulkWriteBatch(currentGroup, previousTopic);
-                // next batch insert
-                currentGroup = new ArrayList<>();
-                previousTopic = record.topic();
+        Set<TopicPartition> full = writer.fullPartitions(assignment);
+        if (full.isEmpty() && throttled.isEmpty()) {
+            return;
+        }
+        List<TopicPartition> pause = new ArrayList<>();
+        for (TopicPartition partition : full) {
+            if (throttled.add(partition)) {
+                pause.add(partition);
+            }
+        }
+        if (!pause.isEmpty()) {
+            log.debug("Pausing {} partitions of bulk topics until their writers have space", pause.size());
+            context.pause(pause.toArray(new TopicPartition[0]));
+        }
+        List<TopicPartition> resume = new ArrayList<>();
+        Iterator<TopicPartition> iterator = throttled.iterator();
+        while (iterator.hasNext()) {
+            TopicPartition partition = iterator.next();
+            if (!full.contains(partition)) {
+                iterator.remove();
+                resume.add(partition);
             }
-            currentGroup.add(record);
         }
-        bulkWriteBatch(currentGroup, previousTopic);
+        if (!resume.isEmpty() && !paused) {
+            log.debug("Resuming {} partitions of bulk topics", resume.size());
+            context.resume(resume.toArray(new TopicPartition[0]));
+        }
     }
 
-    private void bulkWriteBatch(final List<SinkRecord> batch, String topic) {
-        if (batch.isEmpty()) {
+    /**
+     * pause the assigned partitions while the circuit breaker is open, so the consumer keeps polling
+     * without new records instead of blocking put and being removed from the group.
+     * they are resumed when it lets probe batches through.
+     */
+    private void applyCircuitBreaker() {
+        CircuitBreaker breaker = writer.getCircuitBreaker();
+        if (breaker == null) {
             return;
         }
-
-        if (config.isSingleDatabase()) {
-            writer.setDbName(config.getConnectionDb());
+        boolean open = breaker.isOpen();
+        if (open == paused) {
+            return;
+        }
+        Set<TopicPartition> assignment = context.assignment();
+        TopicPartition[] partitions = assignment == null
+                ? new TopicPartition[0]
+                : assignment.toArray(new TopicPartition[0]);
+        if (open) {
+            log.warn("Pausing {} partitions until TDengine recovers", partitions.length);
+            context.pause(partitions);
         } else {
-            writer.setDbName(config.getConnectionDatabasePrefix() + topic);
-        }
-        // do some debug log
-        int size = batch.size();
-        SinkRecord record = batch.get(0);
-        log.debug(
-                "Received {} records. First record kafka coordinates:({}-{}-{}). Writing them to the "
-                        + "database...",
-                size, record.topic(), record.kafkaPartition(), record.kafkaOffset()
-        );
-        String[] strings = batch.stream().map(ConnectRecord::value).map(String::valueOf).toArray(String[]::new);
-        try {
-            writer.schemalessInsert(strings, config.getSchemalessTypeFormat(), config.getTimestampType());
-        } catch (SQLException sqle) {
-            log.warn(
-                    "Write of {} records failed, remainingRetries={}",
-                    batch.size(),
-                    remainingRetries,
-                    sqle
-            );
-            SQLException sqlAllMessagesException = getAllMessagesException(sqle);
-            if (remainingRetries > 0) {
-                writer.close();
-                remainingRetries--;
-                context.timeout(config.getRetryBackoffMs());
-                throw new RetriableException(sqlAllMessagesException);
-            } else {
-                if (reporter != null) {
-                    unrollAndRetry(batch);
-                } else {
-                    log.error(
-                            "Failing task after exhausting retries; "
-                                    + "encountered exceptions on last write attempt. "
-                                    + "For complete details on each exception, please enable DEBUG logging.");
-                    throw new ConnectException(sqlAllMessagesException);
+            log.info("Resuming {} partitions", partitions.length);
+            context.resume(partitions);
+            // the partitions of full bulk writers are paused again by the backpressure
+            throttled.clear();
+        }
+        paused = open;
+    }
+
+    @Override
+    public void open(Collection<TopicPartition> partitions) {
+        OffsetStore offsetStore = writer.getOffsetStore();
+        if (offsetStore != null) {
+            // continue after the last written batch instead of the last offset commit
+            try {
+                Map<TopicPartition, Long> offsets = offsetStore.load(partitions);
+                if (!offsets.isEmpty()) {
+                    log.info("Continuing from the offsets stored in TDengine: {}", offsets);
+                    context.offset(offsets);
                 }
+            } catch (SQLException | ConnectException e) {
+                log.warn("Failed to load the offsets stored in TDengine, continuing from the committed offsets", e);
             }
         }
+        if (paused) {
+            // partitions assigned while the circuit breaker is open stay paused with the others
+            context.pause(partitions.toArray(new TopicPartition[0]));
+        }
     }
 
-    private SQLException getAllMessagesException(SQLException sqle) {
-        StringBuilder sqleAllMessages = new StringBuilder("Exception chain:" + System.lineSeparator());
-        for (Throwable e : sqle) {
-            sqleAllMessages.append(e).append(System.lineSeparator());
-        }
-        SQLException sqlAllMessagesException = new SQLException(sqleAllMessages.toString());
-        sqlAllMessagesException.setNextException(sqle);
-        return sqlAllMessagesException;
+    @Override
+    public void flush(Map<TopicPartition, OffsetAndMetadata> currentOffsets) {
+        writer.flush();
     }
 
-    private void unrollAndRetry(Collection<SinkRecord> records) {
-        for (SinkRecord record : records) {
-            try {
-                writer.schemalessInsert(new String[]{String.valueOf(record.value())},
-                        config.getSchemalessTypeFormat(), SchemalessTimestampType.NOT_CONFIGURED);
-            } catch (SQLException sqle) {
-                SQLException sqlAllMessagesException = getAllMessagesException(sqle);
-                reporter.report(record, sqlAllMessagesException);
-            }
+    @Override
+    public Map<TopicPartition, OffsetAndMetadata> preCommit(Map<TopicPartition, OffsetAndMetadata> currentOffsets) {
+        OffsetStore offsetStore = writer.getOffsetStore();
+        if (offsetStore != null) {
+            offsetStore.flushQuietly();
         }
+        // only commit offsets of records that TDengine has confirmed
+        return writer.committableOffsets(currentOffsets);
+    }
+
+    @Override
+    public void close(Collection<TopicPartition> partitions) {
+        // write buffered records of revoked partitions before they are reassigned,
+        // while the circuit breaker is open they are dropped and consumed again by the next owner
+        writer.revoke(partitions);
+        throttled.removeAll(partitions);
     }
 
     @Override
     public void stop() {
         log.info("Stopping TDengine sink task");
         try {
-            writer.close();
+            if (writer != null) {
+                writer.close();
+            }
         } catch (Exception e) {
             log.warn("Ignoring error closing connection", e);
         } finally {
             writer = null;
+            if (metrics != null) {
+                metrics.unregister();
+                metrics = null;
+            }
         }
     }
 
@@ -0,0 +1,40 @@
+package com.taosdata.kafka.connect.sink;
+
+import org.apache.kafka.connect.sink.SinkRecord;
+
+/**
+ * a record converted to a row of a child table, values have the java types of the super table columns
+ */
+public class TableRow {
+    private final SinkRecord record;
+    private final String table;
+    private final Object[] tags;
+    private final Object[] values;
+
+    /**
+     * @param tags   tag values in the order of the super table tags
+     * @param values column values in the order of the super table columns, the first one is the timestamp
+     */
+    public TableRow(SinkRecord record, String table, Object[] tags, Object[] values) {
+        this.record = record;
+        this.table = table;
+        this.tags = tags;
+        this.values = values;
+    }
+
+    public SinkRecord getRecord() {
+        return record;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public Object[] getTags() {
+        return tags;
+    }
+
+    public Object[] getValues() {
+        return values;
+    }
+}
@@ -0,0 +1,140 @@
+package com.taosdata.kafka.connect.sink;
+
+import com.taosdata.kafka.connect.db.Processor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * split a batch of line or telnet records by child table into one sub batch per vgroup lane,
+ * and write the sub batches concurrently.
+ * the number of lanes is the number of vgroups of the database, limited by the number of threads.
+ * lines of one child table always go to the same lane, so their order is kept.
+ * the lanes only write in parallel when the processor can be used by several threads at once (connection pool).
+ */
+public class VgroupRouter implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(VgroupRouter.class);
+
+    private static final AtomicInteger THREAD_ID = new AtomicInteger();
+
+    private final Processor processor;
+    private final int threads;
+    private final ExecutorService executor;
+    // vgroups of each database, only used by the writer thread
+    private final Map<String, Integer> vgroups = new HashMap<>();
+
+    public VgroupRouter(Processor processor, int threads) {
+        this.processor = processor;
+        this.threads = threads;
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "tdengine-vgroup-writer-" + THREAD_ID.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * write the lines to the database of the target, the processor must be using this database.
+     * lanes which have been written by an earlier attempt with the same lanes are skipped.
+     * the lines of a written lane are kept by their index as the written items of the progress.
+     *
+     * @param reqId request id of the batch, shared by its lanes
+     */
+    public void write(String[] lines, WriteTarget target, WriteProgress progress, Long reqId) throws SQLException {
+        int lanes = Math.min(threads, vgroups(target.getDatabase()));
+        if (lanes <= 1 || lines.length < 2) {
+            processor.schemalessInsert(lines, target.getProtocol(), target.getTimestampType(), reqId);
+            return;
+        }
+        List<List<String>> split = new ArrayList<>(lanes);
+        List<BitSet> items = new ArrayList<>(lanes);
+        for (int i = 0; i < lanes; i++) {
+            split.add(new ArrayList<>(lines.length / lanes + 1));
+            items.add(new BitSet(lines.length));
+        }
+        for (int i = 0; i < lines.length; i++) {
+            int lane = (LineSorter.tableHash(lines[i], target.getProtocol()) & 0x7fffffff) % lanes;
+            split.get(lane).add(lines[i]);
+            items.get(lane).set(i);
+        }
+        progress.layout(Arrays.asList(lanes, lines.length));
+        List<Future<?>> futures = new ArrayList<>(lanes);
+        for (int i = 0; i < lanes; i++) {
+            List<String> lane = split.get(i);
+            if (lane.isEmpty() || progress.isWritten(i)) {
+                continue;
+            }
+            int part = i;
+            BitSet laneItems = items.get(i);
+            String[] laneLines = lane.toArray(new String[0]);
+            futures.add(executor.submit(() -> {
+                processor.setDbName(target.getDatabase());
+                processor.schemalessInsert(laneLines, target.getProtocol(), target.getTimestampType(), reqId);
+                progress.written(part, laneItems);
+                return null;
+            }));
+        }
+        awaitAll(futures);
+    }
+
+    /**
+     * wait for all lanes, so that no lane is still writing when the batch is retried
+     */
+    private static void awaitAll(List<Future<?>> futures) throws SQLException {
+        SQLException failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                SQLException cause = e.getCause() instanceof SQLException
+                        ? (SQLException) e.getCause()
+                        : new SQLException(e.getCause());
+                if (failure == null) {
+                    failure = cause;
+                } else {
+                    failure.setNextException(cause);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for vgroup writes", e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private int vgroups(String database) throws SQLException {
+        Integer count = vgroups.get(database);
+        if (count == null) {
+            count = processor.getVgroups();
+            log.info("Database {} has {} vgroups, writing with {} lanes", database, count, Math.min(threads, count));
+            vgroups.put(database, count);
+        }
+        return count;
+    }
+
+    /**
+     * the vgroups of the database may have changed, e.g. the database was dropped and created again
+     */
+    public void invalidate(String database) {
+        vgroups.remove(database);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,65 @@
+package com.taosdata.kafka.connect.sink;
+
+import java.util.BitSet;
+import java.util.Objects;
+
+/**
+ * parts of a batch which have been written, so a retry of the batch does not write them again.
+ * a writer splits a batch into the same parts on each attempt as long as the layout of the batch is the same.
+ * the items of a written part, the records of the batch by their index, are kept as well,
+ * so the records of a failed batch can be isolated without writing the written parts again.
+ */
+public class WriteProgress {
+    private final BitSet written = new BitSet();
+    private final BitSet writtenItems = new BitSet();
+    private Object layout;
+
+    /**
+     * @param layout how the batch is split into parts, e.g. the number of parts,
+     *               the written parts are forgotten when it differs from the last attempt
+     */
+    public synchronized void layout(Object layout) {
+        if (!Objects.equals(this.layout, layout)) {
+            written.clear();
+            writtenItems.clear();
+            this.layout = layout;
+        }
+    }
+
+    public synchronized boolean isWritten(int part) {
+        return written.get(part);
+    }
+
+    public synchronized void written(int part) {
+        written.set(part);
+    }
+
+    /**
+     * @param items indexes of the records of the batch in the part
+     */
+    public synchronized void written(int part, BitSet items) {
+        written.set(part);
+        writtenItems.or(items);
+    }
+
+    /**
+     * @param fromItem index of the first record of the batch in the part
+     * @param toItem   index after the last record of the batch in the part
+     */
+    public synchronized void written(int part, int fromItem, int toItem) {
+        written.set(part);
+        writtenItems.set(fromItem, toItem);
+    }
+
+    public synchronized int writtenParts() {
+        return written.cardinality();
+    }
+
+    /**
+     * @param item index of a record of the batch
+     * @return true if the record was written with one of the written parts
+     */
+    public synchronized boolean isItemWritten(int item) {
+        return writtenItems.get(item);
+    }
+}
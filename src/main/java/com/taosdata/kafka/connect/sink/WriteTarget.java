@@ -0,0 +1,72 @@
+package com.taosdata.kafka.connect.sink;
+
+import com.taosdata.jdbc.enums.SchemalessProtocolType;
+import com.taosdata.jdbc.enums.SchemalessTimestampType;
+
+import java.util.Objects;
+
+/**
+ * destination of a batch, records with the same target are written together
+ */
+public class WriteTarget {
+    private final String database;
+    private final SchemalessProtocolType protocol;
+    private final SchemalessTimestampType timestampType;
+    // super table of the records, null for schemaless writes
+    private final String stable;
+
+    public WriteTarget(String database, SchemalessProtocolType protocol, SchemalessTimestampType timestampType) {
+        this(database, protocol, timestampType, null);
+    }
+
+    public WriteTarget(String database, SchemalessProtocolType protocol, SchemalessTimestampType timestampType,
+                       String stable) {
+        this.database = database;
+        this.protocol = protocol;
+        this.timestampType = timestampType;
+        this.stable = stable;
+    }
+
+    public String getDatabase() {
+        return database;
+    }
+
+    public SchemalessProtocolType getProtocol() {
+        return protocol;
+    }
+
+    public SchemalessTimestampType getTimestampType() {
+        return timestampType;
+    }
+
+    public String getStable() {
+        return stable;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        WriteTarget that = (WriteTarget) o;
+        return database.equals(that.database) && protocol == that.protocol && timestampType == that.timestampType
+                && Objects.equals(stable, that.stable);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(database, protocol, timestampType, stable);
+    }
+
+    @Override
+    public String toString() {
+        return "WriteTarget{" + "database='" + database + '\'' +
+                ", protocol=" + protocol +
+                ", timestampType=" + timestampType +
+                ", stable=" + stable +
+                '}';
+    }
+}
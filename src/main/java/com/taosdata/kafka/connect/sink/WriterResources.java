@@ -0,0 +1,72 @@
+package com.taosdata.kafka.connect.sink;
+
+import org.apache.kafka.connect.sink.ErrantRecordReporter;
+
+/**
+ * collaborators of a sink task which are shared by all of its writers.
+ * only the metrics and the schema cache are always set, the others are null when their feature is disabled.
+ */
+public class WriterResources {
+    private ErrantRecordReporter reporter;
+    private SinkTaskMetrics metrics = new SinkTaskMetrics();
+    private StableSchemaCache schemas = new StableSchemaCache();
+    private CircuitBreaker circuitBreaker;
+    private OffsetStore offsetStore;
+
+    public WriterResources reporter(ErrantRecordReporter reporter) {
+        this.reporter = reporter;
+        return this;
+    }
+
+    public WriterResources metrics(SinkTaskMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    public WriterResources schemas(StableSchemaCache schemas) {
+        this.schemas = schemas;
+        return this;
+    }
+
+    public WriterResources circuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+        return this;
+    }
+
+    /**
+     * @param offsetStore store of the offsets of the written batches, it is closed with the writer pool
+     */
+    public WriterResources offsetStore(OffsetStore offsetStore) {
+        this.offsetStore = offsetStore;
+        return this;
+    }
+
+    /**
+     * @return the errant record reporter, null if there is none
+     */
+    public ErrantRecordReporter getReporter() {
+        return reporter;
+    }
+
+    public SinkTaskMetrics getMetrics() {
+        return metrics;
+    }
+
+    public StableSchemaCache getSchemas() {
+        return schemas;
+    }
+
+    /**
+     * @return the circuit breaker, null if it is disabled
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * @return the offset store, null if it is disabled
+     */
+    public OffsetStore getOffsetStore() {
+        return offsetStore;
+    }
+}
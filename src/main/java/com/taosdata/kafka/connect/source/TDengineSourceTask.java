@@ -8,6 +8,7 @@ import com.taosdata.kafka.connect.db.Processor;
 import com.taosdata.kafka.connect.db.TSDBConnectionProvider;
 import com.taosdata.kafka.connect.enums.OutputFormatEnum;
 import com.taosdata.kafka.connect.enums.ReadMethodEnum;
+import com.taosdata.kafka.connect.sink.SinkConfig;
 import com.taosdata.kafka.connect.util.SQLUtils;
 import com.taosdata.kafka.connect.util.VersionUtils;
 import org.apache.kafka.common.utils.SystemTime;
@@ -59,7 +60,8 @@ public class TDengineSourceTask extends SourceTask {
         properties.setProperty(TSDBDriver.PROPERTY_KEY_CHARSET, "UTF-8");
         ConnectionProvider provider = new TSDBConnectionProvider(config.getConnectionUrl(), properties,
                 config.getConnectionAttempts(), config.getConnectionBackoffMs());
-        processor = new CacheProcessor<>(provider);
+        processor = new CacheProcessor<>(provider, SinkConfig.DB_CACHE_SIZE_DEFAULT,
+                config.getConnectionValidation(), config.getConnectionValidationIdleMs());
         processor.setDbName(config.getConnectionDb());
 
 
@@ -0,0 +1,36 @@
+package com.taosdata.kafka.connect.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * retry delays which double with each attempt up to a maximum.
+ * half of a delay is random, so tasks which failed together do not retry together.
+ */
+public class ExponentialBackoff {
+    private final long initialMs;
+    private final long maxMs;
+
+    public ExponentialBackoff(long initialMs, long maxMs) {
+        this.initialMs = initialMs;
+        this.maxMs = Math.max(initialMs, maxMs);
+    }
+
+    /**
+     * @param attempt number of retries before this one, starting at 0
+     */
+    public long delayMs(int attempt) {
+        return delayMs(attempt, ThreadLocalRandom.current().nextDouble());
+    }
+
+    /**
+     * @param random a number from 0 (inclusive) to 1 (exclusive)
+     */
+    long delayMs(int attempt, double random) {
+        long delay = initialMs;
+        for (int i = 0; i < attempt && delay < maxMs; i++) {
+            delay *= 2;
+        }
+        delay = Math.min(delay, maxMs);
+        return delay / 2 + (long) (random * (delay - delay / 2));
+    }
+}
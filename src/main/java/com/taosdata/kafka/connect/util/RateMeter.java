@@ -0,0 +1,53 @@
+package com.taosdata.kafka.connect.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * a lock free and allocation free rate over a sliding window of whole seconds
+ */
+public class RateMeter {
+    private final int windowSeconds;
+    // one slot per second, the slot is reset when its second is reused
+    private final AtomicLongArray amounts;
+    private final AtomicLongArray seconds;
+
+    public RateMeter(int windowSeconds) {
+        this.windowSeconds = windowSeconds;
+        // one more slot for the current second which is not complete
+        this.amounts = new AtomicLongArray(windowSeconds + 1);
+        this.seconds = new AtomicLongArray(windowSeconds + 1);
+    }
+
+    public void record(long amount) {
+        record(amount, System.currentTimeMillis());
+    }
+
+    void record(long amount, long nowMs) {
+        long second = nowMs / 1000;
+        int slot = (int) (second % amounts.length());
+        long slotSecond = seconds.get(slot);
+        if (slotSecond != second && seconds.compareAndSet(slot, slotSecond, second)) {
+            amounts.set(slot, 0);
+        }
+        amounts.addAndGet(slot, amount);
+    }
+
+    /**
+     * @return average amount per second of the last complete seconds of the window
+     */
+    public double rate() {
+        return rate(System.currentTimeMillis());
+    }
+
+    double rate(long nowMs) {
+        long second = nowMs / 1000;
+        long total = 0;
+        for (int slot = 0; slot < amounts.length(); slot++) {
+            long age = second - seconds.get(slot);
+            if (age >= 1 && age <= windowSeconds) {
+                total += amounts.get(slot);
+            }
+        }
+        return (double) total / windowSeconds;
+    }
+}
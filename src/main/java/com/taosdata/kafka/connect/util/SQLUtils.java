@@ -19,4 +19,12 @@ public class SQLUtils {
     public static String describeTableSql(String tbName) {
         return "describe " + tbName;
     }
+
+    public static String databasePrecisionSql(String dbName) {
+        return "select `precision` from information_schema.ins_databases where name = '" + dbName + "'";
+    }
+
+    public static String serverStatusSql() {
+        return "select server_status()";
+    }
 }
@@ -0,0 +1,104 @@
+package com.taosdata.kafka.connect.db;
+
+import com.taosdata.jdbc.AbstractConnection;
+import com.taosdata.jdbc.enums.SchemalessProtocolType;
+import com.taosdata.jdbc.enums.SchemalessTimestampType;
+import com.taosdata.kafka.connect.enums.ConnectionValidationEnum;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+class CacheProcessorTest {
+
+    @Test
+    void setDbNameOnlyOnChange() throws Exception {
+        Statement statement = mock(Statement.class);
+        Connection connection = mock(Connection.class);
+        when(connection.createStatement()).thenReturn(statement);
+        ConnectionProvider provider = mock(ConnectionProvider.class);
+        when(provider.getConnection()).thenReturn(connection);
+
+        CacheProcessor<ConnectionProvider> processor = new CacheProcessor<>(provider, 10);
+        processor.setDbName("db1");
+        processor.setDbName("db1");
+        processor.setDbName("db2");
+        processor.setDbName("db1");
+
+        verify(statement, times(1)).execute("create database if not exists db1 precision 'ns'");
+        verify(statement, times(1)).execute("create database if not exists db2 precision 'ns'");
+        verify(statement, times(2)).execute("use db1");
+        verify(statement, times(1)).execute("use db2");
+        verify(provider, times(1)).getConnection();
+    }
+
+    @Test
+    void reconnectForgetsCurrentDatabase() throws Exception {
+        Statement statement = mock(Statement.class);
+        Connection connection = mock(Connection.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(connection.getMetaData()).thenReturn(mock(DatabaseMetaData.class));
+        ConnectionProvider provider = mock(ConnectionProvider.class);
+        when(provider.getConnection()).thenReturn(connection);
+
+        CacheProcessor<ConnectionProvider> processor = new CacheProcessor<>(provider, 10);
+        processor.setDbName("db1");
+        processor.close();
+        processor.setDbName("db1");
+
+        verify(statement, times(2)).execute("create database if not exists db1 precision 'ns'");
+        verify(statement, times(2)).execute("use db1");
+    }
+
+    @Test
+    void idleValidationSkipsActiveConnection() throws Exception {
+        Statement statement = mock(Statement.class);
+        Connection connection = mock(Connection.class);
+        when(connection.createStatement()).thenReturn(statement);
+        ConnectionProvider provider = mock(ConnectionProvider.class);
+        when(provider.getConnection()).thenReturn(connection);
+
+        CacheProcessor<ConnectionProvider> processor = new CacheProcessor<>(provider, 10,
+                ConnectionValidationEnum.IDLE, 60000L);
+        processor.execute("show databases");
+        processor.execute("show databases");
+        verify(statement, never()).execute("SELECT 1");
+
+        when(statement.execute("insert error")).thenThrow(new SQLException("error"));
+        assertThrows(SQLException.class, () -> processor.execute("insert error"));
+        processor.execute("show databases");
+        verify(statement, times(1)).execute("SELECT 1");
+    }
+
+    @Test
+    void reconnectSelectsDatabaseBeforeWrite() throws Exception {
+        Statement broken = mock(Statement.class);
+        Connection first = mock(Connection.class);
+        when(first.createStatement()).thenReturn(broken);
+        when(first.getMetaData()).thenReturn(mock(DatabaseMetaData.class));
+        Statement statement = mock(Statement.class);
+        AbstractConnection second = mock(AbstractConnection.class);
+        when(second.createStatement()).thenReturn(statement);
+        when(second.unwrap(AbstractConnection.class)).thenReturn(second);
+        ConnectionProvider provider = mock(ConnectionProvider.class);
+        when(provider.getConnection()).thenReturn(first, second);
+
+        CacheProcessor<ConnectionProvider> processor = new CacheProcessor<>(provider, 10);
+        processor.setDbName("db1");
+        when(broken.execute("SELECT 1")).thenThrow(new SQLException("connection lost"));
+        String[] lines = {"meters,location=sf current=10.3 1626006833639000000"};
+        processor.schemalessInsert(lines, SchemalessProtocolType.LINE, SchemalessTimestampType.NANO_SECONDS);
+
+        InOrder inOrder = inOrder(statement, second);
+        inOrder.verify(statement).execute("create database if not exists db1 precision 'ns'");
+        inOrder.verify(statement).execute("use db1");
+        inOrder.verify(second).write(lines, SchemalessProtocolType.LINE, SchemalessTimestampType.NANO_SECONDS, null, null);
+        verify(first).close();
+    }
+}
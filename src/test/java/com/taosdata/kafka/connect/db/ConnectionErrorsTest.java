@@ -0,0 +1,36 @@
+package com.taosdata.kafka.connect.db;
+
+import com.taosdata.jdbc.TSDBErrorNumbers;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConnectionErrorsTest {
+
+    @Test
+    void connectionErrorsAreDetected() {
+        assertTrue(ConnectionErrors.isConnectionError(
+                new SQLException("connection closed", null, TSDBErrorNumbers.ERROR_CONNECTION_CLOSED)));
+        assertTrue(ConnectionErrors.isConnectionError(new SQLException("refused", "08001")));
+        // Unable to establish connection
+        assertTrue(ConnectionErrors.isConnectionError(new SQLException("unreachable", null, 0x8000000B)));
+        assertTrue(ConnectionErrors.isConnectionError(new SQLException(new IOException("reset by peer"))));
+
+        SQLException chained = new SQLException("write failed");
+        chained.setNextException(new SQLException("timeout", null, TSDBErrorNumbers.ERROR_CONNECTION_TIMEOUT));
+        assertTrue(ConnectionErrors.isConnectionError(chained));
+    }
+
+    @Test
+    void dataErrorsAreNotConnectionErrors() {
+        // Syntax error in SQL
+        assertFalse(ConnectionErrors.isConnectionError(new SQLException("syntax error", null, 0x80002600)));
+        // Table does not exist
+        assertFalse(ConnectionErrors.isConnectionError(new SQLException("no table", "42000", 0x80002662)));
+        assertFalse(ConnectionErrors.isConnectionError(new SQLException("invalid data")));
+    }
+}
@@ -0,0 +1,74 @@
+package com.taosdata.kafka.connect.db;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PoolProcessorTest {
+
+    private ConnectionProvider provider(Statement statement) throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(connection.createStatement()).thenReturn(statement);
+        ConnectionProvider provider = mock(ConnectionProvider.class);
+        when(provider.getConnection()).thenReturn(connection);
+        return provider;
+    }
+
+    @Test
+    void connectionsAreBoundToDatabase() throws Exception {
+        Statement statement = mock(Statement.class);
+        ConnectionProvider provider = provider(statement);
+        PoolProcessor processor = new PoolProcessor(provider, 2, 4, 60000L, 1000L, 10);
+
+        processor.setDbName("db1");
+        processor.execute("show stables");
+        processor.execute("show stables");
+        processor.setDbName("db2");
+        processor.execute("show stables");
+        processor.setDbName("db1");
+        processor.execute("show stables");
+
+        verify(provider, times(2)).getConnection();
+        verify(statement, times(1)).execute("use db1");
+        verify(statement, times(1)).execute("use db2");
+        processor.shutdown();
+    }
+
+    @Test
+    void borrowTimeout() throws Exception {
+        CountDownLatch borrowed = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        Statement statement = mock(Statement.class);
+        when(statement.execute("slow query")).thenAnswer(invocation -> {
+            borrowed.countDown();
+            done.await(5, TimeUnit.SECONDS);
+            return false;
+        });
+        PoolProcessor processor = new PoolProcessor(provider(statement), 1, 4, 60000L, 100L, 10);
+
+        Thread slow = new Thread(() -> {
+            processor.setDbName("db1");
+            try {
+                processor.execute("slow query");
+            } catch (SQLException e) {
+                fail(e);
+            }
+        });
+        slow.start();
+        assertTrue(borrowed.await(5, TimeUnit.SECONDS));
+
+        processor.setDbName("db1");
+        assertThrows(SQLException.class, () -> processor.execute("show stables"));
+        done.countDown();
+        slow.join();
+        processor.execute("show stables");
+        processor.shutdown();
+    }
+}
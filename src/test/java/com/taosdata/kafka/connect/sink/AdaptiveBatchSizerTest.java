@@ -0,0 +1,41 @@
+package com.taosdata.kafka.connect.sink;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AdaptiveBatchSizerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(2000);
+
+    @Test
+    void decreaseOnSlowWriteOrFailure() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(100, 1000, 1000);
+        assertEquals(1000, sizer.size());
+        sizer.onSuccess(1000, SLOW);
+        assertEquals(500, sizer.size());
+        sizer.onFailure();
+        assertEquals(250, sizer.size());
+        sizer.onFailure();
+        sizer.onFailure();
+        assertEquals(100, sizer.size());
+    }
+
+    @Test
+    void increaseOnlyOnFullFastBatch() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(100, 1000, 1000);
+        sizer.onFailure();
+        assertEquals(500, sizer.size());
+        sizer.onSuccess(10, FAST);
+        assertEquals(500, sizer.size());
+        sizer.onSuccess(500, FAST);
+        assertEquals(550, sizer.size());
+        for (int i = 0; i < 20; i++) {
+            sizer.onSuccess(sizer.size(), FAST);
+        }
+        assertEquals(1000, sizer.size());
+    }
+}
@@ -0,0 +1,108 @@
+package com.taosdata.kafka.connect.sink;
+
+import org.apache.kafka.common.utils.Time;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CircuitBreakerTest {
+
+    private static SinkConfig config() {
+        Map<String, String> configMap = new HashMap<>();
+        configMap.put("connection.url", "jdbc:TAOS://127.0.0.1:6030");
+        configMap.put("connection.database", "power");
+        configMap.put("db.schemaless", "line");
+        configMap.put("circuit.breaker.enabled", "true");
+        configMap.put("circuit.breaker.window", "4");
+        configMap.put("circuit.breaker.failure.ratio", "0.5");
+        configMap.put("circuit.breaker.slow.ms", "1000");
+        configMap.put("circuit.breaker.open.ms", "5000");
+        return new SinkConfig(configMap);
+    }
+
+    @Test
+    void failedAndSlowWritesOpenTheCircuit() {
+        Time time = mock(Time.class);
+        when(time.milliseconds()).thenReturn(0L);
+        SinkTaskMetrics metrics = new SinkTaskMetrics();
+        CircuitBreaker breaker = new CircuitBreaker(config(), metrics, time);
+
+        breaker.onSuccess(10);
+        breaker.onFailure();
+        breaker.onSuccess(20);
+        // the window is full with one failure of four
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        breaker.onSuccess(30);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        // the first success leaves the window, a slow write counts as failed
+        breaker.onSuccess(1000);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertEquals(1, metrics.getCircuitBreakerOpens());
+    }
+
+    @Test
+    void probesCloseOrReopenTheCircuit() {
+        Time time = mock(Time.class);
+        when(time.milliseconds()).thenReturn(0L);
+        CircuitBreaker breaker = new CircuitBreaker(config(), new SinkTaskMetrics(), time);
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        when(time.milliseconds()).thenReturn(5000L);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        when(time.milliseconds()).thenReturn(10000L);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        breaker.onSuccess(10);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        // the window starts empty after the circuit closed
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void onlyOneProbeIsLetThroughWhileHalfOpen() throws Exception {
+        Time time = mock(Time.class);
+        when(time.milliseconds()).thenReturn(0L);
+        CircuitBreaker breaker = new CircuitBreaker(config(), new SinkTaskMetrics(), time);
+        assertTrue(breaker.tryAcquire());
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure();
+        }
+        assertFalse(breaker.tryAcquire());
+
+        when(time.milliseconds()).thenReturn(5000L);
+        assertTrue(breaker.tryAcquire());
+        AtomicBoolean other = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            other.set(breaker.tryAcquire());
+            // the outcome of an attempt which is not the probe is ignored
+            breaker.onFailure();
+        });
+        writer.start();
+        writer.join();
+        assertFalse(other.get());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+
+        breaker.onSuccess(10);
+        breaker.release();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        writer = new Thread(() -> other.set(breaker.tryAcquire()));
+        writer.start();
+        writer.join();
+        assertTrue(other.get());
+    }
+}
@@ -0,0 +1,168 @@
+package com.taosdata.kafka.connect.sink;
+
+import com.taosdata.jdbc.TSDBConstants;
+import com.taosdata.kafka.connect.db.Processor;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class CsvFileWriterTest {
+
+    private static final StableSchema METERS = new StableSchema("meters",
+            Arrays.asList(new StableSchema.Column("ts", TSDBConstants.TSDB_DATA_TYPE_TIMESTAMP, 8),
+                    new StableSchema.Column("current", TSDBConstants.TSDB_DATA_TYPE_FLOAT, 4),
+                    new StableSchema.Column("note", TSDBConstants.TSDB_DATA_TYPE_BINARY, 32)),
+            Collections.singletonList(new StableSchema.Column("location", TSDBConstants.TSDB_DATA_TYPE_BINARY, 24)),
+            "ms");
+
+    private static StableSchema reloaded() {
+        return new StableSchema("meters",
+                Arrays.asList(new StableSchema.Column("ts", TSDBConstants.TSDB_DATA_TYPE_TIMESTAMP, 8),
+                        new StableSchema.Column("current", TSDBConstants.TSDB_DATA_TYPE_FLOAT, 4),
+                        new StableSchema.Column("note", TSDBConstants.TSDB_DATA_TYPE_BINARY, 32)),
+                Collections.singletonList(new StableSchema.Column("location", TSDBConstants.TSDB_DATA_TYPE_BINARY, 24)),
+                "ms");
+    }
+
+    private static SinkConfig config(Path dir) {
+        Map<String, String> configMap = new HashMap<>();
+        configMap.put("connection.url", "jdbc:TAOS://127.0.0.1:6030");
+        configMap.put("connection.database", "power");
+        configMap.put("db.schemaless", "line");
+        configMap.put("db.write.mode", "file");
+        configMap.put("db.file.dir", dir.toString());
+        configMap.put("db.file.segment.bytes", "1024");
+        return new SinkConfig(configMap);
+    }
+
+    private static List<TableRow> rows(Path dir, List<SinkRecord> records) {
+        RecordValidator validator = new RecordValidator(config(dir));
+        List<TableRow> rows = new ArrayList<>();
+        for (SinkRecord record : records) {
+            rows.add(validator.toRow(record, METERS));
+        }
+        return rows;
+    }
+
+    private static SinkRecord record(String table, long ts, Object current, String note) {
+        Map<String, Object> value = new HashMap<>();
+        value.put("tbname", table);
+        value.put("ts", ts);
+        value.put("current", current);
+        value.put("note", note);
+        value.put("location", "San Francisco");
+        return new SinkRecord("meters", 0, null, null, null, value, ts);
+    }
+
+    /**
+     * @param failing the statement which fails, counted from 1, 0 if none fails
+     * @return the statements executed by the processor, each followed by the content of its file
+     */
+    private static List<String> imports(Processor processor, int failing) throws SQLException {
+        List<String> imports = new ArrayList<>();
+        AtomicInteger calls = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (calls.incrementAndGet() == failing) {
+                throw new SQLException("import failed");
+            }
+            String sql = invocation.getArgument(0);
+            String file = sql.substring(sql.lastIndexOf(" file '") + 7, sql.length() - 1);
+            imports.add(sql.substring(0, sql.lastIndexOf(" file '")));
+            imports.add(new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8));
+            return null;
+        }).when(processor).execute(anyString());
+        return imports;
+    }
+
+    private static long files(Path dir) throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void rowsOfAllTablesAreImportedFromOneStagedFile(@TempDir Path dir) throws Exception {
+        Processor processor = mock(Processor.class);
+        List<String> imports = imports(processor, 0);
+        CsvFileWriter writer = new CsvFileWriter(config(dir), processor);
+        writer.write(rows(dir, Arrays.asList(
+                record("d1001", 1, 10.5f, "it's"),
+                record("d1002", 2, null, null),
+                record("d1001", 3, "11", "a\\b")
+        )), METERS, new WriteProgress());
+
+        assertEquals(Arrays.asList(
+                "insert into meters(tbname,location,ts,current,note)",
+                "'d1001','San Francisco',1,10.5,'it\\'s'\n"
+                        + "'d1002','San Francisco',2,null,null\n"
+                        + "'d1001','San Francisco',3,11.0,'a\\\\b'\n"), imports);
+        assertEquals(0, files(dir));
+    }
+
+    @Test
+    void segmentsImportedBeforeAFailureAreNotImportedAgain(@TempDir Path dir) throws Exception {
+        Processor processor = mock(Processor.class);
+        List<String> imports = imports(processor, 2);
+        List<SinkRecord> records = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            records.add(record("d1001", i, 1.5f, "note " + i));
+        }
+        List<TableRow> rows = rows(dir, records);
+        CsvFileWriter writer = new CsvFileWriter(config(dir), processor);
+        WriteProgress progress = new WriteProgress();
+        assertThrows(SQLException.class, () -> writer.write(rows, METERS, progress));
+        assertEquals(0, files(dir));
+        writer.write(rows, METERS, progress);
+
+        StringBuilder imported = new StringBuilder();
+        for (int i = 1; i < imports.size(); i += 2) {
+            assertTrue(imports.get(i).length() <= 1024);
+            imported.append(imports.get(i));
+        }
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            expected.append("'d1001','San Francisco',").append(i).append(",1.5,'note ").append(i).append("'\n");
+        }
+        // the first segment is imported once, the failed second one and the ones after it by the retry
+        assertTrue(imports.size() >= 6);
+        assertEquals(expected.toString(), imported.toString());
+        assertEquals(0, files(dir));
+    }
+
+    @Test
+    void segmentsAreNotImportedAgainAfterTheSchemaWasReloaded(@TempDir Path dir) throws Exception {
+        Processor processor = mock(Processor.class);
+        List<String> imports = imports(processor, 2);
+        List<SinkRecord> records = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            records.add(record("d1001", i, 1.5f, "note " + i));
+        }
+        List<TableRow> rows = rows(dir, records);
+        CsvFileWriter writer = new CsvFileWriter(config(dir), processor);
+        WriteProgress progress = new WriteProgress();
+        assertThrows(SQLException.class, () -> writer.write(rows, METERS, progress));
+        // the retry uses the schema loaded again after the failure
+        StableSchema schema = reloaded();
+        assertNotSame(METERS, schema);
+        writer.write(rows, schema, progress);
+
+        Set<String> segments = new HashSet<>();
+        for (int i = 1; i < imports.size(); i += 2) {
+            assertTrue(segments.add(imports.get(i)), "segment imported twice");
+        }
+        assertTrue(imports.get(1).startsWith("'d1001','San Francisco',0,1.5,'note 0'\n"));
+    }
+}
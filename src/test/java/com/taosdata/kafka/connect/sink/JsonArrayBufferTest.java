@@ -0,0 +1,60 @@
+package com.taosdata.kafka.connect.sink;
+
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonArrayBufferTest {
+
+    private static final String POINT = "{\"metric\":\"meters.current\",\"timestamp\":1,\"value\":10.3,"
+            + "\"tags\":{\"location\":\"北京\"}}";
+
+    private static SinkRecord record(Object value) {
+        return new SinkRecord("topic", 0, null, null, null, value, 0);
+    }
+
+    @Test
+    void objectsAndArraysAreMergedIntoOneArray() {
+        JsonArrayBuffer buffer = new JsonArrayBuffer(1024);
+        List<String> expected = Collections.singletonList("[" + POINT + "," + POINT + "," + POINT + "]");
+        List<SinkRecord> strings = Arrays.asList(record(" " + POINT + "\n"), record("[]"),
+                record("[ " + POINT + "," + POINT + " ]"));
+        assertEquals(expected, buffer.merge(strings));
+
+        List<SinkRecord> bytes = new ArrayList<>();
+        for (SinkRecord record : strings) {
+            bytes.add(record(((String) record.value()).getBytes(StandardCharsets.UTF_8)));
+        }
+        assertEquals(expected, buffer.merge(bytes));
+    }
+
+    @Test
+    void arraysAreSplitByMaxBytes() {
+        JsonArrayBuffer buffer = new JsonArrayBuffer(1024);
+        List<SinkRecord> strings = new ArrayList<>();
+        List<SinkRecord> bytes = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            strings.add(record(POINT));
+            bytes.add(record(POINT.getBytes(StandardCharsets.UTF_8)));
+        }
+        for (List<SinkRecord> records : Arrays.asList(strings, bytes)) {
+            List<String> arrays = buffer.merge(records);
+            int points = 0;
+            for (String array : arrays) {
+                int size = records == bytes ? array.getBytes(StandardCharsets.UTF_8).length : array.length();
+                assertTrue(size <= 1024, array);
+                points += array.split("\\{\"metric\"").length - 1;
+            }
+            assertEquals(40, points);
+            assertTrue(arrays.size() > 1);
+        }
+    }
+}
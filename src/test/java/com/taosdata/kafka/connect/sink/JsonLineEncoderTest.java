@@ -0,0 +1,103 @@
+package com.taosdata.kafka.connect.sink;
+
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.taosdata.jdbc.enums.SchemalessTimestampType.MICRO_SECONDS;
+import static com.taosdata.jdbc.enums.SchemalessTimestampType.MILLI_SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JsonLineEncoderTest {
+
+    private static SinkConfig config(String... settings) {
+        Map<String, String> configMap = new HashMap<>();
+        configMap.put("connection.url", "jdbc:TAOS://127.0.0.1:6030");
+        configMap.put("connection.database", "power");
+        configMap.put("db.schemaless", "line");
+        configMap.put("data.precision", "ms");
+        configMap.put("json.line.measurement", "meters");
+        configMap.put("json.line.tags", "location,group");
+        for (int i = 0; i < settings.length; i += 2) {
+            configMap.put(settings[i], settings[i + 1]);
+        }
+        return new SinkConfig(configMap);
+    }
+
+    private static SinkRecord record(Object value, Long timestamp) {
+        return new SinkRecord("meters", 0, null, null, null, value, 7, timestamp, null);
+    }
+
+    @Test
+    void jsonObjectsAreEncodedAsLines() {
+        JsonLineEncoder encoder = new JsonLineEncoder(config());
+        String json = "{\"ts\": 1700000000000, \"current\": 10.5, \"voltage\": 219, \"on\": true,"
+                + " \"location\": \"San Francisco\", \"group\": 2, \"note\": \"say \\\"hi\\\" \\u00e9\","
+                + " \"phase\": null, \"extra\": {\"a\": [1, \"}\"]}}";
+        String expected = "meters,location=San\\ Francisco,group=2"
+                + " current=10.5,voltage=219,on=true,note=\"say \\\"hi\\\" é\" 1700000000000";
+        assertEquals(expected, encoder.encode(record(json, null), MILLI_SECONDS));
+        // the buffers are reused
+        assertEquals(expected, encoder.encode(record(json.getBytes(StandardCharsets.UTF_8), null), MILLI_SECONDS));
+    }
+
+    @Test
+    void mappingSelectsMeasurementFieldsAndTimestamp() {
+        JsonLineEncoder encoder = new JsonLineEncoder(config(
+                "json.line.measurement.field", "metric",
+                "json.line.fields", "current,voltage",
+                "json.line.timestamp.field", "time",
+                "json.line.integers", "true"));
+        assertEquals("cpu\\,load,location=a\\=b current=1.5e3,voltage=220i64 2000000",
+                encoder.encode(record("{\"metric\":\"cpu,load\",\"location\":\"a=b\",\"current\":1.5e3,"
+                        + "\"voltage\":220,\"ignored\":[{}]}", 2000L), MICRO_SECONDS));
+        assertEquals("meters current=1.0 5",
+                encoder.encode(record("{\"time\":5,\"current\":1.0}", null), MICRO_SECONDS));
+    }
+
+    @Test
+    void cachedNamesKeepTheirRoleAndEscaping() {
+        JsonLineEncoder encoder = new JsonLineEncoder(config());
+        // the names are cached by the first record and looked up by the next ones
+        for (int i = 0; i < 3; i++) {
+            assertEquals("meters,group=" + i + " a\\ b=" + i + ",c\\,d\\=e=\"x\" 1",
+                    encoder.encode(record("{\"group\":" + i + ",\"a b\":" + i + ",\"c,d=e\":\"x\"}", 1L),
+                            MILLI_SECONDS));
+        }
+        // names beyond the cache limit are still encoded
+        StringBuilder json = new StringBuilder("{");
+        StringBuilder fields = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            json.append(i == 0 ? "" : ",").append("\"f").append(i).append("\":").append(i);
+            fields.append(i == 0 ? "" : ",").append('f').append(i).append('=').append(i);
+        }
+        json.append('}');
+        assertEquals("meters " + fields + " 1", encoder.encode(record(json.toString(), 1L), MILLI_SECONDS));
+        assertEquals("meters " + fields + " 1", encoder.encode(record(json.toString(), 1L), MILLI_SECONDS));
+    }
+
+    @Test
+    void invalidValuesAreRejected() {
+        JsonLineEncoder encoder = new JsonLineEncoder(config());
+        String[] invalid = {
+                "[1]",
+                "{\"current\":1",
+                "{\"current\":1} x",
+                "{\"location\":\"a\"}",
+                "{\"current\":1}",
+                "{\"ts\":1.5,\"current\":1}",
+                "{\"ts\":1,\"current\":{\"a\":1}}",
+                "{\"ts\":1,\"note\":\"a\\nb\"}",
+                "{\"ts\":1,\"current\":tru}",
+        };
+        for (String json : invalid) {
+            assertThrows(DataException.class, () -> encoder.encode(record(json, null), MILLI_SECONDS), json);
+        }
+        assertThrows(DataException.class, () -> encoder.encode(record(null, 1L), MILLI_SECONDS));
+    }
+}
@@ -0,0 +1,68 @@
+package com.taosdata.kafka.connect.sink;
+
+import com.taosdata.jdbc.enums.SchemalessProtocolType;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LineSorterTest {
+
+    @Test
+    void lineTimestampIsFoundAfterQuotedSpaces() {
+        String line = "st,t1=3i64,t2=4f64 c1=3i64,c3=\"passit 2\",c4=4f64 1626006833639000000";
+        assertEquals(1626006833639000000L, LineSorter.lineKey(null, line).timestamp());
+        assertEquals(Long.MIN_VALUE, LineSorter.lineKey(null, "st,t1=3i64 c1=3i64").timestamp());
+    }
+
+    @Test
+    void linesAreGroupedByTableAndTimestamp() {
+        List<SinkRecord> records = records(
+                "meters,location=b current=1 3",
+                "meters,location=a current=2 2",
+                "meters,location=b current=3 1",
+                "meters,location=a current=4 1",
+                "meters,location=a current=5 1"
+        );
+        List<SinkRecord> sorted = LineSorter.sort(records, SchemalessProtocolType.LINE);
+        assertEquals(Arrays.asList(
+                "meters,location=a current=4 1",
+                "meters,location=a current=5 1",
+                "meters,location=a current=2 2",
+                "meters,location=b current=3 1",
+                "meters,location=b current=1 3"
+        ), values(sorted));
+    }
+
+    @Test
+    void telnetLinesAreGroupedByMetricAndTags() {
+        List<SinkRecord> records = records(
+                "meters.current 1648432611250 11.3 location=b",
+                "meters.current 1648432611249 10.3 location=a",
+                "meters.current 1648432611248 12.6 location=b"
+        );
+        List<SinkRecord> sorted = LineSorter.sort(records, SchemalessProtocolType.TELNET);
+        assertEquals(Arrays.asList(
+                "meters.current 1648432611249 10.3 location=a",
+                "meters.current 1648432611248 12.6 location=b",
+                "meters.current 1648432611250 11.3 location=b"
+        ), values(sorted));
+    }
+
+    private static List<SinkRecord> records(String... lines) {
+        List<SinkRecord> records = new ArrayList<>();
+        for (int i = 0; i < lines.length; i++) {
+            records.add(new SinkRecord("topic", 0, null, null, null, lines[i], i));
+        }
+        return records;
+    }
+
+    private static List<Object> values(List<SinkRecord> records) {
+        return records.stream().map(SinkRecord::value).collect(Collectors.toList());
+    }
+}
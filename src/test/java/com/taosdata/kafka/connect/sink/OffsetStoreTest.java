@@ -0,0 +1,103 @@
+package com.taosdata.kafka.connect.sink;
+
+import com.taosdata.kafka.connect.db.ConnectionCallback;
+import com.taosdata.kafka.connect.db.Processor;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.utils.Time;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class OffsetStoreTest {
+
+    @Test
+    void latestOffsetsOfAllPartitionsAreStoredWithOneStatement() throws Exception {
+        Processor processor = mock(Processor.class);
+        Time time = mock(Time.class);
+        // 2021-07-11 12:33:53.639 UTC
+        when(time.milliseconds()).thenReturn(1626006833639L);
+        OffsetStore store = new OffsetStore(processor, "offsets", "kafka_offsets", "it's", 0, time);
+        TopicPartition first = new TopicPartition("meters", 0);
+        TopicPartition second = new TopicPartition("meters", 1);
+        store.record(Collections.singletonMap(first, 10L));
+        store.record(Collections.singletonMap(second, 20L));
+        store.record(Collections.singletonMap(first, 5L));
+        store.record(Collections.singletonMap(first, 12L));
+        verify(processor, never()).execute(anyString());
+        store.flush();
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(processor).execute(sql.capture());
+        // the row of the day is overwritten
+        String firstValues = " offsets." + store.tableName(first)
+                + " using offsets.kafka_offsets tags('it\\'s','meters',0,0) values(1625961600000,12)";
+        String secondValues = " offsets." + store.tableName(second)
+                + " using offsets.kafka_offsets tags('it\\'s','meters',1,0) values(1625961600000,20)";
+        assertTrue(sql.getValue().equals("insert into" + firstValues + secondValues)
+                || sql.getValue().equals("insert into" + secondValues + firstValues), sql.getValue());
+        // nothing is stored without new offsets
+        store.flush();
+        verify(processor, times(1)).execute(anyString());
+
+        assertNotEquals(store.tableName(first), store.tableName(second));
+        assertNotEquals(store.tableName(first),
+                new OffsetStore(processor, "offsets", "kafka_offsets", "other", 0).tableName(first));
+        // a former owner of the partition in another task does not write the table of this task
+        assertNotEquals(store.tableName(first),
+                new OffsetStore(processor, "offsets", "kafka_offsets", "it's", 1).tableName(first));
+        assertTrue(store.tableName(new TopicPartition(String.join("", Collections.nCopies(249, "t")), 0))
+                .length() < 192);
+    }
+
+    @Test
+    void offsetsWhichFailToBeStoredAreStoredByTheNextFlush() throws Exception {
+        Processor processor = mock(Processor.class);
+        when(processor.execute(anyString())).thenThrow(new SQLException("Sync leader is unreachable")).thenReturn(false);
+        Time time = mock(Time.class);
+        when(time.milliseconds()).thenReturn(0L);
+        OffsetStore store = new OffsetStore(processor, "offsets", "kafka_offsets", "sink", 0, time);
+        TopicPartition partition = new TopicPartition("meters", 0);
+        store.record(Collections.singletonMap(partition, 10L));
+        assertThrows(SQLException.class, store::flush);
+        store.record(Collections.singletonMap(partition, 8L));
+        store.close();
+
+        // the failed statement is repeated by close with the latest offset
+        verify(processor, times(2)).execute("insert into offsets." + store.tableName(partition)
+                + " using offsets.kafka_offsets tags('sink','meters',0,0) values(0,10)");
+        verify(processor).shutdown();
+    }
+
+    @Test
+    void onlyOffsetsOfTheAssignedPartitionsAreLoaded() throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.next()).thenReturn(true, true, false);
+        when(rs.getLong(1)).thenReturn(10L, 20L);
+        when(rs.getString(2)).thenReturn("meters", "meters");
+        when(rs.getInt(3)).thenReturn(0, 1);
+        Statement statement = mock(Statement.class);
+        when(statement.executeQuery(anyString())).thenReturn(rs);
+        Connection connection = mock(Connection.class);
+        when(connection.createStatement()).thenReturn(statement);
+        Processor processor = mock(Processor.class);
+        when(processor.withConnection(any())).thenAnswer(invocation ->
+                invocation.<ConnectionCallback<?>>getArgument(0).doWithConnection(connection));
+
+        OffsetStore store = new OffsetStore(processor, "offsets", "kafka_offsets", "sink", 0);
+        Map<TopicPartition, Long> offsets = store.load(Arrays.asList(new TopicPartition("meters", 1),
+                new TopicPartition("meters", 2)));
+        assertEquals(Collections.singletonMap(new TopicPartition("meters", 1), 20L), offsets);
+        verify(statement).executeQuery("select max(kafka_offset), kafka_topic, kafka_partition"
+                + " from offsets.kafka_offsets where kafka_connector = 'sink' partition by kafka_topic, kafka_partition");
+    }
+}
@@ -0,0 +1,129 @@
+package com.taosdata.kafka.connect.sink;
+
+import com.taosdata.jdbc.TSDBConstants;
+import com.taosdata.kafka.connect.db.Processor;
+import org.apache.kafka.common.utils.Time;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RecordValidatorTest {
+
+    private static final StableSchema METERS = new StableSchema("meters",
+            Arrays.asList(new StableSchema.Column("ts", TSDBConstants.TSDB_DATA_TYPE_TIMESTAMP, 8),
+                    new StableSchema.Column("phase", TSDBConstants.TSDB_DATA_TYPE_TINYINT, 1),
+                    new StableSchema.Column("note", TSDBConstants.TSDB_DATA_TYPE_BINARY, 4),
+                    new StableSchema.Column("label", TSDBConstants.TSDB_DATA_TYPE_NCHAR, 2)),
+            Collections.singletonList(new StableSchema.Column("location", TSDBConstants.TSDB_DATA_TYPE_BINARY, 24)),
+            "us");
+
+    private static final RecordValidator VALIDATOR = new RecordValidator(config());
+
+    private static SinkConfig config() {
+        Map<String, String> configMap = new HashMap<>();
+        configMap.put("connection.url", "jdbc:TAOS://127.0.0.1:6030");
+        configMap.put("connection.database", "power");
+        configMap.put("db.schemaless", "line");
+        configMap.put("db.write.mode", "stmt");
+        return new SinkConfig(configMap);
+    }
+
+    private static Map<String, Object> value() {
+        Map<String, Object> value = new HashMap<>();
+        value.put("tbname", "d1001");
+        value.put("ts", 5L);
+        value.put("phase", "3");
+        value.put("note", "abé");
+        value.put("label", "中文");
+        value.put("location", "SF");
+        return value;
+    }
+
+    private static SinkRecord record(Map<String, Object> value, Long timestamp) {
+        return new SinkRecord("meters", 0, null, null, null, value, 7, timestamp, null);
+    }
+
+    @Test
+    void recordIsConvertedToTheColumnTypes() {
+        TableRow row = VALIDATOR.toRow(record(value(), null), METERS);
+        assertEquals("d1001", row.getTable());
+        assertArrayEquals(new Object[]{"SF"}, row.getTags());
+        assertArrayEquals(new Object[]{5L, (byte) 3, "abé", "中文"}, row.getValues());
+
+        Map<String, Object> value = value();
+        value.remove("ts");
+        assertEquals(2_000L, VALIDATOR.toRow(record(value, 2L), METERS).getValues()[0]);
+    }
+
+    @Test
+    void invalidRecordsAreRejected() {
+        Map<String, Object> outOfRange = value();
+        outOfRange.put("phase", 300);
+        Map<String, Object> tooLong = value();
+        tooLong.put("note", "abcé");
+        Map<String, Object> tooManyChars = value();
+        tooManyChars.put("label", "abc");
+        Map<String, Object> noTimestamp = value();
+        noTimestamp.remove("ts");
+        Map<String, Object> noTable = value();
+        noTable.remove("tbname");
+        Map<String, Object> notANumber = value();
+        notANumber.put("phase", "one");
+
+        for (Map<String, Object> value : Arrays.asList(outOfRange, tooLong, tooManyChars, noTimestamp, noTable,
+                notANumber)) {
+            assertThrows(DataException.class, () -> VALIDATOR.toRow(record(value, null), METERS), value.toString());
+        }
+        assertThrows(DataException.class, () -> VALIDATOR.toRow(
+                new SinkRecord("meters", 0, null, null, null, "st c1=1i64 1", 0), METERS));
+    }
+
+    @Test
+    void fieldsUnknownToTheSuperTableAreDetected() {
+        Map<String, Object> value = value();
+        assertFalse(VALIDATOR.hasUnknownFields(value, METERS));
+        value.put("voltage", 220);
+        assertTrue(VALIDATOR.hasUnknownFields(value, METERS));
+        // every record of a batch is checked, not only the first one
+        assertTrue(VALIDATOR.hasUnknownFields(Arrays.asList(record(value(), null), record(value, null)), METERS));
+        assertFalse(VALIDATOR.hasUnknownFields(Arrays.asList(record(value(), null), record(value(), null)), METERS));
+    }
+
+    @Test
+    void onlyTrueFalseOneAndZeroAreBooleans() {
+        int bool = TSDBConstants.TSDB_DATA_TYPE_BOOL;
+        for (Object value : Arrays.asList(true, "true", " TRUE ", "True", "1", 1, 1L, 1.0)) {
+            assertEquals(true, RecordFields.convert(value, bool, METERS), value.toString());
+        }
+        for (Object value : Arrays.asList(false, "false", "FALSE", "0", 0, 0L, 0.0)) {
+            assertEquals(false, RecordFields.convert(value, bool, METERS), value.toString());
+        }
+        for (Object value : Arrays.asList("yes", "no", "", "t", "2", 2, -1, 0.5)) {
+            assertThrows(DataException.class, () -> RecordFields.convert(value, bool, METERS), value.toString());
+        }
+    }
+
+    @Test
+    void schemaIsRefreshedAtMostOncePerInterval() throws Exception {
+        Time time = mock(Time.class);
+        when(time.milliseconds()).thenReturn(0L);
+        Processor processor = mock(Processor.class);
+        StableSchema altered = new StableSchema("meters", METERS.getColumns(), METERS.getTags(), "ns");
+        doReturn(METERS, altered).when(processor).withConnection(any());
+        StableSchemaCache schemas = new StableSchemaCache(time);
+        WriteTarget target = new WriteTarget("power", null, null, "meters");
+
+        assertSame(METERS, schemas.get(target, processor));
+        assertSame(METERS, schemas.refresh(target, processor));
+        when(time.milliseconds()).thenReturn(StableSchemaCache.MIN_REFRESH_INTERVAL_MS);
+        assertSame(altered, schemas.refresh(target, processor));
+        assertSame(altered, schemas.get(target, processor));
+        verify(processor, times(2)).withConnection(any());
+    }
+}
@@ -0,0 +1,144 @@
+package com.taosdata.kafka.connect.sink;
+
+import com.taosdata.kafka.connect.db.Processor;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SinkWriterPoolTest {
+
+    @Test
+    void partitionsAreWrittenByOneWriter() throws Exception {
+        Map<String, String> configMap = new HashMap<>();
+        configMap.put("connection.url", "jdbc:TAOS://127.0.0.1:6030");
+        configMap.put("connection.database", "sink");
+        configMap.put("db.schemaless", "line");
+        configMap.put("writer.threads", "2");
+        SinkConfig config = new SinkConfig(configMap);
+        Processor first = mock(Processor.class);
+        Processor second = mock(Processor.class);
+        SinkWriterPool pool = new SinkWriterPool(config, Arrays.asList(first, second), Collections.emptyList(),
+                new WriterResources());
+
+        List<SinkRecord> records = new ArrayList<>();
+        Map<TopicPartition, OffsetAndMetadata> current = new HashMap<>();
+        for (int offset = 0; offset < 3; offset++) {
+            for (int partition = 0; partition < 4; partition++) {
+                records.add(new SinkRecord("topic", partition, null, null, null, "p" + partition, offset));
+                current.put(new TopicPartition("topic", partition), new OffsetAndMetadata(offset + 1));
+            }
+        }
+        pool.put(records);
+        pool.start();
+        pool.flush();
+
+        ArgumentCaptor<String[]> firstLines = ArgumentCaptor.forClass(String[].class);
+        ArgumentCaptor<String[]> secondLines = ArgumentCaptor.forClass(String[].class);
+        verify(first, atLeastOnce()).schemalessInsert(firstLines.capture(), any(), any(), any());
+        verify(second, atLeastOnce()).schemalessInsert(secondLines.capture(), any(), any(), any());
+        Set<String> firstPartitions = new HashSet<>();
+        firstLines.getAllValues().forEach(lines -> firstPartitions.addAll(Arrays.asList(lines)));
+        Set<String> secondPartitions = new HashSet<>();
+        secondLines.getAllValues().forEach(lines -> secondPartitions.addAll(Arrays.asList(lines)));
+        assertEquals(4, firstPartitions.size() + secondPartitions.size());
+        assertTrue(Collections.disjoint(firstPartitions, secondPartitions));
+
+        Map<TopicPartition, OffsetAndMetadata> committable = pool.committableOffsets(current);
+        assertEquals(4, committable.size());
+        committable.values().forEach(offset -> assertEquals(3, offset.offset()));
+        pool.close();
+        verify(first).shutdown();
+        verify(second).shutdown();
+    }
+
+    @Test
+    void priorityTopicsAreWrittenByTheirOwnWriters() throws Exception {
+        Map<String, String> configMap = new HashMap<>();
+        configMap.put("connection.url", "jdbc:TAOS://127.0.0.1:6030");
+        configMap.put("connection.database", "sink");
+        configMap.put("db.schemaless", "line");
+        configMap.put("batch.size", "1000");
+        configMap.put("priority.topics", "alerts");
+        configMap.put("priority.batch.size", "2");
+        SinkConfig config = new SinkConfig(configMap);
+        Processor bulk = mock(Processor.class);
+        Processor priority = mock(Processor.class);
+        SinkWriterPool pool = new SinkWriterPool(config, Collections.singletonList(bulk),
+                Collections.singletonList(priority), new WriterResources());
+
+        List<SinkRecord> records = new ArrayList<>();
+        for (int offset = 0; offset < 5; offset++) {
+            records.add(new SinkRecord("metrics", 0, null, null, null, "m" + offset, offset));
+            records.add(new SinkRecord("alerts", 0, null, null, null, "a" + offset, offset));
+        }
+        pool.put(records);
+        pool.start();
+        pool.flush();
+
+        ArgumentCaptor<String[]> bulkLines = ArgumentCaptor.forClass(String[].class);
+        ArgumentCaptor<String[]> priorityLines = ArgumentCaptor.forClass(String[].class);
+        verify(bulk, atLeastOnce()).schemalessInsert(bulkLines.capture(), any(), any(), any());
+        verify(priority, atLeastOnce()).schemalessInsert(priorityLines.capture(), any(), any(), any());
+        List<String> written = new ArrayList<>();
+        bulkLines.getAllValues().forEach(lines -> written.addAll(Arrays.asList(lines)));
+        assertEquals(Arrays.asList("m0", "m1", "m2", "m3", "m4"), written);
+        written.clear();
+        for (String[] lines : priorityLines.getAllValues()) {
+            assertTrue(lines.length <= 2);
+            written.addAll(Arrays.asList(lines));
+        }
+        assertEquals(Arrays.asList("a0", "a1", "a2", "a3", "a4"), written);
+        pool.close();
+        verify(bulk).shutdown();
+        verify(priority).shutdown();
+    }
+
+    @Test
+    void priorityRecordsAreWrittenWhileTheBulkBufferIsFull() throws Exception {
+        Map<String, String> configMap = new HashMap<>();
+        configMap.put("connection.url", "jdbc:TAOS://127.0.0.1:6030");
+        configMap.put("connection.database", "sink");
+        configMap.put("db.schemaless", "line");
+        configMap.put("batch.size", "1000");
+        configMap.put("linger.ms", "60000");
+        configMap.put("max.buffered.records", "10");
+        configMap.put("priority.topics", "alerts");
+        configMap.put("priority.batch.size", "1");
+        SinkConfig config = new SinkConfig(configMap);
+        Processor bulk = mock(Processor.class);
+        Processor priority = mock(Processor.class);
+        SinkWriterPool pool = new SinkWriterPool(config, Collections.singletonList(bulk),
+                Collections.singletonList(priority), new WriterResources());
+        pool.start();
+
+        // each writer holds 5 records, the bulk records exceed it
+        List<SinkRecord> records = new ArrayList<>();
+        for (int offset = 0; offset < 10; offset++) {
+            records.add(new SinkRecord("metrics", 0, null, null, null, "m" + offset, offset));
+        }
+        records.add(new SinkRecord("alerts", 0, null, null, null, "a0", 0));
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> pool.put(records));
+        TopicPartition metrics = new TopicPartition("metrics", 0);
+        TopicPartition alerts = new TopicPartition("alerts", 0);
+        assertEquals(Collections.singleton(metrics), pool.fullPartitions(Arrays.asList(metrics, alerts)));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> pool.put(Collections.singletonList(
+                new SinkRecord("alerts", 0, null, null, null, "a1", 1))));
+        verify(priority, timeout(5000)).schemalessInsert(eq(new String[]{"a1"}), any(), any(), any());
+        verify(bulk, never()).schemalessInsert(any(), any(), any(), any());
+
+        pool.flush();
+        assertTrue(pool.fullPartitions(Arrays.asList(metrics, alerts)).isEmpty());
+        pool.close();
+    }
+}
@@ -0,0 +1,754 @@
+package com.taosdata.kafka.connect.sink;
+
+import com.taosdata.jdbc.TSDBConstants;
+import com.taosdata.jdbc.enums.SchemalessProtocolType;
+import com.taosdata.jdbc.enums.SchemalessTimestampType;
+import com.taosdata.kafka.connect.db.Processor;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.connect.errors.ConnectException;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.sink.ErrantRecordReporter;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SinkWriterTest {
+
+    private static Map<String, String> config() {
+        Map<String, String> configMap = new HashMap<>();
+        configMap.put("connection.url", "jdbc:TAOS://127.0.0.1:6030");
+        configMap.put("connection.database", "sink");
+        configMap.put("db.schemaless", "line");
+        configMap.put("batch.size", "100");
+        configMap.put("linger.ms", "60000");
+        configMap.put("max.retries", "1");
+        return configMap;
+    }
+
+    private static SinkWriter writer(SinkConfig config, Processor processor, ErrantRecordReporter reporter) {
+        return new SinkWriter(config, processor, config.getMaxBufferedRecords(), null,
+                new WriterResources().reporter(reporter));
+    }
+
+    private static List<SinkRecord> records(String topic, int partition, int count) {
+        List<SinkRecord> records = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            records.add(new SinkRecord(topic, partition, null, null, null, "st c1=" + i + "i64 " + i, i));
+        }
+        return records;
+    }
+
+    @Test
+    void lingerCollectsRecordsAcrossPut() throws Exception {
+        Processor processor = mock(Processor.class);
+        SinkWriter writer = writer(new SinkConfig(config()), processor, null);
+        writer.start();
+
+        writer.put(records("topic", 0, 10));
+        writer.put(records("topic", 0, 10).subList(5, 10));
+        TopicPartition tp = new TopicPartition("topic", 0);
+        Map<TopicPartition, OffsetAndMetadata> current = Collections.singletonMap(tp, new OffsetAndMetadata(10));
+        assertTrue(writer.committableOffsets(current).isEmpty());
+
+        writer.flush();
+        verify(processor, times(1)).schemalessInsert(any(), any(), any(), any());
+        assertEquals(10, writer.committableOffsets(current).get(tp).offset());
+        writer.close();
+    }
+
+    @Test
+    void eachBatchIsWrittenWithItsOwnRequestId() throws Exception {
+        Map<String, String> configMap = config();
+        configMap.put("batch.size", "5");
+        Processor processor = mock(Processor.class);
+        SinkWriter writer = writer(new SinkConfig(configMap), processor, null);
+        writer.put(records("topic", 0, 15));
+        writer.start();
+        writer.flush();
+
+        ArgumentCaptor<Long> reqIds = ArgumentCaptor.forClass(Long.class);
+        verify(processor, times(3)).schemalessInsert(any(), any(), any(), reqIds.capture());
+        assertEquals(3, new HashSet<>(reqIds.getAllValues()).size());
+        assertFalse(reqIds.getAllValues().contains(null));
+        writer.close();
+    }
+
+    @Test
+    void batchesAreLimitedByUtf8Bytes() throws Exception {
+        Map<String, String> configMap = config();
+        configMap.put("batch.max.bytes", "35");
+        Processor processor = mock(Processor.class);
+        SinkWriter writer = writer(new SinkConfig(configMap), processor, null);
+        List<SinkRecord> records = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            // 17 chars, 18 bytes
+            records.add(new SinkRecord("topic", 0, null, null, null, "st,t1=\u00e9 c1=" + i + "i64 " + i, i));
+        }
+        writer.put(records);
+        writer.start();
+        writer.flush();
+        writer.close();
+
+        verify(processor, times(4)).schemalessInsert(argThat(lines -> lines.length == 1), any(), any(), any());
+        assertEquals(2, SinkWriter.recordBytes("\u00e9"));
+        assertEquals(3, SinkWriter.recordBytes("\u20ac"));
+        assertEquals(4, SinkWriter.recordBytes("\ud83d\ude00"));
+        assertEquals(0, SinkWriter.recordBytes(Collections.singletonMap("c1", 1)));
+    }
+
+    @Test
+    void failedWriteIsNotCommitted() throws Exception {
+        Processor processor = mock(Processor.class);
+        doThrow(new SQLException("write error")).when(processor).schemalessInsert(any(), any(), any(), any());
+        SinkWriter writer = writer(new SinkConfig(config()), processor, null);
+        writer.start();
+
+        writer.put(records("topic", 0, 3));
+        assertThrows(ConnectException.class, writer::flush);
+        TopicPartition tp = new TopicPartition("topic", 0);
+        assertThrows(ConnectException.class,
+                () -> writer.committableOffsets(Collections.singletonMap(tp, new OffsetAndMetadata(3))));
+        writer.close();
+    }
+
+    @Test
+    void interleavedTopicsAreGroupedByDatabase() throws Exception {
+        Map<String, String> configMap = config();
+        configMap.remove("connection.database");
+        configMap.put("connection.database.prefix", "kafka_");
+        configMap.put("linger.ms", "0");
+        configMap.put("batch.size", "0");
+        Processor processor = mock(Processor.class);
+        SinkWriter writer = writer(new SinkConfig(configMap), processor, null);
+
+        List<SinkRecord> records = new ArrayList<>();
+        List<SinkRecord> a = records("a", 0, 5);
+        List<SinkRecord> b = records("b", 0, 5);
+        for (int i = 0; i < 5; i++) {
+            records.add(a.get(i));
+            records.add(b.get(i));
+        }
+        writer.put(records);
+        writer.start();
+        writer.flush();
+
+        verify(processor, times(2)).schemalessInsert(argThat(lines -> lines.length == 5), any(), any(), any());
+        verify(processor, times(1)).setDbName("kafka_a");
+        verify(processor, times(1)).setDbName("kafka_b");
+        writer.close();
+    }
+
+    @Test
+    void topicOverridesAreResolvedPerTopic() throws Exception {
+        Map<String, String> configMap = config();
+        configMap.put("linger.ms", "0");
+        configMap.put("batch.size", "0");
+        configMap.put("topic.app.events.db.schemaless", "json");
+        configMap.put("topic.app.events.connection.database", "events");
+        configMap.put("topic.metrics.batch.size", "2");
+        configMap.put("topic.metrics.data.precision", "ms");
+        Processor processor = mock(Processor.class);
+        SinkWriter writer = writer(new SinkConfig(configMap), processor, null);
+
+        List<SinkRecord> records = new ArrayList<>(records("metrics", 0, 5));
+        records.add(new SinkRecord("app.events", 0, null, null, null, "{\"metric\":\"st\"}", 0));
+        records.addAll(records("other", 0, 3));
+        writer.put(records);
+        writer.start();
+        writer.flush();
+
+        verify(processor, times(3)).schemalessInsert(argThat(lines -> lines.length <= 2),
+                eq(SchemalessProtocolType.LINE), eq(SchemalessTimestampType.MILLI_SECONDS), any());
+        verify(processor).schemalessInsert(eq(new String[]{"{\"metric\":\"st\"}"}),
+                eq(SchemalessProtocolType.JSON), eq(SchemalessTimestampType.NOT_CONFIGURED), any());
+        verify(processor).schemalessInsert(argThat(lines -> lines.length == 3),
+                eq(SchemalessProtocolType.LINE), eq(SchemalessTimestampType.NOT_CONFIGURED), any());
+        verify(processor).setDbName("events");
+        writer.close();
+
+        configMap.put("topic.metrics.linger.ms", "10");
+        assertThrows(ConfigException.class, () -> new SinkConfig(configMap));
+    }
+
+    @Test
+    void failedBatchIsBisected() throws Exception {
+        Map<String, String> configMap = config();
+        configMap.put("linger.ms", "0");
+        configMap.put("batch.size", "0");
+        configMap.put("data.precision", "ms");
+        Processor processor = mock(Processor.class);
+        doAnswer(invocation -> {
+            for (String line : (String[]) invocation.getArgument(0)) {
+                if (line.startsWith("bad")) {
+                    throw new SQLException("invalid line");
+                }
+            }
+            return true;
+        }).when(processor).schemalessInsert(any(), any(), any(), any());
+        ErrantRecordReporter reporter = mock(ErrantRecordReporter.class);
+        SinkWriter writer = writer(new SinkConfig(configMap), processor, reporter);
+
+        List<SinkRecord> records = records("topic", 0, 64);
+        SinkRecord bad = new SinkRecord("topic", 0, null, null, null, "bad line", 64);
+        records.set(37, bad);
+        writer.put(records);
+        writer.start();
+        writer.flush();
+
+        verify(reporter, times(1)).report(eq(bad), any());
+        // 1 batch write + 2 writes for each of the 6 levels
+        verify(processor, times(13)).schemalessInsert(any(), any(), eq(SchemalessTimestampType.MILLI_SECONDS), any());
+        writer.close();
+    }
+
+    @Test
+    void byteValuesAreJoinedIntoOneRawPayload() throws Exception {
+        Map<String, String> configMap = config();
+        configMap.put("db.schemaless.raw", "true");
+        Processor processor = mock(Processor.class);
+        SinkWriter writer = writer(new SinkConfig(configMap), processor, null);
+        writer.start();
+
+        List<SinkRecord> records = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            byte[] value = ("st,t1=\u00e9 c1=" + i + "i64 " + i).getBytes(StandardCharsets.UTF_8);
+            records.add(new SinkRecord("topic", 0, null, null, null, value, i));
+        }
+        writer.put(records);
+        writer.flush();
+        writer.close();
+
+        verify(processor).schemalessInsertRaw(
+                eq("st,t1=\u00e9 c1=0i64 0\nst,t1=\u00e9 c1=1i64 1\nst,t1=\u00e9 c1=2i64 2"),
+                eq(SchemalessProtocolType.LINE), eq(SchemalessTimestampType.NOT_CONFIGURED), any());
+        verify(processor, never()).schemalessInsert(any(), any(), any(), any());
+    }
+
+    @Test
+    void invalidRecordsAreReportedWithoutFailingTheBatch() throws Exception {
+        Map<String, String> configMap = config();
+        configMap.put("db.write.mode", "sql");
+        configMap.put("record.stable", "meters");
+        Processor processor = mock(Processor.class);
+        doReturn(new StableSchema("meters",
+                Arrays.asList(new StableSchema.Column("ts", TSDBConstants.TSDB_DATA_TYPE_TIMESTAMP, 8),
+                        new StableSchema.Column("current", TSDBConstants.TSDB_DATA_TYPE_INT, 4)),
+                Collections.singletonList(new StableSchema.Column("location", TSDBConstants.TSDB_DATA_TYPE_BINARY, 8)),
+                "ms")).when(processor).withConnection(any());
+        ErrantRecordReporter reporter = mock(ErrantRecordReporter.class);
+        SinkWriter writer = writer(new SinkConfig(configMap), processor, reporter);
+        writer.start();
+
+        List<SinkRecord> records = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Map<String, Object> value = new HashMap<>();
+            value.put("tbname", "d1");
+            value.put("ts", (long) i);
+            value.put("current", i == 1 ? "high" : i);
+            value.put("location", "SF");
+            records.add(new SinkRecord("topic", 0, null, null, null, value, i));
+        }
+        writer.put(records);
+        writer.flush();
+
+        verify(reporter).report(eq(records.get(1)), any(DataException.class));
+        verify(processor).execute("insert into d1 using meters tags('SF') values(0,0)(2,2)");
+        // the invalid record is handled, so its offset can be committed
+        TopicPartition partition = new TopicPartition("topic", 0);
+        assertEquals(3, writer.committableOffsets(
+                Collections.singletonMap(partition, new OffsetAndMetadata(3))).get(partition).offset());
+        writer.close();
+    }
+
+    @Test
+    void csvValueWithLineBreakIsReported(@TempDir Path dir) throws Exception {
+        Map<String, String> configMap = config();
+        configMap.put("db.write.mode", "file");
+        configMap.put("db.file.dir", dir.toString());
+        configMap.put("record.stable", "meters");
+        Processor processor = mock(Processor.class);
+        doReturn(new StableSchema("meters",
+                Arrays.asList(new StableSchema.Column("ts", TSDBConstants.TSDB_DATA_TYPE_TIMESTAMP, 8),
+                        new StableSchema.Column("note", TSDBConstants.TSDB_DATA_TYPE_BINARY, 16)),
+                Collections.singletonList(new StableSchema.Column("location", TSDBConstants.TSDB_DATA_TYPE_BINARY, 8)),
+                "ms")).when(processor).withConnection(any());
+        List<String> files = new ArrayList<>();
+        doAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            Path file = Paths.get(sql.substring(sql.indexOf("file '") + 6, sql.length() - 1));
+            files.add(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+            return false;
+        }).when(processor).execute(anyString());
+        ErrantRecordReporter reporter = mock(ErrantRecordReporter.class);
+        SinkWriter writer = writer(new SinkConfig(configMap), processor, reporter);
+        writer.start();
+
+        List<SinkRecord> records = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Map<String, Object> value = new HashMap<>();
+            value.put("tbname", "d1");
+            value.put("ts", (long) i);
+            value.put("note", i == 1 ? "a\nb" : "n" + i);
+            value.put("location", "SF");
+            records.add(new SinkRecord("topic", 0, null, null, null, value, i));
+        }
+        writer.put(records);
+        writer.flush();
+
+        verify(reporter).report(eq(records.get(1)), any(DataException.class));
+        assertEquals(Collections.singletonList("'d1','SF',0,'n0'\n'd1','SF',2,'n2'\n"), files);
+        TopicPartition partition = new TopicPartition("topic", 0);
+        assertEquals(3, writer.committableOffsets(
+                Collections.singletonMap(partition, new OffsetAndMetadata(3))).get(partition).offset());
+        writer.close();
+    }
+
+    @Test
+    void retryAfterRejectedStatementDoesNotExecuteEarlierStatementsAgain() throws Exception {
+        Map<String, String> configMap = config();
+        configMap.put("db.write.mode", "sql");
+        configMap.put("db.sql.max.length", "1024");
+        configMap.put("record.stable", "meters");
+        configMap.put("max.retries", "2");
+        configMap.put("retry.backoff.ms", "1");
+        Processor processor = mock(Processor.class);
+        // each load returns a new instance of the same schema
+        doAnswer(invocation -> new StableSchema("meters",
+                Arrays.asList(new StableSchema.Column("ts", TSDBConstants.TSDB_DATA_TYPE_TIMESTAMP, 8),
+                        new StableSchema.Column("current", TSDBConstants.TSDB_DATA_TYPE_INT, 4)),
+                Collections.singletonList(new StableSchema.Column("location", TSDBConstants.TSDB_DATA_TYPE_BINARY, 1024)),
+                "ms")).when(processor).withConnection(any());
+        // each table needs a statement of its own
+        char[] chars = new char[600];
+        Arrays.fill(chars, 'x');
+        String location = new String(chars);
+        List<String> statements = new ArrayList<>();
+        doAnswer(invocation -> {
+            statements.add(invocation.getArgument(0));
+            if (statements.size() == 2) {
+                throw new SQLException("Table does not exist", "42000", 0x2603);
+            }
+            return false;
+        }).when(processor).execute(anyString());
+        SinkWriter writer = writer(new SinkConfig(configMap), processor, null);
+
+        List<SinkRecord> records = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Map<String, Object> value = new HashMap<>();
+            value.put("tbname", "d" + i);
+            value.put("ts", (long) i);
+            value.put("current", i);
+            value.put("location", location);
+            records.add(new SinkRecord("topic", 0, null, null, null, value, i));
+        }
+        writer.put(records);
+        writer.start();
+        writer.flush();
+        writer.close();
+
+        // the schema was reloaded for the retry, the first statement is still only executed once
+        verify(processor, times(2)).withConnection(any());
+        assertEquals(Arrays.asList(
+                "insert into d0 using meters tags('" + location + "') values(0,0)",
+                "insert into d1 using meters tags('" + location + "') values(1,1)",
+                "insert into d1 using meters tags('" + location + "') values(1,1)",
+                "insert into d2 using meters tags('" + location + "') values(2,2)"), statements);
+    }
+
+    @Test
+    void isolationDoesNotExecuteStatementsOfEarlierAttemptsAgain() throws Exception {
+        Map<String, String> configMap = config();
+        configMap.put("db.write.mode", "sql");
+        configMap.put("db.sql.max.length", "1024");
+        configMap.put("record.stable", "meters");
+        configMap.put("max.retries", "2");
+        configMap.put("retry.backoff.ms", "1");
+        Processor processor = mock(Processor.class);
+        when(processor.withConnection(any())).thenReturn(new StableSchema("meters",
+                Arrays.asList(new StableSchema.Column("ts", TSDBConstants.TSDB_DATA_TYPE_TIMESTAMP, 8),
+                        new StableSchema.Column("current", TSDBConstants.TSDB_DATA_TYPE_INT, 4)),
+                Collections.singletonList(new StableSchema.Column("location", TSDBConstants.TSDB_DATA_TYPE_BINARY, 1024)),
+                "ms"));
+        // each table needs a statement of its own
+        char[] chars = new char[600];
+        Arrays.fill(chars, 'x');
+        String location = new String(chars);
+        List<String> statements = new ArrayList<>();
+        doAnswer(invocation -> {
+            String statement = invocation.getArgument(0);
+            statements.add(statement);
+            if (statement.startsWith("insert into d1 ")) {
+                throw new SQLException("Table does not exist", "42000", 0x2603);
+            }
+            return false;
+        }).when(processor).execute(anyString());
+        ErrantRecordReporter reporter = mock(ErrantRecordReporter.class);
+        SinkWriter writer = writer(new SinkConfig(configMap), processor, reporter);
+
+        List<SinkRecord> records = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Map<String, Object> value = new HashMap<>();
+            value.put("tbname", "d" + i);
+            value.put("ts", (long) i);
+            value.put("current", i);
+            value.put("location", location);
+            records.add(new SinkRecord("topic", 0, null, null, null, value, i));
+        }
+        writer.put(records);
+        writer.start();
+        writer.flush();
+        writer.close();
+
+        // the first statement was executed by the first attempt, only the other records are isolated
+        verify(reporter).report(eq(records.get(1)), any(SQLException.class));
+        verify(reporter, times(1)).report(any(), any());
+        assertEquals(Arrays.asList(
+                "insert into d0 using meters tags('" + location + "') values(0,0)",
+                "insert into d1 using meters tags('" + location + "') values(1,1)",
+                "insert into d1 using meters tags('" + location + "') values(1,1)",
+                "insert into d1 using meters tags('" + location + "') values(1,1)",
+                "insert into d2 using meters tags('" + location + "') values(2,2)"), statements);
+    }
+
+    @Test
+    void batchIsHeldWhileTheCircuitBreakerIsOpen() throws Exception {
+        Map<String, String> configMap = config();
+        configMap.put("circuit.breaker.enabled", "true");
+        configMap.put("circuit.breaker.window", "1");
+        configMap.put("circuit.breaker.failure.ratio", "1");
+        configMap.put("circuit.breaker.open.ms", "50");
+        SinkConfig config = new SinkConfig(configMap);
+        Processor processor = mock(Processor.class);
+        doThrow(new SQLException("Sync leader is unreachable", "08006"))
+                .doThrow(new SQLException("Sync leader is unreachable", "08006"))
+                .doThrow(new SQLException("Sync leader is unreachable", "08006"))
+                .doReturn(true)
+                .when(processor).schemalessInsert(any(), any(), any(), any());
+        ErrantRecordReporter reporter = mock(ErrantRecordReporter.class);
+        CircuitBreaker breaker = new CircuitBreaker(config, new SinkTaskMetrics());
+        SinkWriter writer = new SinkWriter(config, processor, 100, null,
+                new WriterResources().reporter(reporter).circuitBreaker(breaker));
+        writer.put(records("topic", 0, 3));
+        writer.start();
+        writer.flush();
+
+        // the failures opened the circuit breaker instead of using the only attempt of max.retries
+        verify(processor, times(4)).schemalessInsert(any(), any(), any(), any());
+        verify(reporter, never()).report(any(), any());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        TopicPartition partition = new TopicPartition("topic", 0);
+        assertEquals(3, writer.committableOffsets(
+                Collections.singletonMap(partition, new OffsetAndMetadata(3))).get(partition).offset());
+        writer.close();
+    }
+
+    @Test
+    void revokedPartitionsAreDroppedWhileTheCircuitBreakerIsOpen() throws Exception {
+        Map<String, String> configMap = config();
+        configMap.put("batch.size", "3");
+        configMap.put("circuit.breaker.enabled", "true");
+        configMap.put("circuit.breaker.window", "1");
+        configMap.put("circuit.breaker.failure.ratio", "1");
+        configMap.put("circuit.breaker.open.ms", "200");
+        SinkConfig config = new SinkConfig(configMap);
+        AtomicBoolean available = new AtomicBoolean(false);
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        Processor processor = mock(Processor.class);
+        doAnswer(invocation -> {
+            if (!available.getAndSet(true)) {
+                throw new SQLException("Unable to establish connection", "08001");
+            }
+            written.addAll(Arrays.asList((String[]) invocation.getArgument(0)));
+            return true;
+        }).when(processor).schemalessInsert(any(), any(), any(), any());
+        CircuitBreaker breaker = new CircuitBreaker(config, new SinkTaskMetrics());
+        SinkWriter writer = new SinkWriter(config, processor, 100, null,
+                new WriterResources().circuitBreaker(breaker));
+        writer.start();
+        TopicPartition revoked = new TopicPartition("topic", 0);
+        TopicPartition kept = new TopicPartition("topic", 1);
+        writer.put(records("topic", 0, 3));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!breaker.isOpen() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(breaker.isOpen());
+        writer.put(Collections.singletonList(new SinkRecord("topic", 0, null, null, null, "st c1=3i64 3", 3)));
+        writer.put(records("topic", 1, 2));
+
+        // returns without waiting for TDengine, neither the held batch nor the buffer keep the revoked partition
+        long start = System.currentTimeMillis();
+        writer.revoke(Collections.singletonList(revoked));
+        assertTrue(System.currentTimeMillis() - start < 200);
+        writer.flush();
+
+        List<String> expected = new ArrayList<>();
+        for (SinkRecord record : records("topic", 1, 2)) {
+            expected.add((String) record.value());
+        }
+        assertEquals(expected, written);
+        Map<TopicPartition, OffsetAndMetadata> current = new HashMap<>();
+        current.put(revoked, new OffsetAndMetadata(4));
+        current.put(kept, new OffsetAndMetadata(2));
+        assertEquals(Collections.singletonMap(kept, new OffsetAndMetadata(2)), writer.committableOffsets(current));
+        writer.close();
+    }
+
+    @Test
+    void partitionOfAnAbandonedBatchIsNotCommitted() throws Exception {
+        Map<String, String> configMap = config();
+        configMap.put("batch.size", "3");
+        configMap.put("circuit.breaker.enabled", "true");
+        configMap.put("circuit.breaker.window", "1");
+        configMap.put("circuit.breaker.failure.ratio", "1");
+        configMap.put("circuit.breaker.open.ms", "60000");
+        SinkConfig config = new SinkConfig(configMap);
+        Processor processor = mock(Processor.class);
+        doReturn(true)
+                .doThrow(new SQLException("Unable to establish connection", "08001"))
+                .when(processor).schemalessInsert(any(), any(), any(), any());
+        CircuitBreaker breaker = new CircuitBreaker(config, new SinkTaskMetrics());
+        SinkWriter writer = new SinkWriter(config, processor, 100, null,
+                new WriterResources().circuitBreaker(breaker));
+        writer.start();
+        TopicPartition partition = new TopicPartition("topic", 0);
+        Map<TopicPartition, OffsetAndMetadata> current = Collections.singletonMap(partition, new OffsetAndMetadata(6));
+        List<SinkRecord> records = records("topic", 0, 6);
+        writer.put(records.subList(0, 3));
+        writer.flush();
+        assertEquals(3, writer.committableOffsets(current).get(partition).offset());
+        writer.put(records.subList(3, 6));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!breaker.isOpen() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(breaker.isOpen());
+
+        // the held batch is abandoned, the offsets of its partition are not committed any more
+        writer.close();
+        assertTrue(writer.committableOffsets(current).isEmpty());
+    }
+
+    @Test
+    void badRecordOfAProbeBatchIsReported() throws Exception {
+        Map<String, String> configMap = config();
+        configMap.put("circuit.breaker.enabled", "true");
+        configMap.put("circuit.breaker.window", "1");
+        configMap.put("circuit.breaker.failure.ratio", "1");
+        configMap.put("circuit.breaker.open.ms", "50");
+        SinkConfig config = new SinkConfig(configMap);
+        List<SinkRecord> records = records("topic", 0, 3);
+        String bad = "st c1=\"x\" 1";
+        records.set(1, new SinkRecord("topic", 0, null, null, null, bad, 1));
+        AtomicBoolean available = new AtomicBoolean(false);
+        Processor processor = mock(Processor.class);
+        doAnswer(invocation -> {
+            if (!available.getAndSet(true)) {
+                throw new SQLException("Unable to establish connection", "08001");
+            }
+            if (Arrays.asList((String[]) invocation.getArgument(0)).contains(bad)) {
+                throw new SQLException("Invalid data type");
+            }
+            return true;
+        }).when(processor).schemalessInsert(any(), any(), any(), any());
+        ErrantRecordReporter reporter = mock(ErrantRecordReporter.class);
+        CircuitBreaker breaker = new CircuitBreaker(config, new SinkTaskMetrics());
+        SinkWriter writer = new SinkWriter(config, processor, 100, null,
+                new WriterResources().reporter(reporter).circuitBreaker(breaker));
+        writer.put(records);
+        writer.start();
+        writer.flush();
+
+        // the rejected probe closed the circuit breaker and its bad record was isolated
+        verify(reporter).report(eq(records.get(1)), any(SQLException.class));
+        verify(reporter, times(1)).report(any(), any());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        TopicPartition partition = new TopicPartition("topic", 0);
+        assertEquals(3, writer.committableOffsets(
+                Collections.singletonMap(partition, new OffsetAndMetadata(3))).get(partition).offset());
+        writer.close();
+    }
+
+    @Test
+    void jsonValuesAreEncodedAsLines() throws Exception {
+        Map<String, String> configMap = config();
+        configMap.put("json.line.measurement", "meters");
+        configMap.put("json.line.tags", "location");
+        Processor processor = mock(Processor.class);
+        ErrantRecordReporter reporter = mock(ErrantRecordReporter.class);
+        SinkWriter writer = writer(new SinkConfig(configMap), processor, reporter);
+        writer.start();
+
+        List<SinkRecord> records = Arrays.asList(
+                new SinkRecord("topic", 0, null, null, null, "{\"ts\":1,\"location\":\"SF\",\"current\":1.5}", 0),
+                new SinkRecord("topic", 0, null, null, null, "{\"ts\":2,", 1),
+                new SinkRecord("topic", 0, null, null, null, "{\"ts\":3,\"location\":\"LA\",\"current\":2}", 2));
+        writer.put(records);
+        writer.flush();
+
+        verify(reporter).report(eq(records.get(1)), any(DataException.class));
+        verify(processor).schemalessInsert(
+                eq(new String[]{"meters,location=SF current=1.5 1", "meters,location=LA current=2 3"}),
+                eq(SchemalessProtocolType.LINE), eq(SchemalessTimestampType.NOT_CONFIGURED), any());
+        writer.close();
+    }
+
+    @Test
+    void batchesAreSpilledWhileTDengineIsDownAndReplayedInOrder(@TempDir Path dir) throws Exception {
+        Map<String, String> configMap = config();
+        configMap.put("retry.backoff.ms", "10");
+        SinkConfig config = new SinkConfig(configMap);
+        AtomicBoolean available = new AtomicBoolean(false);
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        Processor processor = mock(Processor.class);
+        doAnswer(invocation -> {
+            if (!available.get()) {
+                throw new SQLException("Unable to establish connection");
+            }
+            written.addAll(Arrays.asList((String[]) invocation.getArgument(0)));
+            return true;
+        }).when(processor).schemalessInsert(any(), any(), any(), any());
+        when(processor.execute(anyString())).thenAnswer(invocation -> {
+            if (!available.get()) {
+                throw new SQLException("Unable to establish connection");
+            }
+            return true;
+        });
+        SpillLog spillLog = SpillLog.open(dir, 1024 * 1024, 16L * 1024 * 1024);
+        SinkWriter writer = new SinkWriter(config, processor, config.getMaxBufferedRecords(), spillLog,
+                new WriterResources());
+        writer.start();
+
+        List<SinkRecord> records = records("topic", 0, 6);
+        writer.put(records.subList(0, 3));
+        writer.flush();
+        writer.put(records.subList(3, 6));
+        writer.flush();
+        // spilled records are only committed once they are replayed
+        TopicPartition tp = new TopicPartition("topic", 0);
+        Map<TopicPartition, OffsetAndMetadata> current = Collections.singletonMap(tp, new OffsetAndMetadata(6));
+        assertTrue(writer.committableOffsets(current).isEmpty());
+        assertTrue(written.isEmpty());
+
+        available.set(true);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (written.size() < records.size() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        writer.flush();
+        assertEquals(6, writer.committableOffsets(current).get(tp).offset());
+        writer.close();
+        List<String> expected = new ArrayList<>();
+        for (SinkRecord record : records) {
+            expected.add((String) record.value());
+        }
+        assertEquals(expected, written);
+        assertTrue(spillLog.isEmpty());
+    }
+
+    @Test
+    void batchesAreHeldWhileTheSpillLogIsFull(@TempDir Path dir) throws Exception {
+        Map<String, String> configMap = config();
+        configMap.put("retry.backoff.ms", "10");
+        configMap.put("batch.size", "3");
+        SinkConfig config = new SinkConfig(configMap);
+        AtomicBoolean available = new AtomicBoolean(false);
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        Processor processor = mock(Processor.class);
+        doAnswer(invocation -> {
+            if (!available.get()) {
+                throw new SQLException("Unable to establish connection");
+            }
+            written.addAll(Arrays.asList((String[]) invocation.getArgument(0)));
+            return true;
+        }).when(processor).schemalessInsert(any(), any(), any(), any());
+        when(processor.execute(anyString())).thenAnswer(invocation -> {
+            if (!available.get()) {
+                throw new SQLException("Unable to establish connection");
+            }
+            return true;
+        });
+        // room for the first batch only, each batch gets a segment of its own
+        SpillLog probe = SpillLog.open(dir.resolve("probe"), 1, Long.MAX_VALUE);
+        probe.append(new WriteTarget("sink", SchemalessProtocolType.LINE, SchemalessTimestampType.NOT_CONFIGURED),
+                records("topic", 0, 3));
+        long batchBytes;
+        try (Stream<Path> files = Files.list(dir.resolve("probe"))) {
+            batchBytes = files.mapToLong(file -> file.toFile().length()).sum();
+        }
+        probe.close();
+        SpillLog spillLog = SpillLog.open(dir.resolve("spill"), 1, batchBytes * 3 / 2);
+        SinkWriter writer = new SinkWriter(config, processor, config.getMaxBufferedRecords(), spillLog,
+                new WriterResources());
+        writer.start();
+
+        List<SinkRecord> records = records("topic", 0, 9);
+        writer.put(records);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (spillLog.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        assertFalse(spillLog.isEmpty());
+        assertTrue(written.isEmpty());
+
+        // the held batches are written after the spilled one
+        available.set(true);
+        writer.flush();
+        List<String> expected = new ArrayList<>();
+        for (SinkRecord record : records) {
+            expected.add((String) record.value());
+        }
+        assertEquals(expected, written);
+        TopicPartition tp = new TopicPartition("topic", 0);
+        assertEquals(9, writer.committableOffsets(Collections.singletonMap(tp, new OffsetAndMetadata(9)))
+                .get(tp).offset());
+        writer.close();
+    }
+
+    @Test
+    void offsetsOfWrittenBatchesAreStored() throws Exception {
+        Processor processor = mock(Processor.class);
+        OffsetStore offsetStore = mock(OffsetStore.class);
+        SinkConfig config = new SinkConfig(config());
+        SinkWriter writer = new SinkWriter(config, processor, config.getMaxBufferedRecords(), null,
+                new WriterResources().offsetStore(offsetStore));
+        writer.start();
+
+        List<SinkRecord> records = new ArrayList<>(records("topic", 0, 5));
+        records.addAll(records("topic", 1, 3));
+        writer.put(records);
+        writer.flush();
+        Map<TopicPartition, Long> expected = new HashMap<>();
+        expected.put(new TopicPartition("topic", 0), 5L);
+        expected.put(new TopicPartition("topic", 1), 3L);
+        verify(offsetStore).record(expected);
+
+        // a failed batch does not record offsets
+        doThrow(new SQLException("write error")).when(processor).schemalessInsert(any(), any(), any(), any());
+        writer.put(records("topic", 0, 7).subList(5, 7));
+        assertThrows(ConnectException.class, writer::flush);
+        verify(offsetStore, times(1)).record(any());
+        verify(offsetStore, never()).flush();
+        writer.close();
+    }
+}
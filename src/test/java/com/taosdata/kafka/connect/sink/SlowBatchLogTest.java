@@ -0,0 +1,52 @@
+package com.taosdata.kafka.connect.sink;
+
+import com.taosdata.jdbc.enums.SchemalessProtocolType;
+import com.taosdata.jdbc.enums.SchemalessTimestampType;
+import org.apache.kafka.common.utils.Time;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SlowBatchLogTest {
+
+    private static final WriteTarget TARGET =
+            new WriteTarget("power", SchemalessProtocolType.LINE, SchemalessTimestampType.MILLI_SECONDS);
+
+    private static SinkConfig config() {
+        Map<String, String> configMap = new HashMap<>();
+        configMap.put("connection.url", "jdbc:TAOS://127.0.0.1:6030");
+        configMap.put("connection.database", "power");
+        configMap.put("db.schemaless", "line");
+        configMap.put("slow.batch.log.ms", "1000");
+        configMap.put("slow.batch.log.interval.ms", "60000");
+        return new SinkConfig(configMap);
+    }
+
+    @Test
+    void slowBatchesAreLoggedOncePerInterval() {
+        Time time = mock(Time.class);
+        when(time.milliseconds()).thenReturn(0L, 30000L, 60000L);
+        SlowBatchLog slowBatches = new SlowBatchLog(config(), time);
+        List<SinkRecord> batch = Arrays.asList(
+                new SinkRecord("meters", 0, null, null, null, "a", 10),
+                new SinkRecord("meters", 1, null, null, null, "b", 3),
+                new SinkRecord("meters", 0, null, null, null, "c", 11));
+
+        assertFalse(slowBatches.onBatch(1, batch, TARGET, 999));
+        assertTrue(slowBatches.onBatch(2, batch, TARGET, 1000));
+        assertFalse(slowBatches.onBatch(3, batch, TARGET, 5000));
+        assertTrue(slowBatches.onBatch(4, batch, TARGET, 5000));
+        assertEquals("meters-0@10..11, meters-1@3..3", SinkWriter.coordinates(batch));
+        assertEquals("0xff", SinkWriter.reqId(255));
+    }
+}
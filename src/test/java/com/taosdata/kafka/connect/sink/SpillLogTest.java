@@ -0,0 +1,102 @@
+package com.taosdata.kafka.connect.sink;
+
+import com.taosdata.jdbc.enums.SchemalessProtocolType;
+import com.taosdata.jdbc.enums.SchemalessTimestampType;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpillLogTest {
+
+    private static final int SEGMENT_BYTES = 1024 * 1024;
+    private static final WriteTarget TARGET =
+            new WriteTarget("power", SchemalessProtocolType.LINE, SchemalessTimestampType.MILLI_SECONDS);
+
+    @TempDir
+    Path dir;
+
+    private static List<SinkRecord> batch(int first, int count) {
+        List<SinkRecord> records = new ArrayList<>();
+        for (int i = first; i < first + count; i++) {
+            Object value = i % 2 == 0 ? "st c1=" + i + "i64 " + i : ("st c1=" + i + "i64 " + i).getBytes(StandardCharsets.UTF_8);
+            records.add(new SinkRecord("topic", i % 3, null, null, null, value, i, i % 5 == 0 ? null : (long) i, null));
+        }
+        return records;
+    }
+
+    private static long segments(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void batchesAreReadInOrderAcrossRestarts() throws Exception {
+        SpillLog spillLog = SpillLog.open(dir, SEGMENT_BYTES, 16L * SEGMENT_BYTES);
+        assertTrue(spillLog.isEmpty());
+        for (int i = 0; i < 3; i++) {
+            assertTrue(spillLog.append(TARGET, batch(i * 10, 10)));
+        }
+        SpillLog.SpilledBatch first = spillLog.peek();
+        assertEquals(TARGET, first.getTarget());
+        List<SinkRecord> expected = batch(0, 10);
+        for (int i = 0; i < expected.size(); i++) {
+            SinkRecord record = first.getRecords().get(i);
+            assertEquals(expected.get(i).kafkaOffset(), record.kafkaOffset());
+            assertEquals(expected.get(i).kafkaPartition(), record.kafkaPartition());
+            assertEquals(expected.get(i).timestamp(), record.timestamp());
+            assertEquals(SinkWriter.toLine(expected.get(i).value()), SinkWriter.toLine(record.value()));
+        }
+        spillLog.remove(first);
+        spillLog.close();
+
+        spillLog = SpillLog.open(dir, SEGMENT_BYTES, 16L * SEGMENT_BYTES);
+        assertEquals(20, spillLog.spilledRecords());
+        assertTrue(spillLog.append(TARGET, batch(30, 10)));
+        for (int offset = 10; offset < 40; offset += 10) {
+            SpillLog.SpilledBatch batch = spillLog.peek();
+            assertEquals(offset, batch.getRecords().get(0).kafkaOffset());
+            spillLog.remove(batch);
+        }
+        assertTrue(spillLog.isEmpty());
+        assertNull(spillLog.peek());
+        assertEquals(0, segments(dir));
+        spillLog.close();
+    }
+
+    @Test
+    void logIsBoundedByMaxBytes() throws Exception {
+        SpillLog spillLog = SpillLog.open(dir, SEGMENT_BYTES, 2L * SEGMENT_BYTES);
+        List<SinkRecord> large = new ArrayList<>();
+        StringBuilder line = new StringBuilder("st c1=\"");
+        while (line.length() < 300 * 1024) {
+            line.append("0123456789");
+        }
+        line.append("\" 1");
+        large.add(new SinkRecord("topic", 0, null, null, null, line.toString(), 0));
+
+        int appended = 0;
+        while (spillLog.append(TARGET, large)) {
+            appended++;
+        }
+        // three batches fit into a segment, a fourth one starts the second segment
+        assertEquals(6, appended);
+        assertEquals(2, segments(dir));
+        spillLog.remove(spillLog.peek());
+        spillLog.remove(spillLog.peek());
+        spillLog.remove(spillLog.peek());
+        assertEquals(1, segments(dir));
+        assertTrue(spillLog.append(TARGET, large));
+        spillLog.close();
+    }
+}
@@ -0,0 +1,125 @@
+package com.taosdata.kafka.connect.sink;
+
+import com.taosdata.jdbc.TSDBConstants;
+import com.taosdata.kafka.connect.db.Processor;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.sql.SQLException;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class SqlWriterTest {
+
+    private static final StableSchema METERS = new StableSchema("meters",
+            Arrays.asList(new StableSchema.Column("ts", TSDBConstants.TSDB_DATA_TYPE_TIMESTAMP, 8),
+                    new StableSchema.Column("current", TSDBConstants.TSDB_DATA_TYPE_FLOAT, 4),
+                    new StableSchema.Column("note", TSDBConstants.TSDB_DATA_TYPE_BINARY, 32)),
+            Collections.singletonList(new StableSchema.Column("location", TSDBConstants.TSDB_DATA_TYPE_BINARY, 24)),
+            "ms");
+
+    private static SinkConfig config() {
+        Map<String, String> configMap = new HashMap<>();
+        configMap.put("connection.url", "jdbc:TAOS://127.0.0.1:6030");
+        configMap.put("connection.database", "power");
+        configMap.put("db.schemaless", "line");
+        configMap.put("db.write.mode", "sql");
+        configMap.put("db.sql.max.length", "1024");
+        return new SinkConfig(configMap);
+    }
+
+    private static List<TableRow> rows(List<SinkRecord> records) {
+        RecordValidator validator = new RecordValidator(config());
+        List<TableRow> rows = new ArrayList<>();
+        for (SinkRecord record : records) {
+            rows.add(validator.toRow(record, METERS));
+        }
+        return rows;
+    }
+
+    private static SinkRecord record(String table, long ts, Object current, String note) {
+        Map<String, Object> value = new HashMap<>();
+        value.put("tbname", table);
+        value.put("ts", ts);
+        value.put("current", current);
+        value.put("note", note);
+        value.put("location", "San Francisco");
+        return new SinkRecord("meters", 0, null, null, null, value, ts);
+    }
+
+    @Test
+    void rowsOfATableShareOneClause() throws Exception {
+        Processor processor = mock(Processor.class);
+        SqlWriter writer = new SqlWriter(config(), processor);
+        writer.write(rows(Arrays.asList(
+                record("d1001", 1, 10.5f, "it's"),
+                record("d1002", 2, null, null),
+                record("d1001", 3, "11", "a\\b")
+        )), METERS, new WriteProgress());
+
+        verify(processor).execute("insert into"
+                + " d1001 using meters tags('San Francisco') values(1,10.5,'it\\'s')(3,11.0,'a\\\\b')"
+                + " d1002 using meters tags('San Francisco') values(2,null,null)");
+    }
+
+    @Test
+    void statementsAreSplitByMaxLength() throws Exception {
+        Processor processor = mock(Processor.class);
+        SqlWriter writer = new SqlWriter(config(), processor);
+        List<SinkRecord> records = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            records.add(record("d" + (i % 3), i, 1.5f, "note " + i));
+        }
+        writer.write(rows(records), METERS, new WriteProgress());
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(processor, atLeast(2)).execute(sql.capture());
+        int rows = 0;
+        for (String statement : sql.getAllValues()) {
+            assertTrue(statement.length() <= 1024);
+            assertTrue(statement.startsWith("insert into d"));
+            rows += statement.split("\\),?\\(|values\\(").length - 1;
+        }
+        assertEquals(200, rows);
+    }
+
+    @Test
+    void retryDoesNotExecuteStatementsAgain() throws Exception {
+        Processor processor = mock(Processor.class);
+        when(processor.execute(anyString()))
+                .thenReturn(true)
+                .thenThrow(new SQLException("Sync leader is unreachable"))
+                .thenReturn(true);
+        SqlWriter writer = new SqlWriter(config(), processor);
+        List<SinkRecord> records = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            records.add(record("d" + (i % 3), i, 1.5f, "note " + i));
+        }
+        List<TableRow> rows = rows(records);
+        WriteProgress progress = new WriteProgress();
+        assertThrows(SQLException.class, () -> writer.write(rows, METERS, progress));
+        assertEquals(1, progress.writtenParts());
+        writer.write(rows, METERS, progress);
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(processor, atLeast(3)).execute(sql.capture());
+        List<String> statements = sql.getAllValues();
+        // the first statement is only executed once, the failed one is executed again
+        assertEquals(1, statements.stream().filter(statements.get(0)::equals).count());
+        assertEquals(statements.get(1), statements.get(2));
+        assertEquals(statements.size() - 1, progress.writtenParts());
+    }
+
+    @Test
+    void tableNamesAreQuotedWhenNeeded() {
+        StringBuilder sb = new StringBuilder();
+        SqlWriter.appendName(sb, "d_1001");
+        sb.append(' ');
+        SqlWriter.appendName(sb, "1001-a");
+        assertEquals("d_1001 `1001-a`", sb.toString());
+    }
+}
@@ -0,0 +1,113 @@
+package com.taosdata.kafka.connect.sink;
+
+import com.taosdata.jdbc.TSDBPreparedStatement;
+import com.taosdata.kafka.connect.db.ConnectionCallback;
+import com.taosdata.kafka.connect.db.Processor;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class StmtWriterTest {
+
+    @Test
+    void recordsAreBoundPerChildTable() throws Exception {
+        Map<String, String> configMap = new HashMap<>();
+        configMap.put("connection.url", "jdbc:TAOS://127.0.0.1:6030");
+        configMap.put("connection.database", "power");
+        configMap.put("db.schemaless", "line");
+        configMap.put("db.write.mode", "stmt");
+        configMap.put("record.stable", "meters");
+        SinkConfig config = new SinkConfig(configMap);
+
+        ResultSet describe = mock(ResultSet.class);
+        when(describe.next()).thenReturn(true, true, true, true, false);
+        when(describe.getString(1)).thenReturn("ts", "current", "location", "groupid");
+        when(describe.getString(2)).thenReturn("TIMESTAMP", "FLOAT", "VARCHAR", "INT");
+        when(describe.getInt(3)).thenReturn(8, 4, 24, 4);
+        when(describe.getString(4)).thenReturn("", "", "TAG", "TAG");
+        ResultSet precision = mock(ResultSet.class);
+        when(precision.next()).thenReturn(true);
+        when(precision.getString(1)).thenReturn("ms");
+        Statement statement = mock(Statement.class);
+        when(statement.executeQuery(anyString())).thenReturn(describe, precision);
+        TSDBPreparedStatement stmt = mock(TSDBPreparedStatement.class);
+        PreparedStatement prepared = mock(PreparedStatement.class);
+        when(prepared.unwrap(TSDBPreparedStatement.class)).thenReturn(stmt);
+        Connection connection = mock(Connection.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(connection.prepareStatement(anyString())).thenReturn(prepared);
+        Processor processor = mock(Processor.class);
+        when(processor.withConnection(any())).thenAnswer(
+                invocation -> ((ConnectionCallback<?>) invocation.getArgument(0)).doWithConnection(connection));
+
+        Schema schema = SchemaBuilder.struct()
+                .field("tbname", Schema.STRING_SCHEMA)
+                .field("ts", Schema.INT64_SCHEMA)
+                .field("current", Schema.FLOAT64_SCHEMA)
+                .field("location", Schema.STRING_SCHEMA)
+                .field("groupid", Schema.INT32_SCHEMA)
+                .build();
+        Struct struct = new Struct(schema).put("tbname", "d1001").put("ts", 1L).put("current", 10.5)
+                .put("location", "SF").put("groupid", 2);
+        Map<String, Object> map = new HashMap<>();
+        map.put("tbname", "d1002");
+        map.put("current", "11.5");
+        map.put("location", "LA");
+        map.put("groupid", 3L);
+        Map<String, Object> later = new HashMap<>(map);
+        later.put("ts", 3L);
+        later.put("tbname", "d1001");
+        List<SinkRecord> records = Arrays.asList(
+                new SinkRecord("meters", 0, null, null, schema, struct, 0),
+                new SinkRecord("meters", 0, null, null, null, map, 1, 2L, null),
+                new SinkRecord("meters", 0, null, null, null, later, 2));
+
+        StableSchemaCache schemas = new StableSchemaCache();
+        RecordValidator validator = new RecordValidator(config);
+        StmtWriter writer = new StmtWriter(processor);
+        WriteTarget target = new WriteTarget("power", null, null, "meters");
+        for (int i = 0; i < 2; i++) {
+            StableSchema stable = schemas.get(target, processor);
+            List<TableRow> rows = new ArrayList<>();
+            for (SinkRecord record : records) {
+                rows.add(validator.toRow(record, stable));
+            }
+            writer.write(rows, stable, new WriteProgress());
+        }
+
+        verify(statement, times(2)).executeQuery(anyString());
+        verify(connection, times(2)).prepareStatement("insert into ? using meters tags(?,?) values(?,?)");
+        verify(stmt, times(2)).setTableName("d1001");
+        verify(stmt, times(2)).setTagString(0, "SF");
+        verify(stmt, times(2)).setTagInt(1, 2);
+        verify(stmt, times(2)).setTimestamp(0, new ArrayList<>(Arrays.asList(1L, 3L)));
+        verify(stmt, times(2)).setFloat(1, new ArrayList<>(Arrays.asList(10.5f, 11.5f)));
+        verify(stmt, times(2)).setTableName("d1002");
+        verify(stmt, times(2)).setTagString(0, "LA");
+        verify(stmt, times(2)).setTimestamp(0, new ArrayList<>(Collections.singletonList(2L)));
+        verify(stmt, times(4)).columnDataAddBatch();
+        verify(stmt, times(2)).columnDataExecuteBatch();
+    }
+
+    @Test
+    void insertSqlHasOneMarkPerTagAndColumn() {
+        StableSchema schema = new StableSchema("meters",
+                Arrays.asList(new StableSchema.Column("ts", 9, 8), new StableSchema.Column("v", 7, 8)),
+                Collections.singletonList(new StableSchema.Column("t", 8, 16)), "ns");
+        assertEquals("insert into ? using meters tags(?) values(?,?)", StmtWriter.insertSql(schema));
+        assertEquals(5_000_000L, schema.fromMillis(5));
+    }
+}
@@ -0,0 +1,103 @@
+package com.taosdata.kafka.connect.sink;
+
+import com.taosdata.jdbc.enums.SchemalessProtocolType;
+import com.taosdata.jdbc.enums.SchemalessTimestampType;
+import com.taosdata.kafka.connect.db.Processor;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.sql.SQLException;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class VgroupRouterTest {
+
+    private final WriteTarget target = new WriteTarget("db", SchemalessProtocolType.LINE,
+            SchemalessTimestampType.MILLI_SECONDS);
+
+    @Test
+    void linesOfATableAreWrittenInOneLane() throws Exception {
+        Processor processor = mock(Processor.class);
+        when(processor.getVgroups()).thenReturn(4);
+        String[] lines = new String[64];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = "meters,location=l" + (i % 16) + " current=" + i + " " + i;
+        }
+        try (VgroupRouter router = new VgroupRouter(processor, 8)) {
+            router.write(lines, target, new WriteProgress(), 1L);
+            router.write(lines, target, new WriteProgress(), 1L);
+        }
+
+        verify(processor, times(1)).getVgroups();
+        ArgumentCaptor<String[]> captor = ArgumentCaptor.forClass(String[].class);
+        verify(processor, atLeast(2)).schemalessInsert(captor.capture(), any(), any(), any());
+        List<String[]> calls = captor.getAllValues();
+        assertTrue(calls.size() <= 8);
+        Map<String, Integer> tableCalls = new HashMap<>();
+        int written = 0;
+        for (String[] call : calls) {
+            Set<String> tables = new HashSet<>();
+            long last = -1;
+            for (String line : call) {
+                String table = line.substring(0, line.indexOf(' '));
+                long ts = Long.parseLong(line.substring(line.lastIndexOf(' ') + 1));
+                if (tables.add(table)) {
+                    tableCalls.merge(table, 1, Integer::sum);
+                }
+                // arrival order is kept inside a lane
+                assertTrue(ts > last);
+                last = ts;
+            }
+            written += call.length;
+        }
+        assertEquals(128, written);
+        // every table is written once per batch
+        tableCalls.values().forEach(count -> assertEquals(2, count));
+    }
+
+    @Test
+    void failureOfOneLaneFailsTheBatchAndOnlyThatLaneIsRetried() throws Exception {
+        Processor processor = mock(Processor.class);
+        when(processor.getVgroups()).thenReturn(2);
+        when(processor.schemalessInsert(any(), any(), any(), any()))
+                .thenReturn(true)
+                .thenThrow(new SQLException("vnode unavailable"));
+        String[] lines = new String[32];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = "meters,location=l" + i + " current=" + i + " " + i;
+        }
+        WriteProgress progress = new WriteProgress();
+        try (VgroupRouter router = new VgroupRouter(processor, 2)) {
+            SQLException e = assertThrows(SQLException.class, () -> router.write(lines, target, progress, 1L));
+            assertEquals("vnode unavailable", e.getMessage());
+            assertEquals(1, progress.writtenParts());
+
+            doReturn(true).when(processor).schemalessInsert(any(), any(), any(), any());
+            router.write(lines, target, progress, 1L);
+        }
+        assertEquals(2, progress.writtenParts());
+        ArgumentCaptor<String[]> captor = ArgumentCaptor.forClass(String[].class);
+        verify(processor, times(3)).schemalessInsert(captor.capture(), any(), any(), any());
+        // the retry only writes the lane which failed
+        List<String[]> calls = captor.getAllValues();
+        assertArrayEquals(calls.get(1), calls.get(2));
+        assertEquals(lines.length, calls.get(0).length + calls.get(2).length);
+    }
+
+    @Test
+    void singleVgroupIsWrittenDirectly() throws Exception {
+        Processor processor = mock(Processor.class);
+        when(processor.getVgroups()).thenReturn(1);
+        String[] lines = {"meters,location=a current=1 1", "meters,location=b current=2 1"};
+        try (VgroupRouter router = new VgroupRouter(processor, 4)) {
+            router.write(lines, target, new WriteProgress(), 1L);
+        }
+        verify(processor).schemalessInsert(eq(lines), eq(SchemalessProtocolType.LINE),
+                eq(SchemalessTimestampType.MILLI_SECONDS), eq(1L));
+        verify(processor, never()).setDbName(any());
+    }
+}
@@ -0,0 +1,29 @@
+package com.taosdata.kafka.connect.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExponentialBackoffTest {
+
+    @Test
+    void delayDoublesUpToTheMaximum() {
+        ExponentialBackoff backoff = new ExponentialBackoff(100, 1000);
+        long[] upper = {100, 200, 400, 800, 1000, 1000};
+        for (int attempt = 0; attempt < upper.length; attempt++) {
+            assertEquals(upper[attempt] / 2, backoff.delayMs(attempt, 0));
+            assertEquals(upper[attempt] - 1, backoff.delayMs(attempt, 0.999));
+        }
+        assertEquals(1000 - 1, backoff.delayMs(Integer.MAX_VALUE, 0.999));
+    }
+
+    @Test
+    void delayIsRandomWithinItsUpperHalf() {
+        ExponentialBackoff backoff = new ExponentialBackoff(1000, 1000);
+        for (int i = 0; i < 100; i++) {
+            long delay = backoff.delayMs(3);
+            assertTrue(delay >= 500 && delay < 1000, String.valueOf(delay));
+        }
+        assertEquals(0, new ExponentialBackoff(0, 0).delayMs(5));
+    }
+}
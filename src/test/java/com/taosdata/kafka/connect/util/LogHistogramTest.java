@@ -0,0 +1,47 @@
+package com.taosdata.kafka.connect.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogHistogramTest {
+
+    @Test
+    void bucketsCoverEveryValue() {
+        long[] values = {0, 1, 7, 8, 9, 15, 16, 17, 1000, 123456789L, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = LogHistogram.bucket(value);
+            assertTrue(LogHistogram.upperBound(bucket) >= value);
+            assertTrue(bucket == 0 || LogHistogram.upperBound(bucket - 1) < value);
+        }
+    }
+
+    @Test
+    void percentilesAreWithinBucketPrecision() {
+        LogHistogram histogram = new LogHistogram();
+        for (long i = 1; i <= 10000; i++) {
+            histogram.record(i);
+        }
+        assertEquals(10000, histogram.count());
+        assertEquals(5000.5, histogram.mean(), 0.001);
+        assertEquals(10000, histogram.max());
+        assertEquals(5000, histogram.percentile(50), 5000 * 0.125);
+        assertEquals(9900, histogram.percentile(99), 9900 * 0.125);
+        assertEquals(10000, histogram.percentile(100));
+        assertEquals(0, new LogHistogram().percentile(99));
+    }
+
+    @Test
+    void rateCountsCompleteSecondsOfTheWindow() {
+        RateMeter meter = new RateMeter(10);
+        long now = 1_000_000L;
+        for (int second = 0; second < 20; second++) {
+            meter.record(100, now + second * 1000L);
+        }
+        // the current second is not complete yet
+        assertEquals(100, meter.rate(now + 19 * 1000L), 0.001);
+        // seconds 14 to 19 of the last ten
+        assertEquals(60, meter.rate(now + 24 * 1000L), 0.001);
+        assertEquals(0, meter.rate(now + 60 * 1000L), 0.001);
+    }
+}